@@ -0,0 +1,424 @@
+package com.MattUng;
+
+import ghidra.framework.model.DomainObjectChangeRecord;
+import ghidra.framework.model.DomainObjectChangedEvent;
+import ghidra.framework.model.DomainObjectEvent;
+import ghidra.framework.model.DomainObjectListener;
+import ghidra.framework.model.EventType;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressSet;
+import ghidra.program.model.listing.*;
+import ghidra.program.model.symbol.RefType;
+import ghidra.program.model.symbol.Reference;
+import ghidra.program.util.ProgramChangeRecord;
+import ghidra.program.util.ProgramEvent;
+import ghidra.util.Msg;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Whole-program CALL adjacency for one program: for every function, the call sites in
+ * its body (in instruction order) with their targets, plus the reverse map from callee
+ * to call sites. A target resolves to its callee the same way forward expansion does:
+ * the function at the target, else the function containing it. Targets are resolved
+ * when a call list is stored and again for every call site after function changes.
+ *
+ * The index is built once on a background executor the first time it is asked for.
+ * Until it is ready, {@link #callsFrom} scans the function directly (the same scan the
+ * index uses), so callers never wait for the build. Afterwards it is kept current from
+ * reference, code and function change events by rescanning only the functions that
+ * overlap a changed range; memory-block changes and undo/redo trigger a rebuild.
+ */
+public final class CallAdjacencyIndex implements DomainObjectListener {
+
+    public static final class CallSite {
+        private final Address site;
+        private final Address target;
+        private final Address caller;
+        // Entry point of the function the target resolves to, if any; guarded by the index
+        private Address callee;
+
+        CallSite(Address site, Address target, Address caller) {
+            this.site = site;
+            this.target = target;
+            this.caller = caller;
+        }
+
+        /** Address of the calling instruction. */
+        public Address getSite() {
+            return site;
+        }
+
+        /** Call reference destination; may be null for unresolved references. */
+        public Address getTarget() {
+            return target;
+        }
+
+        /** Entry point of the function containing the call site. */
+        public Address getCaller() {
+            return caller;
+        }
+    }
+
+    private static final int MAX_PENDING_RANGES = 1024;
+
+    private final Program program;
+    private final Executor buildExecutor;
+
+    // Guarded by this. forward is keyed by function entry point, reverse by callee entry
+    // point; null until built.
+    private TreeMap<Address, List<CallSite>> forward;
+    private HashMap<Address, List<CallSite>> reverse;
+    private boolean building;
+    private boolean listening;
+    private boolean disposed;
+
+    // Written by the change listener; separate lock so event delivery never waits on a query
+    private final Object pendingLock = new Object();
+    private final List<Address[]> pendingRanges = new ArrayList<>();
+    private boolean pendingInvalidate;
+    private boolean pendingResolve;
+
+    public CallAdjacencyIndex(Program program, Executor buildExecutor) {
+        this.program = program;
+        this.buildExecutor = buildExecutor;
+    }
+
+    /**
+     * CALL references made from the body of f, in instruction order, read directly from
+     * the listing.
+     */
+    public static List<CallSite> scanCalls(Program program, Function f) {
+        List<CallSite> calls = new ArrayList<>();
+        Address caller = f.getEntryPoint();
+        InstructionIterator it = program.getListing().getInstructions(f.getBody(), true);
+        while (it.hasNext()) {
+            Instruction instr = it.next();
+            Reference[] refs = instr.getReferencesFrom();
+            if (refs == null || refs.length == 0) continue;
+
+            for (Reference ref : refs) {
+                RefType rt = ref.getReferenceType();
+                if (rt == null || !rt.isCall()) continue;
+                calls.add(new CallSite(instr.getAddress(), ref.getToAddress(), caller));
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Call sites in f's body, from the index when it is ready and from a direct scan
+     * otherwise. The returned list must not be modified.
+     */
+    public List<CallSite> callsFrom(Function f) {
+        synchronized (this) {
+            if (sync()) {
+                Address entry = f.getEntryPoint();
+                List<CallSite> calls = forward.get(entry);
+                if (calls == null) {
+                    // Function created after the build and its event has not arrived yet
+                    calls = store(entry, scanCalls(program, f));
+                }
+                return calls;
+            }
+        }
+        return scanCalls(program, f);
+    }
+
+    /**
+     * Call sites whose target resolves to the function with the given entry point, whether
+     * they call the entry point or into its body.
+     * @return the call sites, or null while the index is not yet built
+     */
+    public synchronized List<CallSite> callsInto(Address calleeEntry) {
+        if (!sync()) {
+            return null;
+        }
+        List<CallSite> calls = reverse.get(calleeEntry);
+        return (calls == null) ? Collections.emptyList() : new ArrayList<>(calls);
+    }
+
+    /** Start the background build if it has not happened yet. */
+    public synchronized void prepare() {
+        sync();
+    }
+
+    public synchronized boolean isReady() {
+        return forward != null;
+    }
+
+    public synchronized void dispose() {
+        disposed = true;
+        if (listening) {
+            program.removeListener(this);
+            listening = false;
+        }
+        forward = null;
+        reverse = null;
+    }
+
+    @Override
+    public void domainObjectChanged(DomainObjectChangedEvent ev) {
+        if (ev.contains(DomainObjectEvent.RESTORED,
+                ProgramEvent.MEMORY_BLOCK_ADDED, ProgramEvent.MEMORY_BLOCK_REMOVED,
+                ProgramEvent.MEMORY_BLOCK_MOVED, ProgramEvent.MEMORY_BLOCK_SPLIT,
+                ProgramEvent.MEMORY_BLOCKS_JOINED, ProgramEvent.IMAGE_BASE_CHANGED)) {
+            invalidate();
+            return;
+        }
+        for (int i = 0; i < ev.numRecords(); i++) {
+            DomainObjectChangeRecord record = ev.getChangeRecord(i);
+            EventType type = record.getEventType();
+            if (!isCallGraphEvent(type)) {
+                continue;
+            }
+            Address start = (record instanceof ProgramChangeRecord) ? ((ProgramChangeRecord) record).getStart() : null;
+            if (start == null) {
+                invalidate();
+                return;
+            }
+            Address end = ((ProgramChangeRecord) record).getEnd();
+            markDirty(start, (end == null) ? start : end);
+            if (isFunctionEvent(type)) {
+                // Calls from anywhere may now resolve to a different function
+                markResolve();
+            }
+        }
+    }
+
+    private static boolean isFunctionEvent(EventType type) {
+        return type == ProgramEvent.FUNCTION_ADDED ||
+            type == ProgramEvent.FUNCTION_REMOVED ||
+            type == ProgramEvent.FUNCTION_BODY_CHANGED;
+    }
+
+    private static boolean isCallGraphEvent(EventType type) {
+        return type == ProgramEvent.REFERENCE_ADDED ||
+            type == ProgramEvent.REFERENCE_REMOVED ||
+            type == ProgramEvent.REFERENCE_TYPE_CHANGED ||
+            type == ProgramEvent.CODE_ADDED ||
+            type == ProgramEvent.CODE_REMOVED ||
+            type == ProgramEvent.CODE_REPLACED ||
+            type == ProgramEvent.FUNCTION_ADDED ||
+            type == ProgramEvent.FUNCTION_REMOVED ||
+            type == ProgramEvent.FUNCTION_BODY_CHANGED;
+    }
+
+    // ----------------------------
+    // Index maintenance
+    // ----------------------------
+
+    private void invalidate() {
+        synchronized (pendingLock) {
+            pendingInvalidate = true;
+            pendingRanges.clear();
+        }
+    }
+
+    private void markResolve() {
+        synchronized (pendingLock) {
+            pendingResolve = true;
+        }
+    }
+
+    private void markDirty(Address start, Address end) {
+        synchronized (pendingLock) {
+            if (pendingInvalidate) {
+                return;
+            }
+            if (pendingRanges.size() >= MAX_PENDING_RANGES) {
+                pendingInvalidate = true;
+                pendingRanges.clear();
+                return;
+            }
+            pendingRanges.add(new Address[] { start, end });
+        }
+    }
+
+    /**
+     * Apply queued changes. Caller holds the monitor.
+     * @return true if the index is built and current
+     */
+    private boolean sync() {
+        if (disposed) {
+            return false;
+        }
+        if (forward == null) {
+            if (!building) {
+                // The build scans after this point, so it covers everything queued so far
+                synchronized (pendingLock) {
+                    pendingRanges.clear();
+                    pendingInvalidate = false;
+                    pendingResolve = false;
+                }
+                startBuild();
+            }
+            // Edits queued while a build runs stay queued and are applied to its snapshot
+            return false;
+        }
+        List<Address[]> ranges;
+        boolean invalidated;
+        boolean resolve;
+        synchronized (pendingLock) {
+            ranges = new ArrayList<>(pendingRanges);
+            invalidated = pendingInvalidate;
+            resolve = pendingResolve;
+            pendingRanges.clear();
+            pendingInvalidate = false;
+            pendingResolve = false;
+        }
+        if (invalidated) {
+            forward = null;
+            reverse = null;
+            startBuild();
+            return false;
+        }
+        try {
+            for (Address[] range : ranges) {
+                refreshRange(range[0], range[1]);
+            }
+            if (resolve) {
+                reverse = resolveAll(forward);
+            }
+        } catch (RuntimeException e) {
+            Msg.debug(this, "Call index refresh failed, rebuilding: " + e.getMessage());
+            forward = null;
+            reverse = null;
+            startBuild();
+            return false;
+        }
+        return true;
+    }
+
+    private void startBuild() {
+        if (building) {
+            return;
+        }
+        // Listen before scanning so edits made during the build are queued and applied to
+        // the published snapshot by the first sync after it
+        if (!listening) {
+            program.addListener(this);
+            listening = true;
+        }
+        building = true;
+        try {
+            buildExecutor.execute(this::build);
+        } catch (RejectedExecutionException e) {
+            building = false;
+        }
+    }
+
+    private void build() {
+        long startMs = System.currentTimeMillis();
+        TreeMap<Address, List<CallSite>> fwd = new TreeMap<>();
+        HashMap<Address, List<CallSite>> rev;
+        long edgeCount = 0;
+        try {
+            for (Function f : program.getFunctionManager().getFunctions(true)) {
+                List<CallSite> calls = scanCalls(program, f);
+                fwd.put(f.getEntryPoint(), Collections.unmodifiableList(calls));
+                edgeCount += calls.size();
+            }
+            rev = resolveAll(fwd);
+        } catch (Exception e) {
+            Msg.warn(this, "Call index build failed for " + program.getName() + ": " + e.getMessage());
+            synchronized (this) {
+                building = false;
+            }
+            return;
+        }
+
+        synchronized (this) {
+            building = false;
+            if (disposed) {
+                return;
+            }
+            forward = fwd;
+            reverse = rev;
+        }
+        Msg.info(this, "Call index built for " + program.getName() + ": " + fwd.size() + " functions, "
+            + edgeCount + " call sites in " + (System.currentTimeMillis() - startMs) + " ms");
+    }
+
+    private void refreshRange(Address start, Address end) {
+        AddressSet range = new AddressSet(start, end);
+
+        // Entries for functions that no longer exist
+        List<Address> removed = new ArrayList<>();
+        for (Address entry : forward.subMap(start, true, end, true).keySet()) {
+            if (program.getFunctionManager().getFunctionAt(entry) == null) {
+                removed.add(entry);
+            }
+        }
+        for (Address entry : removed) {
+            removeReverse(reverse, forward.remove(entry));
+        }
+
+        FunctionIterator it = program.getFunctionManager().getFunctionsOverlapping(range);
+        while (it.hasNext()) {
+            Function f = it.next();
+            store(f.getEntryPoint(), scanCalls(program, f));
+        }
+    }
+
+    /** Replace the call list for one function. Caller holds the monitor. */
+    private List<CallSite> store(Address entry, List<CallSite> calls) {
+        List<CallSite> stored = Collections.unmodifiableList(calls);
+        removeReverse(reverse, forward.put(entry, stored));
+        FunctionManager fm = program.getFunctionManager();
+        for (CallSite call : calls) {
+            call.callee = resolveCallee(fm, call.target);
+        }
+        addReverse(reverse, calls);
+        return stored;
+    }
+
+    /** Resolve every call site's callee again and rebuild the reverse map from them. */
+    private HashMap<Address, List<CallSite>> resolveAll(Map<Address, List<CallSite>> fwd) {
+        FunctionManager fm = program.getFunctionManager();
+        HashMap<Address, List<CallSite>> rev = new HashMap<>();
+        for (List<CallSite> calls : fwd.values()) {
+            for (CallSite call : calls) {
+                call.callee = resolveCallee(fm, call.target);
+            }
+            addReverse(rev, calls);
+        }
+        return rev;
+    }
+
+    private static Address resolveCallee(FunctionManager fm, Address target) {
+        if (target == null) {
+            return null;
+        }
+        Function callee = fm.getFunctionAt(target);
+        if (callee == null) {
+            callee = fm.getFunctionContaining(target);
+        }
+        return (callee == null) ? null : callee.getEntryPoint();
+    }
+
+    private static void addReverse(Map<Address, List<CallSite>> rev, List<CallSite> calls) {
+        for (CallSite call : calls) {
+            if (call.callee != null) {
+                rev.computeIfAbsent(call.callee, ignored -> new ArrayList<>(2)).add(call);
+            }
+        }
+    }
+
+    private static void removeReverse(Map<Address, List<CallSite>> rev, List<CallSite> calls) {
+        if (calls == null) {
+            return;
+        }
+        for (CallSite call : calls) {
+            if (call.callee == null) continue;
+            List<CallSite> sites = rev.get(call.callee);
+            if (sites == null) continue;
+            sites.remove(call);
+            if (sites.isEmpty()) {
+                rev.remove(call.callee);
+            }
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.MattUng;
+
+import com.MattUng.PrimitiveCollections.IntList;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Graph algorithms over a call graph whose nodes are dense int ids, used by the
+ * analytics mode of {@link CallGraphBuilder}.
+ *
+ * Everything works on a compressed adjacency layout (CSR) and runs without recursion, so
+ * deep call chains cannot overflow the stack:
+ *  - strongly connected components: Tarjan's algorithm, O(n + m)
+ *  - dominators from a set of roots: Cooper-Harvey-Kennedy iteration over reverse postorder
+ *  - betweenness: Brandes' accumulation from an evenly spaced sample of sources,
+ *    O(samples * (n + m)), scaled to estimate the full score
+ *  - top-N selection with a bounded heap, O(n log N)
+ */
+public final class CallGraphAnalytics {
+
+    /** idom value for roots (and nodes only the virtual super-root dominates). */
+    public static final int DOMINATED_BY_ROOTS = -1;
+    /** idom value for nodes not reachable from any root. */
+    public static final int UNREACHABLE = -2;
+
+    private CallGraphAnalytics() {}
+
+    /**
+     * Compressed adjacency: the successors of v are adj[offsets[v] .. offsets[v + 1]),
+     * sorted and without duplicates.
+     */
+    public static final class Csr {
+        final int n;
+        final int[] offsets;
+        final int[] adj;
+
+        Csr(int n, int[] offsets, int[] adj) {
+            this.n = n;
+            this.offsets = offsets;
+            this.adj = adj;
+        }
+
+        /** Build from parallel edge lists, dropping duplicate (from, to) pairs. */
+        public static Csr fromEdges(int n, IntList from, IntList to) {
+            int m = from.size();
+            int[] offsets = new int[n + 1];
+            for (int i = 0; i < m; i++) {
+                offsets[from.get(i) + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            int[] fill = Arrays.copyOf(offsets, n);
+            int[] adj = new int[m];
+            for (int i = 0; i < m; i++) {
+                adj[fill[from.get(i)]++] = to.get(i);
+            }
+
+            // Sort each row and squeeze out duplicates in place
+            int[] compactOffsets = new int[n + 1];
+            int write = 0;
+            for (int v = 0; v < n; v++) {
+                int start = offsets[v];
+                int end = offsets[v + 1];
+                Arrays.sort(adj, start, end);
+                compactOffsets[v] = write;
+                for (int i = start; i < end; i++) {
+                    if (i > start && adj[i] == adj[i - 1]) continue;
+                    adj[write++] = adj[i];
+                }
+            }
+            compactOffsets[n] = write;
+            return new Csr(n, compactOffsets, Arrays.copyOf(adj, write));
+        }
+
+        public int nodeCount() {
+            return n;
+        }
+
+        public int edgeCount() {
+            return adj.length;
+        }
+
+        public int degree(int v) {
+            return offsets[v + 1] - offsets[v];
+        }
+
+        public boolean hasEdge(int from, int to) {
+            return Arrays.binarySearch(adj, offsets[from], offsets[from + 1], to) >= 0;
+        }
+
+        /** The same graph with every edge reversed. */
+        public Csr reverse() {
+            int[] counts = new int[n + 1];
+            for (int i = 0; i < adj.length; i++) {
+                counts[adj[i] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                counts[v + 1] += counts[v];
+            }
+            int[] fill = Arrays.copyOf(counts, n);
+            int[] radj = new int[adj.length];
+            // Sources are visited in increasing order, so every reversed row comes out sorted
+            for (int v = 0; v < n; v++) {
+                for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                    radj[fill[adj[i]]++] = v;
+                }
+            }
+            return new Csr(n, counts, radj);
+        }
+    }
+
+    // ----------------------------
+    // Strongly connected components
+    // ----------------------------
+
+    /**
+     * Iterative Tarjan. Components are numbered in reverse topological order of the
+     * condensation (a component's callees have smaller numbers).
+     * @return component number per node
+     */
+    public static int[] stronglyConnectedComponents(Csr g) {
+        int n = g.n;
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] comp = new int[n];
+        Arrays.fill(index, -1);
+        Arrays.fill(comp, -1);
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int sp = 0;
+        int[] callNode = new int[n];
+        int[] callPos = new int[n];
+        int csp = 0;
+        int counter = 0;
+        int compCount = 0;
+
+        for (int s = 0; s < n; s++) {
+            if (index[s] >= 0) continue;
+            index[s] = low[s] = counter++;
+            stack[sp++] = s;
+            onStack[s] = true;
+            callNode[csp] = s;
+            callPos[csp] = g.offsets[s];
+            csp++;
+
+            while (csp > 0) {
+                int v = callNode[csp - 1];
+                if (callPos[csp - 1] < g.offsets[v + 1]) {
+                    int w = g.adj[callPos[csp - 1]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callNode[csp] = w;
+                        callPos[csp] = g.offsets[w];
+                        csp++;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                // v is finished
+                csp--;
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        onStack[w] = false;
+                        comp[w] = compCount;
+                    } while (w != v);
+                    compCount++;
+                }
+                if (csp > 0) {
+                    int u = callNode[csp - 1];
+                    low[u] = Math.min(low[u], low[v]);
+                }
+            }
+        }
+        return comp;
+    }
+
+    // ----------------------------
+    // Dominators
+    // ----------------------------
+
+    /** Immediate dominators plus the reverse postorder they were computed over. */
+    public static final class Dominators {
+        /** Per node: immediate dominator, {@link #DOMINATED_BY_ROOTS} or {@link #UNREACHABLE}. */
+        public final int[] idom;
+        /** Reachable nodes in reverse postorder (dominators before the nodes they dominate). */
+        public final int[] order;
+
+        Dominators(int[] idom, int[] order) {
+            this.idom = idom;
+            this.order = order;
+        }
+
+        public int reachableCount() {
+            return order.length;
+        }
+
+        /** Number of nodes strictly dominated by each node (its dominator subtree size - 1). */
+        public int[] dominatedCounts() {
+            int[] size = new int[idom.length];
+            for (int v : order) {
+                size[v] = 1;
+            }
+            for (int i = order.length - 1; i >= 0; i--) {
+                int v = order[i];
+                if (idom[v] >= 0) {
+                    size[idom[v]] += size[v];
+                }
+            }
+            for (int v : order) {
+                size[v]--;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Cooper-Harvey-Kennedy dominators of g from the given roots. A virtual super-root
+     * with an edge to every root makes multiple roots behave as one entry.
+     */
+    public static Dominators dominators(Csr g, Csr reverse, int[] roots) {
+        int n = g.n;
+        int virtualRoot = n;
+        boolean[] isRoot = new boolean[n];
+        for (int r : roots) {
+            isRoot[r] = true;
+        }
+
+        // --- postorder numbering from the virtual root (iterative DFS) ---
+        int[] post = new int[n + 1];
+        Arrays.fill(post, -1);
+        boolean[] seen = new boolean[n];
+        IntList postorder = new IntList();
+        int[] callNode = new int[n];
+        int[] callPos = new int[n];
+        for (int r : roots) {
+            if (seen[r]) continue;
+            seen[r] = true;
+            int csp = 0;
+            callNode[csp] = r;
+            callPos[csp] = g.offsets[r];
+            csp++;
+            while (csp > 0) {
+                int v = callNode[csp - 1];
+                if (callPos[csp - 1] < g.offsets[v + 1]) {
+                    int w = g.adj[callPos[csp - 1]++];
+                    if (!seen[w]) {
+                        seen[w] = true;
+                        callNode[csp] = w;
+                        callPos[csp] = g.offsets[w];
+                        csp++;
+                    }
+                    continue;
+                }
+                csp--;
+                post[v] = postorder.size();
+                postorder.add(v);
+            }
+        }
+        post[virtualRoot] = postorder.size();
+
+        int reachable = postorder.size();
+        int[] order = new int[reachable];
+        for (int i = 0; i < reachable; i++) {
+            order[i] = postorder.get(reachable - 1 - i);
+        }
+
+        // --- iterate to a fixed point ---
+        int[] doms = new int[n + 1];
+        Arrays.fill(doms, -1);
+        doms[virtualRoot] = virtualRoot;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int v : order) {
+                int newIdom = isRoot[v] ? virtualRoot : -1;
+                for (int i = reverse.offsets[v]; i < reverse.offsets[v + 1]; i++) {
+                    int p = reverse.adj[i];
+                    if (doms[p] < 0) continue;   // unreachable or not yet processed
+                    newIdom = (newIdom < 0) ? p : intersect(doms, post, p, newIdom);
+                }
+                if (newIdom >= 0 && doms[v] != newIdom) {
+                    doms[v] = newIdom;
+                    changed = true;
+                }
+            }
+        }
+
+        int[] idom = new int[n];
+        for (int v = 0; v < n; v++) {
+            if (doms[v] < 0) {
+                idom[v] = UNREACHABLE;
+            } else {
+                idom[v] = (doms[v] == virtualRoot) ? DOMINATED_BY_ROOTS : doms[v];
+            }
+        }
+        return new Dominators(idom, order);
+    }
+
+    private static int intersect(int[] doms, int[] post, int a, int b) {
+        while (a != b) {
+            while (post[a] < post[b]) {
+                a = doms[a];
+            }
+            while (post[b] < post[a]) {
+                b = doms[b];
+            }
+        }
+        return a;
+    }
+
+    // ----------------------------
+    // Betweenness
+    // ----------------------------
+
+    /**
+     * Approximate betweenness centrality: Brandes' dependency accumulation from up to
+     * samples evenly spaced source nodes, scaled by n / samples. Exact when samples >= n.
+     */
+    public static double[] betweenness(Csr g, Csr reverse, int samples) {
+        int n = g.n;
+        double[] score = new double[n];
+        if (n == 0 || samples <= 0) {
+            return score;
+        }
+        int sources = Math.min(samples, n);
+
+        int[] dist = new int[n];
+        double[] sigma = new double[n];
+        double[] delta = new double[n];
+        int[] bfsOrder = new int[n];
+        Arrays.fill(dist, -1);
+
+        for (int k = 0; k < sources; k++) {
+            int s = (int) ((long) k * n / sources);
+
+            // BFS counting shortest paths
+            int head = 0;
+            int tail = 0;
+            dist[s] = 0;
+            sigma[s] = 1;
+            bfsOrder[tail++] = s;
+            while (head < tail) {
+                int v = bfsOrder[head++];
+                for (int i = g.offsets[v]; i < g.offsets[v + 1]; i++) {
+                    int w = g.adj[i];
+                    if (dist[w] < 0) {
+                        dist[w] = dist[v] + 1;
+                        bfsOrder[tail++] = w;
+                    }
+                    if (dist[w] == dist[v] + 1) {
+                        sigma[w] += sigma[v];
+                    }
+                }
+            }
+
+            // Accumulate dependencies in reverse BFS order
+            for (int i = tail - 1; i >= 0; i--) {
+                int w = bfsOrder[i];
+                for (int j = reverse.offsets[w]; j < reverse.offsets[w + 1]; j++) {
+                    int p = reverse.adj[j];
+                    if (dist[p] >= 0 && dist[p] == dist[w] - 1) {
+                        delta[p] += sigma[p] / sigma[w] * (1.0 + delta[w]);
+                    }
+                }
+                if (w != s) {
+                    score[w] += delta[w];
+                }
+            }
+
+            // Reset only what this source touched
+            for (int i = 0; i < tail; i++) {
+                int v = bfsOrder[i];
+                dist[v] = -1;
+                sigma[v] = 0;
+                delta[v] = 0;
+            }
+        }
+
+        double scale = (double) n / sources;
+        for (int v = 0; v < n; v++) {
+            score[v] *= scale;
+        }
+        return score;
+    }
+
+    // ----------------------------
+    // Ranking
+    // ----------------------------
+
+    /**
+     * Indices of the limit highest positive scores, highest first; ties go to the lower
+     * index (earlier BFS discovery).
+     */
+    public static int[] topN(double[] score, int limit) {
+        if (limit <= 0) {
+            return new int[0];
+        }
+        // Min-heap on (score, -index) holding the current best candidates
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, (a, b) -> {
+            int c = Double.compare(score[a], score[b]);
+            return (c != 0) ? c : Integer.compare(b, a);
+        });
+        for (int v = 0; v < score.length; v++) {
+            if (score[v] <= 0) continue;
+            heap.add(v);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll();
+        }
+        return result;
+    }
+}
@@ -1,40 +1,226 @@
 package com.MattUng;
 
+import com.MattUng.PrimitiveCollections.IntList;
+import com.MattUng.PrimitiveCollections.LongIntMap;
+import com.MattUng.PrimitiveCollections.LongPairSet;
 import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressSpace;
 import ghidra.program.model.listing.*;
 import ghidra.program.model.symbol.*;
 import ghidra.util.Msg;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
- * Builds a CALL-only call graph and returns structured JSON (as a String).
+ * Builds a CALL-only call graph and returns structured JSON (as a String, or written
+ * incrementally to an Appendable for streamed responses).
  *
  * Root resolution strategy:
  *  1) Explicit roots from the caller, when provided
  *  2) Otherwise heuristics: external entry points, common entry-ish names, then lowest address
  *
+ * Traversal direction:
+ *  - callees (default): follow CALL references out of each function
+ *  - callers: follow CALL references into each function, plus thunks of it. A call into
+ *    the middle of a body counts, as it does for callees; while the call index is still
+ *    building, only calls to the entry point are seen
+ *  - both: roots expand both ways; every other node keeps expanding only in the direction
+ *    it was reached from
+ * Edges always point from caller to callee. Calls from code outside any function have no
+ * caller node and are not reported in the callers direction.
+ *
  * Graph is bounded via maxDepth and maxNodes to keep payloads manageable for MCP.
+ * The analytics mode summarizes the same bounded graph instead of returning it.
  */
 public final class CallGraphBuilder {
 
+    public static final String DIRECTION_CALLEES = "callees";
+    public static final String DIRECTION_CALLERS = "callers";
+    public static final String DIRECTION_BOTH = "both";
+
+    private static final int EXPAND_CALLEES = 1;
+    private static final int EXPAND_CALLERS = 2;
+
     private CallGraphBuilder() {}
 
+    /**
+     * @return the normalized direction, or null if it is not one of callees/callers/both
+     */
+    public static String normalizeDirection(String direction) {
+        if (direction == null || direction.trim().isEmpty()) {
+            return DIRECTION_CALLEES;
+        }
+        String d = direction.trim().toLowerCase(Locale.ROOT);
+        if (DIRECTION_CALLEES.equals(d) || DIRECTION_CALLERS.equals(d) || DIRECTION_BOTH.equals(d)) {
+            return d;
+        }
+        return null;
+    }
+
     public static String build(
             Program program,
             Collection<Function> requestedRoots,
             String rootStrategy,
             int maxDepth,
-            int maxNodes
+            int maxNodes,
+            String direction,
+            CallAdjacencyIndex callIndex,
+            ForkJoinPool pool
+    ) {
+        StringBuilder sb = new StringBuilder(64 * 1024);
+        try {
+            writeJson(program, requestedRoots, rootStrategy, maxDepth, maxNodes, direction, callIndex, pool, sb);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Build the graph and write its JSON to out field by field, without materializing the
+     * document. Callers streaming to a socket should pass a buffered Writer.
+     *
+     * Call edges come from callIndex when given (it falls back to scanning until built),
+     * otherwise each expanded function's body is scanned for CALL references.
+     *
+     * The BFS runs one depth level at a time. With a pool, every function of a level has
+     * its call sites fetched and callees resolved concurrently; the results are then merged
+     * in queue order, so nodes, edges and truncation are identical to the sequential build.
+     */
+    public static void writeJson(
+            Program program,
+            Collection<Function> requestedRoots,
+            String rootStrategy,
+            int maxDepth,
+            int maxNodes,
+            String direction,
+            CallAdjacencyIndex callIndex,
+            ForkJoinPool pool,
+            Appendable out
+    ) throws IOException {
+        Traversal t = traverse(program, requestedRoots, rootStrategy, maxDepth, maxNodes, direction, callIndex, pool);
+        if (t.error != null) {
+            out.append(errorJson(t.error));
+            return;
+        }
+        writeGraphJson(out, program, t);
+    }
+
+    /**
+     * Build the same bounded graph as {@link #writeJson} and write graph analytics instead
+     * of the graph itself: recursion clusters (SCCs), dominators from the roots, and the
+     * top-N functions by fan-in, fan-out and approximate betweenness. The output size
+     * depends on topN, not on the graph.
+     *
+     * Dominators follow the traversal direction: call edges for callees and both, reversed
+     * edges for callers (so a dominator there is a caller every chain up to a root
+     * passes through). Betweenness is estimated from betweennessSamples BFS sources.
+     */
+    public static void writeAnalyticsJson(
+            Program program,
+            Collection<Function> requestedRoots,
+            String rootStrategy,
+            int maxDepth,
+            int maxNodes,
+            String direction,
+            int topN,
+            int betweennessSamples,
+            CallAdjacencyIndex callIndex,
+            ForkJoinPool pool,
+            Appendable out
+    ) throws IOException {
+        Traversal t = traverse(program, requestedRoots, rootStrategy, maxDepth, maxNodes, direction, callIndex, pool);
+        if (t.error != null) {
+            out.append(errorJson(t.error));
+            return;
+        }
+        topN = clamp(topN, 1, 500);
+        betweennessSamples = clamp(betweennessSamples, 0, 4096);
+        writeAnalyticsJson(out, program, t, topN, betweennessSamples);
+    }
+
+    public static String buildAnalytics(
+            Program program,
+            Collection<Function> requestedRoots,
+            String rootStrategy,
+            int maxDepth,
+            int maxNodes,
+            String direction,
+            int topN,
+            int betweennessSamples,
+            CallAdjacencyIndex callIndex,
+            ForkJoinPool pool
+    ) {
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        try {
+            writeAnalyticsJson(program, requestedRoots, rootStrategy, maxDepth, maxNodes, direction,
+                topN, betweennessSamples, callIndex, pool, sb);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    /** Outcome of one bounded BFS: the graph plus the settings it was built with. */
+    private static final class Traversal {
+        final String error;
+        final Graph graph;
+        final List<Function> roots;
+        final String rootStrategy;
+        final String direction;
+        final int maxDepth;
+        final int maxNodes;
+        final boolean truncated;
+
+        Traversal(String error) {
+            this(error, null, null, null, null, 0, 0, false);
+        }
+
+        Traversal(String error, Graph graph, List<Function> roots, String rootStrategy, String direction,
+                  int maxDepth, int maxNodes, boolean truncated) {
+            this.error = error;
+            this.graph = graph;
+            this.roots = roots;
+            this.rootStrategy = rootStrategy;
+            this.direction = direction;
+            this.maxDepth = maxDepth;
+            this.maxNodes = maxNodes;
+            this.truncated = truncated;
+        }
+    }
+
+    private static Traversal traverse(
+            Program program,
+            Collection<Function> requestedRoots,
+            String rootStrategy,
+            int maxDepth,
+            int maxNodes,
+            String direction,
+            CallAdjacencyIndex callIndex,
+            ForkJoinPool pool
     ) {
         if (program == null) {
-            return errorJson("No program loaded");
+            return new Traversal("No program loaded");
         }
+        String effectiveDirection = normalizeDirection(direction);
+        if (effectiveDirection == null) {
+            return new Traversal("Invalid direction " + direction + " (expected callees, callers or both)");
+        }
+        int rootExpansion = DIRECTION_CALLERS.equals(effectiveDirection) ? EXPAND_CALLERS
+            : DIRECTION_BOTH.equals(effectiveDirection) ? (EXPAND_CALLEES | EXPAND_CALLERS)
+            : EXPAND_CALLEES;
         maxDepth = clamp(maxDepth, 0, 50);
         maxNodes = clamp(maxNodes, 1, 200000);
 
         FunctionManager fm = program.getFunctionManager();
-        Listing listing = program.getListing();
         SymbolTable symtab = program.getSymbolTable();
 
         // --- pick roots ---
@@ -48,99 +234,245 @@ public final class CallGraphBuilder {
         }
 
         // --- BFS build ---
-        LinkedHashMap<String, Node> nodes = new LinkedHashMap<>();
-        ArrayList<Edge> edges = new ArrayList<>();
-        ArrayDeque<WorkItem> q = new ArrayDeque<>();
-        HashSet<String> enqueued = new HashSet<>();
-        HashSet<String> edgeKeys = new HashSet<>();
+        // Nodes are dense int ids in discovery order; each function node is expanded at
+        // most once, at the depth it was first reached.
+        Graph g = new Graph(program.getAddressFactory().getDefaultAddressSpace());
+        IntList queue = new IntList();
         boolean truncated = false;
 
         for (Function r : roots) {
-            if (nodes.size() >= maxNodes) {
+            if (g.nodeCount() >= maxNodes) {
                 truncated = true;
                 break;
             }
-            Node rn = nodeForFunction(r);
-            nodes.put(rn.id, rn);
-            WorkItem wi = new WorkItem(r, 0);
-            q.add(wi);
-            enqueued.add(rn.id);
+            int id = g.addFunction(r, 0, rootExpansion);
+            queue.add(id);
         }
 
-        while (!q.isEmpty()) {
-            WorkItem wi = q.removeFirst();
-            Function f = wi.fn;
-            int depth = wi.depth;
+        int head = 0;
+        while (head < queue.size() && !truncated) {
+            // Every queued node in [head, levelEnd) sits at the same depth
+            int levelEnd = queue.size();
+            int depth = g.depthOf(queue.get(head));
+            if (depth >= maxDepth) break;
 
-            if (depth >= maxDepth) continue;
+            List<Expansion> prefetched = null;
+            if (pool != null && levelEnd - head > 1) {
+                prefetched = expandLevelInParallel(program, g, queue, head, levelEnd, callIndex, pool);
+            }
 
-            // Scan instructions in function body; find CALL references
-            InstructionIterator it = listing.getInstructions(f.getBody(), true);
-            while (it.hasNext()) {
-                Instruction instr = it.next();
-                Reference[] refs = instr.getReferencesFrom();
-                if (refs == null || refs.length == 0) continue;
-
-                for (Reference ref : refs) {
-                    RefType rt = ref.getReferenceType();
-                    if (rt == null || !rt.isCall()) continue;
-
-                    Address to = ref.getToAddress();
-                    String site = addrStr(instr.getAddress());
-
-                    // Resolve callee
-                    Function callee = null;
-                    if (to != null) {
-                        callee = fm.getFunctionAt(to);
-                        if (callee == null) callee = fm.getFunctionContaining(to);
-                    }
+            for (int i = head; i < levelEnd && !truncated; i++) {
+                int fromId = queue.get(i);
+                Expansion ex = (prefetched != null)
+                    ? prefetched.get(i - head)
+                    : expand(program, g.functionAt(fromId), g.expansionOf(fromId), callIndex);
 
-                    Node calleeNode;
-                    if (callee != null) {
-                        calleeNode = nodeForFunction(callee);
-                    } else {
-                        // external / unresolved / indirect-ish: keep ids specific enough for analysis
-                        calleeNode = nodeForUnknown(symtab, to, instr.getAddress());
-                    }
+                for (ResolvedCall rc : ex.callees) {
+                    Address to = rc.call.getTarget();
+                    Address site = rc.call.getSite();
+                    Function callee = rc.callee;
 
-                    // Insert node if new
-                    if (!nodes.containsKey(calleeNode.id)) {
-                        if (nodes.size() >= maxNodes) {
+                    // Insert node if new; new internal functions are queued for expansion
+                    int toId = (callee != null) ? g.findFunction(callee) : g.findUnknown(to, site);
+                    if (toId < 0) {
+                        if (g.nodeCount() >= maxNodes) {
                             truncated = true;
                             break;
                         }
-                        nodes.put(calleeNode.id, calleeNode);
+                        if (callee != null) {
+                            toId = g.addFunction(callee, depth + 1, EXPAND_CALLEES);
+                            queue.add(toId);
+                        } else {
+                            // external / unresolved / indirect-ish: keep ids specific enough for analysis
+                            toId = g.addUnknown(nodeForUnknown(symtab, to, site), to, site);
+                        }
                     }
 
-                    String fromId = nodeIdForFunction(f);
-                    String edgeKey = fromId + "->" + calleeNode.id + "@" + site;
-                    if (edgeKeys.add(edgeKey)) {
-                        edges.add(new Edge(
-                                fromId,
-                                calleeNode.id,
-                                site,
-                                "call"
-                        ));
-                    }
+                    g.addEdge(fromId, toId, site, false);
+                }
 
-                    // Enqueue for expansion if it’s an internal function node
-                    if (!calleeNode.external && callee != null) {
-                        String calleeId = calleeNode.id;
-                        if (!enqueued.contains(calleeId)) {
-                            q.addLast(new WorkItem(callee, depth + 1));
-                            enqueued.add(calleeId);
+                for (CallerRef cr : ex.callers) {
+                    if (truncated) break;
+                    int callerId = g.findFunction(cr.caller);
+                    if (callerId < 0) {
+                        if (g.nodeCount() >= maxNodes) {
+                            truncated = true;
+                            break;
                         }
+                        callerId = g.addFunction(cr.caller, depth + 1, EXPAND_CALLERS);
+                        queue.add(callerId);
                     }
+                    g.addEdge(callerId, fromId, cr.site, cr.thunk);
                 }
+            }
+            head = levelEnd;
+        }
+
+        return new Traversal(null, g, roots, effectiveRootStrategy, effectiveDirection, maxDepth, maxNodes, truncated);
+    }
+
+    // ----------------------------
+    // Call resolution
+    // ----------------------------
+
+    static final class ResolvedCall {
+        final CallAdjacencyIndex.CallSite call;
+        final Function callee;   // null for external/unresolved targets
+
+        ResolvedCall(CallAdjacencyIndex.CallSite call, Function callee) {
+            this.call = call;
+            this.callee = callee;
+        }
+    }
+
+    /** A function that calls (or is a thunk for) the function being expanded. */
+    static final class CallerRef {
+        final Address site;      // call instruction, or the thunk's entry point
+        final Function caller;
+        final boolean thunk;
+
+        CallerRef(Address site, Function caller, boolean thunk) {
+            this.site = site;
+            this.caller = caller;
+            this.thunk = thunk;
+        }
+    }
+
+    /** Everything needed to expand one queued function. */
+    private static final class Expansion {
+        final List<ResolvedCall> callees;
+        final List<CallerRef> callers;
 
-                if (truncated) break;
+        Expansion(List<ResolvedCall> callees, List<CallerRef> callers) {
+            this.callees = callees;
+            this.callers = callers;
+        }
+    }
+
+    private static Expansion expand(Program program, Function f, int expansion, CallAdjacencyIndex callIndex) {
+        List<ResolvedCall> callees = ((expansion & EXPAND_CALLEES) != 0)
+            ? resolveCalls(program, f, callIndex)
+            : Collections.emptyList();
+        List<CallerRef> callers = ((expansion & EXPAND_CALLERS) != 0)
+            ? resolveCallers(program, f, callIndex)
+            : Collections.emptyList();
+        return new Expansion(callees, callers);
+    }
+
+    /**
+     * CALL references from the function body, in instruction order, with their callees resolved.
+     */
+    static List<ResolvedCall> resolveCalls(Program program, Function f, CallAdjacencyIndex callIndex) {
+        FunctionManager fm = program.getFunctionManager();
+        List<CallAdjacencyIndex.CallSite> calls = (callIndex != null)
+            ? callIndex.callsFrom(f)
+            : CallAdjacencyIndex.scanCalls(program, f);
+
+        List<ResolvedCall> resolved = new ArrayList<>(calls.size());
+        for (CallAdjacencyIndex.CallSite call : calls) {
+            Address to = call.getTarget();
+            Function callee = null;
+            if (to != null) {
+                callee = fm.getFunctionAt(to);
+                if (callee == null) callee = fm.getFunctionContaining(to);
             }
+            resolved.add(new ResolvedCall(call, callee));
+        }
+        return resolved;
+    }
 
-            if (truncated) break;
+    /**
+     * Functions with a CALL reference that resolveCalls resolves to f (its entry point, or
+     * any address in its body not at another function's entry), ordered by call site,
+     * followed by thunks of f. Caller and callee expansion therefore see the same edges.
+     * Uses the reverse call index when it is built; until then only the references to
+     * f's entry point are read from the reference manager.
+     */
+    static List<CallerRef> resolveCallers(Program program, Function f, CallAdjacencyIndex callIndex) {
+        FunctionManager fm = program.getFunctionManager();
+        Address entry = f.getEntryPoint();
+        List<CallerRef> callers = new ArrayList<>();
+
+        List<CallAdjacencyIndex.CallSite> indexed = (callIndex != null) ? callIndex.callsInto(entry) : null;
+        if (indexed != null) {
+            for (CallAdjacencyIndex.CallSite call : indexed) {
+                Function caller = fm.getFunctionAt(call.getCaller());
+                if (caller != null) {
+                    callers.add(new CallerRef(call.getSite(), caller, false));
+                }
+            }
+        } else {
+            ReferenceIterator refs = program.getReferenceManager().getReferencesTo(entry);
+            while (refs.hasNext()) {
+                Reference ref = refs.next();
+                RefType rt = ref.getReferenceType();
+                if (rt == null || !rt.isCall()) continue;
+                Function caller = fm.getFunctionContaining(ref.getFromAddress());
+                if (caller != null) {
+                    callers.add(new CallerRef(ref.getFromAddress(), caller, false));
+                }
+            }
         }
+        // Same order whether or not the index was ready
+        callers.sort((a, b) -> a.site.compareTo(b.site));
 
-        // --- JSON serialize ---
-        return graphJson(program, roots, nodes.values(), edges, effectiveRootStrategy, maxDepth, maxNodes, truncated);
+        Address[] thunks = f.getFunctionThunkAddresses(false);
+        if (thunks != null) {
+            for (Address thunkEntry : thunks) {
+                Function thunk = fm.getFunctionAt(thunkEntry);
+                if (thunk != null) {
+                    callers.add(new CallerRef(thunkEntry, thunk, true));
+                }
+            }
+        }
+        return callers;
+    }
+
+    /**
+     * Expand queue[from, to) on the pool, one task per function. Results are returned in
+     * queue order, or null if the pool could not run them.
+     */
+    private static List<Expansion> expandLevelInParallel(
+            Program program,
+            Graph g,
+            IntList queue,
+            int from,
+            int to,
+            CallAdjacencyIndex callIndex,
+            ForkJoinPool pool
+    ) {
+        List<Callable<Expansion>> tasks = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int id = queue.get(i);
+            Function f = g.functionAt(id);
+            int expansion = g.expansionOf(id);
+            tasks.add(() -> expand(program, f, expansion, callIndex));
+        }
+
+        List<Expansion> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<Expansion> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | RejectedExecutionException e) {
+            Msg.debug(CallGraphBuilder.class, "Parallel call resolution failed, continuing sequentially: " + e.getMessage());
+            return null;
+        }
+        return results;
+    }
+
+    /**
+     * Heuristic roots used when the caller does not supply any: external entry points,
+     * common entry-ish names, then the lowest-address function.
+     */
+    public static List<Function> defaultRoots(Program program) {
+        if (program == null) {
+            return new ArrayList<>();
+        }
+        return resolveRoots(program, program.getFunctionManager(), program.getSymbolTable());
     }
 
     // ----------------------------
@@ -220,12 +552,6 @@ public final class CallGraphBuilder {
     // Node/Edge DTO
     // ----------------------------
 
-    private static final class WorkItem {
-        final Function fn;
-        final int depth;
-        WorkItem(Function fn, int depth) { this.fn = fn; this.depth = depth; }
-    }
-
     private static final class Node {
         final String id;        // stable identifier (address-based for internal; symbolic for external)
         final String name;
@@ -242,17 +568,140 @@ public final class CallGraphBuilder {
         }
     }
 
-    private static final class Edge {
-        final String from;
-        final String to;
-        final String site;   // callsite address (instruction address)
-        final String type;   // "call"
+    /**
+     * Address -> node id. Addresses in the default space are keyed by their offset in a
+     * primitive map; the rare addresses in other spaces fall back to a HashMap.
+     */
+    private static final class AddressIds {
+        final AddressSpace defaultSpace;
+        final LongIntMap byOffset = new LongIntMap();
+        final HashMap<Address, Integer> otherSpaces = new HashMap<>();
 
-        Edge(String from, String to, String site, String type) {
-            this.from = from;
-            this.to = to;
-            this.site = site;
-            this.type = type;
+        AddressIds(AddressSpace defaultSpace) {
+            this.defaultSpace = defaultSpace;
+        }
+
+        int get(Address a) {
+            if (a.getAddressSpace().equals(defaultSpace)) {
+                return byOffset.get(a.getOffset(), -1);
+            }
+            Integer id = otherSpaces.get(a);
+            return (id == null) ? -1 : id;
+        }
+
+        void put(Address a, int id) {
+            if (a.getAddressSpace().equals(defaultSpace)) {
+                byOffset.put(a.getOffset(), id);
+            } else {
+                otherSpaces.put(a, id);
+            }
+        }
+    }
+
+    /**
+     * Node and edge tables for one build. Function nodes keep only the Function and their
+     * BFS depth; their JSON strings are produced at serialization time. Edges are parallel
+     * arrays of node ids and call sites, deduplicated on (from, to, site offset).
+     */
+    private static final class Graph {
+        final AddressSpace defaultSpace;
+
+        // node table, indexed by node id
+        final ArrayList<Function> functions = new ArrayList<>();   // null for external/unresolved
+        final ArrayList<Node> unknowns = new ArrayList<>();        // null for functions
+        final IntList depths = new IntList();
+        final IntList expansions = new IntList();                  // EXPAND_* bits
+        final AddressIds functionIds;
+        final AddressIds unknownIds;      // keyed by call target
+        final AddressIds unresolvedIds;   // keyed by call site (no target)
+
+        // edge table
+        final IntList edgeFrom = new IntList();
+        final IntList edgeTo = new IntList();
+        final ArrayList<Address> edgeSites = new ArrayList<>();
+        final BitSet thunkEdges = new BitSet();
+        final LongPairSet edgeKeys = new LongPairSet();
+        final HashSet<String> otherSpaceEdgeKeys = new HashSet<>();
+
+        Graph(AddressSpace defaultSpace) {
+            this.defaultSpace = defaultSpace;
+            this.functionIds = new AddressIds(defaultSpace);
+            this.unknownIds = new AddressIds(defaultSpace);
+            this.unresolvedIds = new AddressIds(defaultSpace);
+        }
+
+        int nodeCount() {
+            return functions.size();
+        }
+
+        int edgeCount() {
+            return edgeFrom.size();
+        }
+
+        Function functionAt(int id) {
+            return functions.get(id);
+        }
+
+        Node unknownAt(int id) {
+            return unknowns.get(id);
+        }
+
+        int depthOf(int id) {
+            return depths.get(id);
+        }
+
+        int expansionOf(int id) {
+            return expansions.get(id);
+        }
+
+        int findFunction(Function f) {
+            return functionIds.get(f.getEntryPoint());
+        }
+
+        int findUnknown(Address to, Address site) {
+            return (to != null) ? unknownIds.get(to) : unresolvedIds.get(site);
+        }
+
+        int addFunction(Function f, int depth, int expansion) {
+            int id = newNode(f, null, depth, expansion);
+            functionIds.put(f.getEntryPoint(), id);
+            return id;
+        }
+
+        int addUnknown(Node node, Address to, Address site) {
+            int id = newNode(null, node, -1, 0);
+            if (to != null) {
+                unknownIds.put(to, id);
+            } else {
+                unresolvedIds.put(site, id);
+            }
+            return id;
+        }
+
+        private int newNode(Function f, Node node, int depth, int expansion) {
+            int id = functions.size();
+            functions.add(f);
+            unknowns.add(node);
+            depths.add(depth);
+            expansions.add(expansion);
+            return id;
+        }
+
+        /** @return true if the edge was new */
+        boolean addEdge(int from, int to, Address site, boolean thunk) {
+            long pair = ((long) from << 32) | (to & 0xffffffffL);
+            boolean added = site.getAddressSpace().equals(defaultSpace)
+                ? edgeKeys.add(pair, site.getOffset())
+                : otherSpaceEdgeKeys.add(pair + "@" + site.toString(true));
+            if (added) {
+                if (thunk) {
+                    thunkEdges.set(edgeFrom.size());
+                }
+                edgeFrom.add(from);
+                edgeTo.add(to);
+                edgeSites.add(site);
+            }
+            return added;
         }
     }
 
@@ -309,72 +758,245 @@ public final class CallGraphBuilder {
     // JSON serialization (no external deps)
     // ----------------------------
 
-    private static String graphJson(
-            Program program,
-            List<Function> roots,
-            Collection<Node> nodes,
-            List<Edge> edges,
-            String rootStrategy,
-            int maxDepth,
-            int maxNodes,
-            boolean truncated
-    ) {
-        StringBuilder sb = new StringBuilder(64 * 1024);
-        sb.append("{");
+    private static void writeGraphJson(Appendable out, Program program, Traversal t) throws IOException {
+        Graph g = t.graph;
+        int nodeCount = g.nodeCount();
+        int edgeCount = g.edgeCount();
+
+        out.append("{");
 
         // meta
-        sb.append("\"meta\":{");
-        sb.append("\"programName\":").append(jsonStr(safe(program.getName()))).append(",");
-        sb.append("\"imageBase\":").append(jsonStr(addrStr(program.getImageBase()))).append(",");
-        sb.append("\"rootStrategy\":").append(jsonStr(safe(rootStrategy))).append(",");
-        sb.append("\"maxDepth\":").append(maxDepth).append(",");
-        sb.append("\"maxNodes\":").append(maxNodes).append(",");
-        sb.append("\"nodeCount\":").append(nodes.size()).append(",");
-        sb.append("\"edgeCount\":").append(edges.size()).append(",");
-        sb.append("\"truncated\":").append(truncated).append(",");
-        sb.append("\"roots\":[");
-        for (int i = 0; i < roots.size(); i++) {
-            if (i > 0) sb.append(",");
-            sb.append(jsonStr(addrStr(roots.get(i).getEntryPoint())));
-        }
-        sb.append("]");
-        sb.append("},");
-
-        // nodes
-        sb.append("\"nodes\":[");
-        int ni = 0;
-        for (Node n : nodes) {
-            if (ni++ > 0) sb.append(",");
-            sb.append("{");
-            sb.append("\"id\":").append(jsonStr(n.id)).append(",");
-            sb.append("\"name\":").append(jsonStr(n.name)).append(",");
-            sb.append("\"addr\":").append(jsonStr(n.addr)).append(",");
-            sb.append("\"namespace\":").append(jsonStr(n.namespace)).append(",");
-            sb.append("\"external\":").append(n.external);
-            sb.append("}");
-        }
-        sb.append("],");
+        out.append("\"meta\":{");
+        writeMetaFields(out, program, t);
+        out.append("},");
+
+        // nodes; ids are formatted once here and reused by the edges
+        String[] ids = new String[nodeCount];
+        out.append("\"nodes\":[");
+        for (int i = 0; i < nodeCount; i++) {
+            if (i > 0) out.append(",");
+            Function f = g.functionAt(i);
+            Node n = (f != null) ? nodeForFunction(f) : g.unknownAt(i);
+            ids[i] = n.id;
+            out.append("{\"id\":"); appendJsonStr(out, n.id);
+            out.append(",\"name\":"); appendJsonStr(out, n.name);
+            out.append(",\"addr\":"); appendJsonStr(out, n.addr);
+            out.append(",\"namespace\":"); appendJsonStr(out, n.namespace);
+            out.append(",\"external\":").append(Boolean.toString(n.external));
+            out.append("}");
+        }
+        out.append("],");
 
         // edges
-        sb.append("\"edges\":[");
-        for (int i = 0; i < edges.size(); i++) {
-            if (i > 0) sb.append(",");
-            Edge e = edges.get(i);
-            sb.append("{");
-            sb.append("\"from\":").append(jsonStr(e.from)).append(",");
-            sb.append("\"to\":").append(jsonStr(e.to)).append(",");
-            sb.append("\"site\":").append(jsonStr(e.site)).append(",");
-            sb.append("\"type\":").append(jsonStr(e.type));
-            sb.append("}");
-        }
-        sb.append("]");
-
-        sb.append("}");
-        return sb.toString();
+        out.append("\"edges\":[");
+        for (int i = 0; i < edgeCount; i++) {
+            if (i > 0) out.append(",");
+            out.append("{\"from\":"); appendJsonStr(out, ids[g.edgeFrom.get(i)]);
+            out.append(",\"to\":"); appendJsonStr(out, ids[g.edgeTo.get(i)]);
+            out.append(",\"site\":"); appendJsonStr(out, addrStr(g.edgeSites.get(i)));
+            out.append(g.thunkEdges.get(i) ? ",\"type\":\"thunk\"}" : ",\"type\":\"call\"}");
+        }
+        out.append("]");
+
+        out.append("}");
+    }
+
+    private static void writeMetaFields(Appendable out, Program program, Traversal t) throws IOException {
+        out.append("\"programName\":"); appendJsonStr(out, safe(program.getName())); out.append(",");
+        out.append("\"imageBase\":"); appendJsonStr(out, addrStr(program.getImageBase())); out.append(",");
+        out.append("\"rootStrategy\":"); appendJsonStr(out, safe(t.rootStrategy)); out.append(",");
+        out.append("\"direction\":"); appendJsonStr(out, t.direction); out.append(",");
+        out.append("\"maxDepth\":").append(Integer.toString(t.maxDepth)).append(",");
+        out.append("\"maxNodes\":").append(Integer.toString(t.maxNodes)).append(",");
+        out.append("\"nodeCount\":").append(Integer.toString(t.graph.nodeCount())).append(",");
+        out.append("\"edgeCount\":").append(Integer.toString(t.graph.edgeCount())).append(",");
+        out.append("\"truncated\":").append(Boolean.toString(t.truncated)).append(",");
+        out.append("\"roots\":[");
+        for (int i = 0; i < t.roots.size(); i++) {
+            if (i > 0) out.append(",");
+            appendJsonStr(out, addrStr(t.roots.get(i).getEntryPoint()));
+        }
+        out.append("]");
+    }
+
+    // Members listed per recursion cluster; larger clusters report only their size beyond this
+    private static final int MAX_SCC_MEMBERS = 64;
+
+    private static void writeAnalyticsJson(
+            Appendable out,
+            Program program,
+            Traversal t,
+            int topN,
+            int betweennessSamples
+    ) throws IOException {
+        Graph g = t.graph;
+        int n = g.nodeCount();
+        CallGraphAnalytics.Csr calls = CallGraphAnalytics.Csr.fromEdges(n, g.edgeFrom, g.edgeTo);
+        CallGraphAnalytics.Csr callers = calls.reverse();
+
+        // --- recursion clusters: SCCs with more than one node, or a self call ---
+        int[] comp = CallGraphAnalytics.stronglyConnectedComponents(calls);
+        int compCount = 0;
+        for (int c : comp) {
+            compCount = Math.max(compCount, c + 1);
+        }
+        int[] compSize = new int[compCount];
+        for (int c : comp) {
+            compSize[c]++;
+        }
+        double[] recursiveScore = new double[compCount];
+        int recursiveCount = 0;
+        for (int v = 0; v < n; v++) {
+            int c = comp[v];
+            if (recursiveScore[c] == 0 && (compSize[c] > 1 || calls.hasEdge(v, v))) {
+                recursiveScore[c] = compSize[c];
+                recursiveCount++;
+            }
+        }
+        int[] topComponents = CallGraphAnalytics.topN(recursiveScore, topN);
+        IntList[] members = new IntList[compCount];
+        for (int c : topComponents) {
+            members[c] = new IntList();
+        }
+        for (int v = 0; v < n; v++) {
+            IntList list = members[comp[v]];
+            if (list != null && list.size() < MAX_SCC_MEMBERS) {
+                list.add(v);
+            }
+        }
+
+        // --- dominators along the traversal direction ---
+        boolean reversed = DIRECTION_CALLERS.equals(t.direction);
+        int[] rootIds = new int[t.roots.size()];
+        int rootCount = 0;
+        for (Function r : t.roots) {
+            int id = g.findFunction(r);
+            if (id >= 0) rootIds[rootCount++] = id;
+        }
+        CallGraphAnalytics.Dominators doms = reversed
+            ? CallGraphAnalytics.dominators(callers, calls, Arrays.copyOf(rootIds, rootCount))
+            : CallGraphAnalytics.dominators(calls, callers, Arrays.copyOf(rootIds, rootCount));
+        int[] dominated = doms.dominatedCounts();
+
+        // --- rankings ---
+        double[] fanIn = new double[n];
+        double[] fanOut = new double[n];
+        double[] dominatedScore = new double[n];
+        for (int v = 0; v < n; v++) {
+            int self = calls.hasEdge(v, v) ? 1 : 0;
+            fanOut[v] = calls.degree(v) - self;
+            fanIn[v] = callers.degree(v) - self;
+            dominatedScore[v] = dominated[v];
+        }
+        double[] betweenness = CallGraphAnalytics.betweenness(calls, callers, betweennessSamples);
+
+        // Node ids and names are formatted on first reference only
+        String[] ids = new String[n];
+        String[] names = new String[n];
+
+        out.append("{");
+
+        out.append("\"meta\":{");
+        writeMetaFields(out, program, t);
+        out.append(",\"mode\":\"analytics\"");
+        out.append(",\"callPairCount\":").append(Integer.toString(calls.edgeCount()));
+        out.append(",\"topN\":").append(Integer.toString(topN));
+        out.append(",\"betweennessSamples\":").append(Integer.toString(Math.min(betweennessSamples, n)));
+        out.append("},");
+
+        out.append("\"sccs\":{");
+        out.append("\"componentCount\":").append(Integer.toString(compCount));
+        out.append(",\"recursiveCount\":").append(Integer.toString(recursiveCount));
+        out.append(",\"recursive\":[");
+        for (int i = 0; i < topComponents.length; i++) {
+            if (i > 0) out.append(",");
+            int c = topComponents[i];
+            out.append("{\"size\":").append(Integer.toString(compSize[c]));
+            out.append(",\"members\":[");
+            IntList list = members[c];
+            for (int j = 0; j < list.size(); j++) {
+                if (j > 0) out.append(",");
+                appendNodeRef(out, g, list.get(j), ids, names);
+            }
+            out.append("]}");
+        }
+        out.append("]},");
+
+        out.append("\"dominators\":{");
+        out.append("\"reachable\":").append(Integer.toString(doms.reachableCount()));
+        out.append(",\"reversed\":").append(Boolean.toString(reversed));
+        out.append(",\"top\":[");
+        int[] topDominators = CallGraphAnalytics.topN(dominatedScore, topN);
+        for (int i = 0; i < topDominators.length; i++) {
+            if (i > 0) out.append(",");
+            int v = topDominators[i];
+            out.append("{\"node\":");
+            appendNodeRef(out, g, v, ids, names);
+            out.append(",\"idom\":");
+            if (doms.idom[v] >= 0) {
+                appendNodeRef(out, g, doms.idom[v], ids, names);
+            } else {
+                out.append("null");
+            }
+            out.append(",\"dominated\":").append(Integer.toString(dominated[v]));
+            out.append("}");
+        }
+        out.append("]},");
+
+        writeRanking(out, g, "fanIn", fanIn, topN, ids, names, false);
+        out.append(",");
+        writeRanking(out, g, "fanOut", fanOut, topN, ids, names, false);
+        out.append(",");
+        writeRanking(out, g, "betweenness", betweenness, topN, ids, names, true);
+
+        out.append("}");
+    }
+
+    private static void writeRanking(
+            Appendable out,
+            Graph g,
+            String key,
+            double[] score,
+            int topN,
+            String[] ids,
+            String[] names,
+            boolean fractional
+    ) throws IOException {
+        out.append("\"").append(key).append("\":[");
+        int[] top = CallGraphAnalytics.topN(score, topN);
+        for (int i = 0; i < top.length; i++) {
+            if (i > 0) out.append(",");
+            int v = top[i];
+            out.append("{\"node\":");
+            appendNodeRef(out, g, v, ids, names);
+            out.append(",\"score\":");
+            out.append(fractional ? String.format(Locale.ROOT, "%.3f", score[v]) : Long.toString((long) score[v]));
+            out.append("}");
+        }
+        out.append("]");
+    }
+
+    private static void appendNodeRef(Appendable out, Graph g, int v, String[] ids, String[] names) throws IOException {
+        if (ids[v] == null) {
+            Function f = g.functionAt(v);
+            Node node = (f != null) ? nodeForFunction(f) : g.unknownAt(v);
+            ids[v] = node.id;
+            names[v] = node.name;
+        }
+        out.append("{\"id\":"); appendJsonStr(out, ids[v]);
+        out.append(",\"name\":"); appendJsonStr(out, names[v]);
+        out.append("}");
     }
 
     private static String errorJson(String msg) {
-        return "{\"error\":" + jsonStr(msg) + "}";
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"error\":");
+        try {
+            appendJsonStr(sb, msg);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.append("}").toString();
     }
 
     private static int clamp(int v, int lo, int hi) {
@@ -389,27 +1011,29 @@ public final class CallGraphBuilder {
         return (a == null) ? "" : a.toString();
     }
 
-    private static String jsonStr(String s) {
-        if (s == null) return "\"\"";
-        StringBuilder out = new StringBuilder(s.length() + 16);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** Append s as a JSON string literal without building an intermediate String. */
+    private static void appendJsonStr(Appendable out, String s) throws IOException {
         out.append('"');
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            switch (c) {
-                case '\\': out.append("\\\\"); break;
-                case '"':  out.append("\\\""); break;
-                case '\n': out.append("\\n"); break;
-                case '\r': out.append("\\r"); break;
-                case '\t': out.append("\\t"); break;
-                default:
-                    if (c < 0x20) {
-                        out.append(String.format("\\u%04x", (int)c));
-                    } else {
-                        out.append(c);
-                    }
+        if (s != null) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch (c) {
+                    case '\\': out.append("\\\\"); break;
+                    case '"':  out.append("\\\""); break;
+                    case '\n': out.append("\\n"); break;
+                    case '\r': out.append("\\r"); break;
+                    case '\t': out.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            out.append("\\u00").append(HEX[(c >> 4) & 0xF]).append(HEX[c & 0xF]);
+                        } else {
+                            out.append(c);
+                        }
+                }
             }
         }
         out.append('"');
-        return out.toString();
     }
 }
@@ -0,0 +1,449 @@
+package com.MattUng;
+
+import ghidra.program.model.address.Address;
+import ghidra.program.model.listing.Function;
+import ghidra.program.model.listing.FunctionManager;
+import ghidra.program.model.listing.Program;
+
+import java.util.*;
+
+/**
+ * Reachability and shortest call chains between functions, returned as JSON.
+ *
+ * A bidirectional BFS (callees forward from the sources, callers backward from the
+ * targets, always growing the smaller frontier) answers whether any target is reachable
+ * and the length of the shortest chain. The k shortest chains are then enumerated by a
+ * DFS in increasing length, pruned with caller distances to the targets, so only nodes
+ * that lie on a chain of the current length are visited.
+ *
+ * Nodes are functions (internal or external); thunks count as one hop to the function
+ * they thunk, and a call into the middle of a body is an edge to the function containing
+ * it, in both search directions. Chains are simple, end at the first target they reach,
+ * and are distinct by function sequence; each hop reports its lowest call site.
+ */
+public final class CallPathFinder {
+
+    private static final int MAX_K = 50;
+    private static final int MAX_EXTRA_HOPS = 8;
+    // Upper bound on DFS steps while enumerating chains
+    private static final int MAX_ENUMERATION_STEPS = 500000;
+
+    private CallPathFinder() {}
+
+    private static final class Hop {
+        final Function to;
+        final Address site;
+        final boolean thunk;
+
+        Hop(Function to, Address site, boolean thunk) {
+            this.to = to;
+            this.site = site;
+            this.thunk = thunk;
+        }
+    }
+
+    /**
+     * @param sources    functions to start from
+     * @param targets    functions to reach (internal or external)
+     * @param k          number of chains to return
+     * @param maxDepth   longest chain considered, in calls
+     * @param extraHops  how much longer than the shortest chain the returned chains may be
+     * @param maxNodes   visited-node budget for each search phase
+     */
+    public static String findPaths(
+            Program program,
+            List<Function> sources,
+            List<Function> targets,
+            int k,
+            int maxDepth,
+            int extraHops,
+            int maxNodes,
+            CallAdjacencyIndex callIndex
+    ) {
+        if (program == null) {
+            return errorJson("No program loaded");
+        }
+        if (sources == null || sources.isEmpty()) {
+            return errorJson("No source functions");
+        }
+        if (targets == null || targets.isEmpty()) {
+            return errorJson("No target functions");
+        }
+        k = clamp(k, 1, MAX_K);
+        maxDepth = clamp(maxDepth, 0, 50);
+        extraHops = clamp(extraHops, 0, MAX_EXTRA_HOPS);
+        maxNodes = clamp(maxNodes, 1, 1000000);
+
+        Search search = new Search(program, targets, callIndex);
+
+        // --- phase 1: bidirectional BFS for the shortest chain length ---
+        int shortest = search.shortestLength(sources, maxDepth, maxNodes);
+        boolean truncated = search.truncated;
+
+        // --- phase 2: k shortest chains in increasing length ---
+        List<List<Hop>> paths = new ArrayList<>();
+        List<Function> pathStarts = new ArrayList<>();
+        if (shortest >= 0) {
+            int bound = Math.min(maxDepth, shortest + extraHops);
+            Map<Address, Integer> distToTarget = search.distancesToTargets(bound, maxNodes);
+            truncated |= search.truncated;
+            for (int length = shortest; length <= bound && paths.size() < k; length++) {
+                search.enumerate(sources, length, distToTarget, k, paths, pathStarts);
+                if (search.budgetExhausted) {
+                    truncated = true;
+                    break;
+                }
+            }
+        }
+
+        return pathsJson(program, sources, targets, shortest, k, maxDepth, truncated, paths, pathStarts);
+    }
+
+    // ----------------------------
+    // Search state
+    // ----------------------------
+
+    private static final class Search {
+        final Program program;
+        final FunctionManager fm;
+        final CallAdjacencyIndex callIndex;
+        final Map<Address, Function> targetsByEntry = new LinkedHashMap<>();
+        final Map<Address, List<Hop>> calleeCache = new HashMap<>();
+        final Map<Address, List<Hop>> callerCache = new HashMap<>();   // Hop.to is the caller
+        boolean truncated;
+        boolean budgetExhausted;
+        int steps;
+
+        Search(Program program, List<Function> targets, CallAdjacencyIndex callIndex) {
+            this.program = program;
+            this.fm = program.getFunctionManager();
+            this.callIndex = callIndex;
+            for (Function t : targets) {
+                targetsByEntry.put(t.getEntryPoint(), t);
+            }
+        }
+
+        boolean isTarget(Function f) {
+            return targetsByEntry.containsKey(f.getEntryPoint());
+        }
+
+        /**
+         * Callees of f, one hop per distinct callee at its first call site. A thunk's only
+         * callee is the function it thunks.
+         */
+        List<Hop> callees(Function f) {
+            List<Hop> cached = calleeCache.get(f.getEntryPoint());
+            if (cached != null) {
+                return cached;
+            }
+            LinkedHashMap<Address, Hop> hops = new LinkedHashMap<>();
+            if (f.isThunk()) {
+                Function thunked = f.getThunkedFunction(false);
+                if (thunked != null) {
+                    hops.put(thunked.getEntryPoint(), new Hop(thunked, f.getEntryPoint(), true));
+                }
+            }
+            for (CallGraphBuilder.ResolvedCall rc : CallGraphBuilder.resolveCalls(program, f, callIndex)) {
+                Function callee = rc.callee;
+                if (callee == null && rc.call.getTarget() != null) {
+                    // External targets can be referenced by address without a resolvable function
+                    callee = targetsByEntry.get(rc.call.getTarget());
+                }
+                if (callee != null && !hops.containsKey(callee.getEntryPoint())) {
+                    hops.put(callee.getEntryPoint(), new Hop(callee, rc.call.getSite(), false));
+                }
+            }
+            List<Hop> result = new ArrayList<>(hops.values());
+            calleeCache.put(f.getEntryPoint(), result);
+            return result;
+        }
+
+        /** Callers of f (including thunks of f), one hop per distinct caller. */
+        List<Hop> callers(Function f) {
+            List<Hop> cached = callerCache.get(f.getEntryPoint());
+            if (cached != null) {
+                return cached;
+            }
+            LinkedHashMap<Address, Hop> hops = new LinkedHashMap<>();
+            for (CallGraphBuilder.CallerRef cr : CallGraphBuilder.resolveCallers(program, f, callIndex)) {
+                if (!hops.containsKey(cr.caller.getEntryPoint())) {
+                    hops.put(cr.caller.getEntryPoint(), new Hop(cr.caller, cr.site, cr.thunk));
+                }
+            }
+            List<Hop> result = new ArrayList<>(hops.values());
+            callerCache.put(f.getEntryPoint(), result);
+            return result;
+        }
+
+        /**
+         * Bidirectional BFS. @return the shortest chain length, or -1 if no target is
+         * reachable within maxDepth (or the budget ran out first).
+         */
+        int shortestLength(List<Function> sources, int maxDepth, int maxNodes) {
+            Map<Address, Integer> distS = new HashMap<>();
+            Map<Address, Integer> distT = new HashMap<>();
+            List<Function> frontS = new ArrayList<>();
+            List<Function> frontT = new ArrayList<>();
+
+            for (Function s : sources) {
+                if (isTarget(s)) {
+                    return 0;
+                }
+                if (distS.put(s.getEntryPoint(), 0) == null) {
+                    frontS.add(s);
+                }
+            }
+            for (Function t : targetsByEntry.values()) {
+                distT.put(t.getEntryPoint(), 0);
+                frontT.add(t);
+            }
+
+            int depthS = 0;
+            int depthT = 0;
+            int best = Integer.MAX_VALUE;
+            while (!frontS.isEmpty() && !frontT.isEmpty() && depthS + depthT < maxDepth) {
+                boolean forward = frontS.size() <= frontT.size();
+                List<Function> next = new ArrayList<>();
+                if (forward) {
+                    for (Function f : frontS) {
+                        for (Hop hop : callees(f)) {
+                            Address a = hop.to.getEntryPoint();
+                            if (distS.containsKey(a)) continue;
+                            distS.put(a, depthS + 1);
+                            next.add(hop.to);
+                            Integer other = distT.get(a);
+                            if (other != null) {
+                                best = Math.min(best, depthS + 1 + other);
+                            }
+                        }
+                    }
+                    frontS = next;
+                    depthS++;
+                } else {
+                    for (Function f : frontT) {
+                        for (Hop hop : callers(f)) {
+                            Address a = hop.to.getEntryPoint();
+                            if (distT.containsKey(a)) continue;
+                            distT.put(a, depthT + 1);
+                            next.add(hop.to);
+                            Integer other = distS.get(a);
+                            if (other != null) {
+                                best = Math.min(best, depthT + 1 + other);
+                            }
+                        }
+                    }
+                    frontT = next;
+                    depthT++;
+                }
+                // Once a level produces a meeting point, no later level can do better
+                if (best != Integer.MAX_VALUE) {
+                    return (best <= maxDepth) ? best : -1;
+                }
+                if (distS.size() + distT.size() > maxNodes) {
+                    truncated = true;
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        /** Backward BFS from the targets: caller distance to the nearest target, up to bound. */
+        Map<Address, Integer> distancesToTargets(int bound, int maxNodes) {
+            Map<Address, Integer> dist = new HashMap<>();
+            List<Function> frontier = new ArrayList<>();
+            for (Function t : targetsByEntry.values()) {
+                dist.put(t.getEntryPoint(), 0);
+                frontier.add(t);
+            }
+            for (int depth = 0; depth < bound && !frontier.isEmpty(); depth++) {
+                List<Function> next = new ArrayList<>();
+                for (Function f : frontier) {
+                    for (Hop hop : callers(f)) {
+                        Address a = hop.to.getEntryPoint();
+                        if (dist.containsKey(a)) continue;
+                        dist.put(a, depth + 1);
+                        next.add(hop.to);
+                    }
+                }
+                frontier = next;
+                if (dist.size() > maxNodes) {
+                    truncated = true;
+                    break;
+                }
+            }
+            return dist;
+        }
+
+        /**
+         * Append chains of exactly the given length, from each source in order, until
+         * k chains have been collected in total.
+         */
+        void enumerate(List<Function> sources, int length, Map<Address, Integer> distToTarget, int k,
+                       List<List<Hop>> paths, List<Function> pathStarts) {
+            for (Function s : sources) {
+                if (paths.size() >= k || budgetExhausted) return;
+                Integer d = distToTarget.get(s.getEntryPoint());
+                if (d == null || d > length) continue;
+                Set<Address> onPath = new HashSet<>();
+                onPath.add(s.getEntryPoint());
+                dfs(s, length, distToTarget, k, new ArrayList<>(), onPath, paths, pathStarts, s);
+            }
+        }
+
+        private void dfs(Function node, int remaining, Map<Address, Integer> distToTarget, int k,
+                         List<Hop> prefix, Set<Address> onPath,
+                         List<List<Hop>> paths, List<Function> pathStarts, Function start) {
+            if (paths.size() >= k) return;
+            if (++steps > MAX_ENUMERATION_STEPS) {
+                budgetExhausted = true;
+                return;
+            }
+            if (remaining == 0) {
+                if (isTarget(node)) {
+                    paths.add(new ArrayList<>(prefix));
+                    pathStarts.add(start);
+                }
+                return;
+            }
+            if (isTarget(node)) {
+                // chains end at the first target they reach
+                return;
+            }
+            for (Hop hop : callees(node)) {
+                Address a = hop.to.getEntryPoint();
+                Integer d = distToTarget.get(a);
+                if (d == null || d > remaining - 1 || onPath.contains(a)) continue;
+                onPath.add(a);
+                prefix.add(hop);
+                dfs(hop.to, remaining - 1, distToTarget, k, prefix, onPath, paths, pathStarts, start);
+                prefix.remove(prefix.size() - 1);
+                onPath.remove(a);
+                if (paths.size() >= k || budgetExhausted) return;
+            }
+        }
+    }
+
+    // ----------------------------
+    // JSON serialization (no external deps)
+    // ----------------------------
+
+    private static String pathsJson(
+            Program program,
+            List<Function> sources,
+            List<Function> targets,
+            int shortest,
+            int k,
+            int maxDepth,
+            boolean truncated,
+            List<List<Hop>> paths,
+            List<Function> pathStarts
+    ) {
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("{");
+        sb.append("\"meta\":{");
+        sb.append("\"programName\":").append(jsonStr(safe(program.getName()))).append(",");
+        sb.append("\"k\":").append(k).append(",");
+        sb.append("\"maxDepth\":").append(maxDepth).append(",");
+        sb.append("\"truncated\":").append(truncated);
+        sb.append("},");
+
+        sb.append("\"sources\":[");
+        appendFunctions(sb, sources);
+        sb.append("],");
+        sb.append("\"targets\":[");
+        appendFunctions(sb, targets);
+        sb.append("],");
+
+        sb.append("\"reachable\":").append(shortest >= 0).append(",");
+        sb.append("\"shortestLength\":").append(shortest).append(",");
+
+        sb.append("\"paths\":[");
+        for (int p = 0; p < paths.size(); p++) {
+            if (p > 0) sb.append(",");
+            List<Hop> hops = paths.get(p);
+            Function from = pathStarts.get(p);
+            sb.append("{");
+            sb.append("\"length\":").append(hops.size()).append(",");
+            sb.append("\"functions\":[");
+            appendFunction(sb, from);
+            for (Hop hop : hops) {
+                sb.append(",");
+                appendFunction(sb, hop.to);
+            }
+            sb.append("],");
+            sb.append("\"calls\":[");
+            for (int i = 0; i < hops.size(); i++) {
+                if (i > 0) sb.append(",");
+                Hop hop = hops.get(i);
+                sb.append("{");
+                sb.append("\"from\":").append(jsonStr(addrStr(from.getEntryPoint()))).append(",");
+                sb.append("\"to\":").append(jsonStr(addrStr(hop.to.getEntryPoint()))).append(",");
+                sb.append("\"site\":").append(jsonStr(addrStr(hop.site))).append(",");
+                sb.append("\"type\":").append(jsonStr(hop.thunk ? "thunk" : "call"));
+                sb.append("}");
+                from = hop.to;
+            }
+            sb.append("]");
+            sb.append("}");
+        }
+        sb.append("]");
+
+        sb.append("}");
+        return sb.toString();
+    }
+
+    private static void appendFunctions(StringBuilder sb, List<Function> functions) {
+        for (int i = 0; i < functions.size(); i++) {
+            if (i > 0) sb.append(",");
+            appendFunction(sb, functions.get(i));
+        }
+    }
+
+    private static void appendFunction(StringBuilder sb, Function f) {
+        sb.append("{");
+        sb.append("\"addr\":").append(jsonStr(addrStr(f.getEntryPoint()))).append(",");
+        sb.append("\"name\":").append(jsonStr(safe(f.getName()))).append(",");
+        sb.append("\"external\":").append(f.isExternal());
+        sb.append("}");
+    }
+
+    private static String errorJson(String msg) {
+        return "{\"error\":" + jsonStr(msg) + "}";
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+
+    private static String safe(String s) {
+        return (s == null) ? "" : s;
+    }
+
+    private static String addrStr(Address a) {
+        return (a == null) ? "" : a.toString();
+    }
+
+    private static String jsonStr(String s) {
+        if (s == null) return "\"\"";
+        StringBuilder out = new StringBuilder(s.length() + 16);
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\\': out.append("\\\\"); break;
+                case '"':  out.append("\\\""); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int)c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+        return out.toString();
+    }
+}
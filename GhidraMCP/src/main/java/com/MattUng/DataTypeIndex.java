@@ -0,0 +1,209 @@
+package com.MattUng;
+
+import ghidra.program.model.data.CategoryPath;
+import ghidra.program.model.data.DataType;
+import ghidra.program.model.data.DataTypeManager;
+import ghidra.program.model.data.DataTypeManagerChangeListenerAdapter;
+import ghidra.program.model.data.DataTypePath;
+import ghidra.program.model.data.PointerDataType;
+
+import java.util.*;
+
+/**
+ * Case-insensitive name to data type lookup for one DataTypeManager, replacing a walk
+ * over getAllDataTypes() per lookup.
+ *
+ * The index is built on first use and kept current from DataTypeManager change events:
+ * type add/remove/rename/move/replace update single entries, while category moves and
+ * renames, undo/redo and architecture changes drop the index so it is rebuilt lazily.
+ * Entries are stored as paths and re-resolved on lookup, so a stale entry is skipped
+ * rather than returning a deleted type. Change events are delivered synchronously with
+ * the edit, so a name the index does not know is a miss; there is no fallback scan.
+ */
+public final class DataTypeIndex extends DataTypeManagerChangeListenerAdapter {
+
+    private final DataTypeManager dtm;
+    // Lower-cased name -> paths, in getAllDataTypes() order
+    private Map<String, List<DataTypePath>> pathsByName;
+    private boolean listening;
+    private boolean disposed;
+
+    public DataTypeIndex(DataTypeManager dtm) {
+        this.dtm = dtm;
+    }
+
+    /**
+     * Find a data type by name. An exact-case match wins over a case-insensitive one; among
+     * equal matches the first in manager order is returned. Trailing pointer suffixes
+     * ("char *", "DWORD**") resolve the base name and wrap it in pointers.
+     * @return the data type, or null if no type has that name
+     */
+    public DataType find(String typeName) {
+        if (typeName == null) {
+            return null;
+        }
+        String name = typeName.trim();
+        int pointerDepth = 0;
+        while (name.endsWith("*")) {
+            pointerDepth++;
+            name = name.substring(0, name.length() - 1).trim();
+        }
+        if (name.isEmpty()) {
+            return null;
+        }
+
+        DataType dataType = findBase(name);
+        if (dataType == null) {
+            return null;
+        }
+        for (int i = 0; i < pointerDepth; i++) {
+            dataType = new PointerDataType(dataType, dtm);
+        }
+        return dataType;
+    }
+
+    public synchronized void dispose() {
+        disposed = true;
+        if (listening) {
+            dtm.removeDataTypeManagerListener(this);
+            listening = false;
+        }
+        pathsByName = null;
+    }
+
+    private DataType findBase(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        List<DataTypePath> candidates;
+        synchronized (this) {
+            if (pathsByName == null) {
+                rebuild();
+            }
+            List<DataTypePath> indexed = pathsByName.get(key);
+            candidates = (indexed == null) ? Collections.emptyList() : new ArrayList<>(indexed);
+        }
+
+        DataType caseInsensitive = null;
+        for (DataTypePath path : candidates) {
+            DataType dt = dtm.getDataType(path);
+            if (dt == null || !dt.getName().equalsIgnoreCase(name)) {
+                continue;
+            }
+            if (dt.getName().equals(name)) {
+                return dt;
+            }
+            if (caseInsensitive == null) {
+                caseInsensitive = dt;
+            }
+        }
+        return caseInsensitive;
+    }
+
+    // ----------------------------
+    // Change events
+    // ----------------------------
+
+    @Override
+    public void dataTypeAdded(DataTypeManager manager, DataTypePath path) {
+        add(path);
+    }
+
+    @Override
+    public void dataTypeRemoved(DataTypeManager manager, DataTypePath path) {
+        remove(path);
+    }
+
+    @Override
+    public void dataTypeRenamed(DataTypeManager manager, DataTypePath oldPath, DataTypePath newPath) {
+        remove(oldPath);
+        add(newPath);
+    }
+
+    @Override
+    public void dataTypeMoved(DataTypeManager manager, DataTypePath oldPath, DataTypePath newPath) {
+        remove(oldPath);
+        add(newPath);
+    }
+
+    @Override
+    public void dataTypeReplaced(DataTypeManager manager, DataTypePath oldPath, DataTypePath newPath,
+                                 DataType newDataType) {
+        remove(oldPath);
+        add(newPath);
+    }
+
+    @Override
+    public void categoryRemoved(DataTypeManager manager, CategoryPath path) {
+        invalidate();
+    }
+
+    @Override
+    public void categoryRenamed(DataTypeManager manager, CategoryPath oldPath, CategoryPath newPath) {
+        invalidate();
+    }
+
+    @Override
+    public void categoryMoved(DataTypeManager manager, CategoryPath oldPath, CategoryPath newPath) {
+        invalidate();
+    }
+
+    @Override
+    public void programArchitectureChanged(DataTypeManager manager) {
+        invalidate();
+    }
+
+    @Override
+    public void restored(DataTypeManager manager) {
+        invalidate();
+    }
+
+    // ----------------------------
+    // Index maintenance
+    // ----------------------------
+
+    private synchronized void invalidate() {
+        pathsByName = null;
+    }
+
+    private synchronized void add(DataTypePath path) {
+        if (pathsByName == null || path == null) {
+            return;
+        }
+        List<DataTypePath> paths = pathsByName.computeIfAbsent(
+            path.getDataTypeName().toLowerCase(Locale.ROOT), ignored -> new ArrayList<>(1));
+        if (!paths.contains(path)) {
+            paths.add(path);
+        }
+    }
+
+    private synchronized void remove(DataTypePath path) {
+        if (pathsByName == null || path == null) {
+            return;
+        }
+        String key = path.getDataTypeName().toLowerCase(Locale.ROOT);
+        List<DataTypePath> paths = pathsByName.get(key);
+        if (paths == null) {
+            return;
+        }
+        paths.remove(path);
+        if (paths.isEmpty()) {
+            pathsByName.remove(key);
+        }
+    }
+
+    /** Caller holds the monitor. */
+    private void rebuild() {
+        // Listen before walking so no change made during the walk is missed
+        if (!listening && !disposed) {
+            dtm.addDataTypeManagerListener(this);
+            listening = true;
+        }
+        Map<String, List<DataTypePath>> byName = new HashMap<>();
+        Iterator<DataType> allTypes = dtm.getAllDataTypes();
+        while (allTypes.hasNext()) {
+            DataType dt = allTypes.next();
+            byName.computeIfAbsent(dt.getName().toLowerCase(Locale.ROOT), ignored -> new ArrayList<>(1))
+                .add(dt.getDataTypePath());
+        }
+        pathsByName = byName;
+    }
+}
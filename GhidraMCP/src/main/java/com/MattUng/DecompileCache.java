@@ -0,0 +1,195 @@
+package com.MattUng;
+
+import ghidra.program.model.address.Address;
+import ghidra.program.model.listing.Program;
+import ghidra.program.model.pcode.HighFunction;
+import ghidra.program.model.pcode.PcodeOpAST;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of decompiler output.
+ *
+ * Entries are keyed by program and function entry point and remember the
+ * program modification number they were produced at. A lookup made at a
+ * different modification number is treated as a miss and drops the stale
+ * entry, so any edit to the program invalidates what was cached before it.
+ *
+ * Eviction is least-recently-used, bounded both by entry count and by the
+ * total weight of the cached entries. An entry weighs the length of its C text
+ * plus an estimate for its HighFunction, which holds the whole p-code graph and
+ * is usually far larger than the text: {@link #PCODE_OP_WEIGHT} per p-code op.
+ */
+public final class DecompileCache {
+
+    /** Weight of one p-code op of a cached HighFunction, in C text characters. */
+    public static final long PCODE_OP_WEIGHT = 128L;
+
+    public static final class Entry {
+        private final String c;
+        private final HighFunction highFunction;
+        private final long weight;
+
+        public Entry(String c, HighFunction highFunction) {
+            this.c = (c == null) ? "" : c;
+            this.highFunction = highFunction;
+            this.weight = this.c.length() + PCODE_OP_WEIGHT * countPcodeOps(highFunction);
+        }
+
+        private static long countPcodeOps(HighFunction highFunction) {
+            if (highFunction == null) {
+                return 0L;
+            }
+            long ops = 0L;
+            Iterator<PcodeOpAST> it = highFunction.getPcodeOps();
+            while (it.hasNext()) {
+                it.next();
+                ops++;
+            }
+            return ops;
+        }
+
+        public String getC() {
+            return c;
+        }
+
+        public HighFunction getHighFunction() {
+            return highFunction;
+        }
+    }
+
+    private static final class Key {
+        final Program program;
+        final Address entry;
+
+        Key(Program program, Address entry) {
+            this.program = program;
+            this.entry = entry;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return program == other.program && entry.equals(other.entry);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(program) + entry.hashCode();
+        }
+    }
+
+    private static final class Slot {
+        final long modificationNumber;
+        final Entry entry;
+
+        Slot(long modificationNumber, Entry entry) {
+            this.modificationNumber = modificationNumber;
+            this.entry = entry;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Slot> slots = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxWeight bound on the total entry weight, in C text characters (see
+     *                  {@link #PCODE_OP_WEIGHT})
+     */
+    public DecompileCache(int maxEntries, long maxWeight) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxWeight = Math.max(1L, maxWeight);
+    }
+
+    public synchronized Entry get(Program program, Address entry, long modificationNumber) {
+        if (program == null || entry == null) {
+            return null;
+        }
+        Key key = new Key(program, entry);
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (slot.modificationNumber != modificationNumber) {
+            removeSlot(key);
+            stale.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return slot.entry;
+    }
+
+    public synchronized void put(Program program, Address entry, long modificationNumber, Entry value) {
+        if (program == null || entry == null || value == null) {
+            return;
+        }
+        Key key = new Key(program, entry);
+        removeSlot(key);
+        slots.put(key, new Slot(modificationNumber, value));
+        cachedWeight += value.weight;
+        trim();
+    }
+
+    public synchronized void invalidateProgram(Program program) {
+        Iterator<Map.Entry<Key, Slot>> it = slots.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Slot> e = it.next();
+            if (e.getKey().program == program) {
+                cachedWeight -= e.getValue().entry.weight;
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        slots.clear();
+        cachedWeight = 0;
+    }
+
+    public synchronized String statsJson() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        double hitRate = lookups == 0 ? 0.0 : (double) hitCount / (double) lookups;
+        return "{"
+            + "\"entries\":" + slots.size() + ","
+            + "\"maxEntries\":" + maxEntries + ","
+            + "\"cachedWeight\":" + cachedWeight + ","
+            + "\"maxWeight\":" + maxWeight + ","
+            + "\"hits\":" + hitCount + ","
+            + "\"misses\":" + missCount + ","
+            + "\"staleMisses\":" + stale.get() + ","
+            + "\"evictions\":" + evictions.get() + ","
+            + "\"hitRate\":" + String.format(Locale.ROOT, "%.4f", hitRate)
+            + "}";
+    }
+
+    private void removeSlot(Key key) {
+        Slot previous = slots.remove(key);
+        if (previous != null) {
+            cachedWeight -= previous.entry.weight;
+        }
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Key, Slot>> it = slots.entrySet().iterator();
+        while ((slots.size() > maxEntries || cachedWeight > maxWeight) && it.hasNext()) {
+            Map.Entry<Key, Slot> eldest = it.next();
+            cachedWeight -= eldest.getValue().entry.weight;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.MattUng;
+
+import ghidra.app.decompiler.DecompInterface;
+import ghidra.app.decompiler.DecompileResults;
+import ghidra.program.model.listing.Function;
+import ghidra.program.model.listing.Program;
+import ghidra.util.Msg;
+import ghidra.util.task.TaskMonitor;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-program pool of opened DecompInterface instances.
+ *
+ * Starting a decompiler means launching the native decompiler process and
+ * shipping the program's language/spec to it, so the HTTP endpoints borrow an
+ * already-opened instance instead of creating (and leaking) one per request.
+ *
+ * Each program gets at most maxPerProgram live decompilers; callers beyond that
+ * wait for one to be returned. Instances left idle longer than idleTimeoutMillis
+ * are disposed in the background, and everything belonging to a program is
+ * disposed when the program closes.
+ */
+public final class DecompilerPool {
+
+    private final int maxPerProgram;
+    private final long idleTimeoutMillis;
+    private final Map<Program, ProgramPool> pools = new HashMap<>();
+    private final ScheduledExecutorService evictor;
+    private boolean disposed;
+
+    public DecompilerPool(int maxPerProgram, long idleTimeoutMillis) {
+        this.maxPerProgram = Math.max(1, maxPerProgram);
+        this.idleTimeoutMillis = Math.max(1000L, idleTimeoutMillis);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "GhidraMCP-Decompiler-Evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, this.idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Decompile a function on a pooled decompiler for its program.
+     * @return the decompiler results, or null if the pool is shut down, the wait was
+     *         interrupted, or no decompiler could be opened for the program
+     */
+    public DecompileResults decompile(Program program, Function function, int timeoutSecs, TaskMonitor monitor) {
+        ProgramPool pool = poolFor(program);
+        if (pool == null) {
+            return null;
+        }
+
+        PooledDecompiler pooled;
+        try {
+            pooled = pool.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (RuntimeException e) {
+            Msg.error(this, "Failed to open pooled decompiler for " + program.getName(), e);
+            return null;
+        }
+
+        boolean reusable = false;
+        try {
+            DecompileResults results = pooled.decomp.decompileFunction(function, timeoutSecs, monitor);
+            reusable = true;
+            return results;
+        } finally {
+            pool.release(pooled, reusable);
+        }
+    }
+
+    /**
+     * Dispose every decompiler opened for the given program. In-flight decompilers
+     * are disposed when they are returned.
+     */
+    public void disposeProgram(Program program) {
+        ProgramPool pool;
+        synchronized (this) {
+            pool = pools.remove(program);
+        }
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    public void dispose() {
+        List<ProgramPool> toClose;
+        synchronized (this) {
+            disposed = true;
+            toClose = new ArrayList<>(pools.values());
+            pools.clear();
+        }
+        evictor.shutdownNow();
+        for (ProgramPool pool : toClose) {
+            pool.close();
+        }
+    }
+
+    private synchronized ProgramPool poolFor(Program program) {
+        if (disposed || program == null || program.isClosed()) {
+            return null;
+        }
+        return pools.computeIfAbsent(program, ProgramPool::new);
+    }
+
+    private void evictIdle() {
+        List<ProgramPool> snapshot;
+        List<Program> closedPrograms = new ArrayList<>();
+        synchronized (this) {
+            snapshot = new ArrayList<>(pools.values());
+        }
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        for (ProgramPool pool : snapshot) {
+            if (pool.program.isClosed()) {
+                closedPrograms.add(pool.program);
+                continue;
+            }
+            pool.evictIdleBefore(cutoff);
+        }
+        for (Program program : closedPrograms) {
+            disposeProgram(program);
+        }
+    }
+
+    private static void disposeQuietly(PooledDecompiler pooled) {
+        try {
+            pooled.decomp.dispose();
+        } catch (Exception e) {
+            Msg.debug(DecompilerPool.class, "Failed to dispose pooled decompiler: " + e.getMessage());
+        }
+    }
+
+    // ----------------------------
+    // Per-program state
+    // ----------------------------
+
+    private static final class PooledDecompiler {
+        final DecompInterface decomp;
+        long lastUsedMillis;
+
+        PooledDecompiler(DecompInterface decomp) {
+            this.decomp = decomp;
+            this.lastUsedMillis = System.currentTimeMillis();
+        }
+    }
+
+    private final class ProgramPool {
+        final Program program;
+        final Semaphore permits;
+        // Most recently returned decompilers live at the tail; eviction trims the head.
+        final ArrayDeque<PooledDecompiler> idle = new ArrayDeque<>();
+        boolean closed;
+
+        ProgramPool(Program program) {
+            this.program = program;
+            this.permits = new Semaphore(maxPerProgram, true);
+        }
+
+        PooledDecompiler acquire() throws InterruptedException {
+            permits.acquire();
+            synchronized (this) {
+                PooledDecompiler pooled = idle.pollLast();
+                if (pooled != null) {
+                    return pooled;
+                }
+            }
+            try {
+                return open();
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        void release(PooledDecompiler pooled, boolean reusable) {
+            boolean keep;
+            synchronized (this) {
+                keep = reusable && !closed;
+                if (keep) {
+                    pooled.lastUsedMillis = System.currentTimeMillis();
+                    idle.addLast(pooled);
+                }
+            }
+            if (!keep) {
+                disposeQuietly(pooled);
+            }
+            permits.release();
+        }
+
+        void evictIdleBefore(long cutoffMillis) {
+            List<PooledDecompiler> expired = new ArrayList<>();
+            synchronized (this) {
+                while (!idle.isEmpty() && idle.peekFirst().lastUsedMillis < cutoffMillis) {
+                    expired.add(idle.pollFirst());
+                }
+            }
+            for (PooledDecompiler pooled : expired) {
+                disposeQuietly(pooled);
+            }
+        }
+
+        void close() {
+            List<PooledDecompiler> toDispose;
+            synchronized (this) {
+                closed = true;
+                toDispose = new ArrayList<>(idle);
+                idle.clear();
+            }
+            for (PooledDecompiler pooled : toDispose) {
+                disposeQuietly(pooled);
+            }
+        }
+
+        private PooledDecompiler open() {
+            DecompInterface decomp = new DecompInterface();
+            decomp.setSimplificationStyle("decompile");
+            if (!decomp.openProgram(program)) {
+                String message = decomp.getLastMessage();
+                decomp.dispose();
+                throw new IllegalStateException("Decompiler could not open program: " + (message == null ? "" : message));
+            }
+            return new PooledDecompiler(decomp);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.MattUng;
+
+import ghidra.framework.model.DomainObjectChangeRecord;
+import ghidra.framework.model.DomainObjectChangedEvent;
+import ghidra.framework.model.DomainObjectEvent;
+import ghidra.framework.model.DomainObjectListener;
+import ghidra.framework.model.EventType;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.listing.Function;
+import ghidra.program.model.listing.FunctionManager;
+import ghidra.program.model.listing.Program;
+import ghidra.program.model.symbol.Symbol;
+import ghidra.program.model.symbol.SymbolIterator;
+import ghidra.program.model.symbol.SymbolType;
+import ghidra.program.util.ProgramChangeRecord;
+import ghidra.program.util.ProgramEvent;
+
+import java.util.*;
+
+/**
+ * Name to function lookup for one program, covering the same (non-external)
+ * functions as FunctionManager.getFunctions(true).
+ *
+ * The index is built on first use and then kept current from program change
+ * events: function add/remove, symbol rename and primary-symbol change events mark
+ * the affected entry point dirty, and dirty entries are re-read on the next lookup.
+ * Undo/redo and large change bursts drop the index so it is rebuilt lazily.
+ *
+ * Change events are delivered with a short delay, so a lookup that misses asks the
+ * symbol table's name index for function symbols of that name (e.g. a function renamed
+ * just before the call) and marks what it finds dirty. That needs neither a scan of the
+ * function manager nor an event flush, which would wait on the Swing thread.
+ */
+public final class FunctionNameIndex implements DomainObjectListener {
+
+    private static final int MAX_DIRTY_BEFORE_REBUILD = 4096;
+
+    private final Program program;
+    private Map<String, List<Address>> entriesByName;
+    private final Map<Address, String> nameByEntry = new HashMap<>();
+    private final Set<Address> dirtyEntries = new HashSet<>();
+    private boolean listening;
+    private boolean disposed;
+
+    public FunctionNameIndex(Program program) {
+        this.program = program;
+    }
+
+    /**
+     * All non-external functions with the given name, in entry address order.
+     */
+    public List<Function> find(String name) {
+        if (name == null) {
+            return new ArrayList<>();
+        }
+        List<Function> matches = lookup(name);
+        return matches.isEmpty() ? lookupSymbols(name) : matches;
+    }
+
+    /**
+     * The lowest-address function with the given name, or null.
+     */
+    public Function findFirst(String name) {
+        List<Function> matches = find(name);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * Look name up in the index, marking entries whose function has gone or been renamed
+     * dirty.
+     */
+    private List<Function> lookup(String name) {
+        List<Address> entries;
+        synchronized (this) {
+            syncIndex();
+            List<Address> indexed = entriesByName.get(name);
+            entries = (indexed == null) ? Collections.emptyList() : new ArrayList<>(indexed);
+        }
+
+        FunctionManager fm = program.getFunctionManager();
+        List<Function> matches = new ArrayList<>(entries.size());
+        for (Address entry : entries) {
+            Function func = fm.getFunctionAt(entry);
+            if (func != null && name.equals(func.getName())) {
+                matches.add(func);
+            } else {
+                markDirty(entry);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Function symbols named name, from the symbol table's own name index, for changes
+     * whose events have not reached the index yet. Their entries are marked dirty so the
+     * index catches up on the next lookup.
+     */
+    private List<Function> lookupSymbols(String name) {
+        FunctionManager fm = program.getFunctionManager();
+        List<Function> matches = new ArrayList<>();
+        SymbolIterator symbols = program.getSymbolTable().getSymbols(name);
+        while (symbols.hasNext()) {
+            Symbol symbol = symbols.next();
+            if (symbol.getSymbolType() != SymbolType.FUNCTION || symbol.isExternal()) {
+                continue;
+            }
+            Function func = fm.getFunctionAt(symbol.getAddress());
+            if (func != null && name.equals(func.getName())) {
+                matches.add(func);
+                markDirty(func.getEntryPoint());
+            }
+        }
+        matches.sort((a, b) -> a.getEntryPoint().compareTo(b.getEntryPoint()));
+        return matches;
+    }
+
+    public synchronized void dispose() {
+        disposed = true;
+        if (listening) {
+            program.removeListener(this);
+            listening = false;
+        }
+        entriesByName = null;
+        nameByEntry.clear();
+        dirtyEntries.clear();
+    }
+
+    @Override
+    public void domainObjectChanged(DomainObjectChangedEvent ev) {
+        if (ev.contains(DomainObjectEvent.RESTORED)) {
+            invalidate();
+            return;
+        }
+        if (!ev.contains(ProgramEvent.FUNCTION_ADDED, ProgramEvent.FUNCTION_REMOVED,
+                ProgramEvent.SYMBOL_RENAMED, ProgramEvent.SYMBOL_PRIMARY_STATE_CHANGED)) {
+            return;
+        }
+        for (int i = 0; i < ev.numRecords(); i++) {
+            DomainObjectChangeRecord record = ev.getChangeRecord(i);
+            EventType type = record.getEventType();
+            if (type != ProgramEvent.FUNCTION_ADDED &&
+                type != ProgramEvent.FUNCTION_REMOVED &&
+                type != ProgramEvent.SYMBOL_RENAMED &&
+                type != ProgramEvent.SYMBOL_PRIMARY_STATE_CHANGED) {
+                continue;
+            }
+            if (!(record instanceof ProgramChangeRecord)) {
+                invalidate();
+                return;
+            }
+            Address start = ((ProgramChangeRecord) record).getStart();
+            if (start != null) {
+                markDirty(start);
+            }
+        }
+    }
+
+    // ----------------------------
+    // Index maintenance
+    // ----------------------------
+
+    private synchronized void invalidate() {
+        entriesByName = null;
+        nameByEntry.clear();
+        dirtyEntries.clear();
+    }
+
+    private synchronized void markDirty(Address entry) {
+        if (entriesByName == null) {
+            return;
+        }
+        dirtyEntries.add(entry);
+        if (dirtyEntries.size() > MAX_DIRTY_BEFORE_REBUILD) {
+            invalidate();
+        }
+    }
+
+    /** Caller holds the monitor. */
+    private void syncIndex() {
+        if (entriesByName == null) {
+            rebuild();
+            return;
+        }
+        if (dirtyEntries.isEmpty()) {
+            return;
+        }
+        FunctionManager fm = program.getFunctionManager();
+        for (Address entry : dirtyEntries) {
+            removeEntry(entry);
+            Function func = fm.getFunctionAt(entry);
+            if (func != null && !func.isExternal()) {
+                addEntry(entry, func.getName());
+            }
+        }
+        dirtyEntries.clear();
+    }
+
+    private void rebuild() {
+        Map<String, List<Address>> byName = new HashMap<>();
+        nameByEntry.clear();
+        dirtyEntries.clear();
+        // getFunctions(true) walks in ascending entry order, so each list stays sorted
+        for (Function func : program.getFunctionManager().getFunctions(true)) {
+            Address entry = func.getEntryPoint();
+            String name = func.getName();
+            byName.computeIfAbsent(name, ignored -> new ArrayList<>(1)).add(entry);
+            nameByEntry.put(entry, name);
+        }
+        entriesByName = byName;
+        if (!listening && !disposed) {
+            program.addListener(this);
+            listening = true;
+        }
+    }
+
+    private void addEntry(Address entry, String name) {
+        List<Address> entries = entriesByName.computeIfAbsent(name, ignored -> new ArrayList<>(1));
+        int pos = Collections.binarySearch(entries, entry);
+        if (pos < 0) {
+            entries.add(-pos - 1, entry);
+        }
+        nameByEntry.put(entry, name);
+    }
+
+    private void removeEntry(Address entry) {
+        String previousName = nameByEntry.remove(entry);
+        if (previousName == null) {
+            return;
+        }
+        List<Address> entries = entriesByName.get(previousName);
+        if (entries == null) {
+            return;
+        }
+        entries.remove(entry);
+        if (entries.isEmpty()) {
+            entriesByName.remove(previousName);
+        }
+    }
+}
@@ -2,11 +2,12 @@ package com.MattUng;
 
 import ghidra.app.plugin.ProgramPlugin;
 import ghidra.framework.plugintool.PluginTool;
-import ghidra.app.plugin.core.analysis.AnalysisWorker;
 import ghidra.app.plugin.core.analysis.AutoAnalysisManager;
+import ghidra.app.plugin.core.analysis.AutoAnalysisManagerListener;
 import ghidra.program.model.address.Address;
 import ghidra.program.model.address.GlobalNamespace;
 import ghidra.program.model.listing.*;
+import ghidra.program.model.mem.Memory;
 import ghidra.program.model.mem.MemoryBlock;
 import ghidra.program.model.symbol.*;
 import ghidra.program.model.symbol.ReferenceManager;
@@ -18,7 +19,6 @@ import ghidra.program.model.pcode.HighSymbol;
 import ghidra.program.model.pcode.LocalSymbolMap;
 import ghidra.program.model.pcode.HighFunctionDBUtil;
 import ghidra.program.model.pcode.HighFunctionDBUtil.ReturnCommitOption;
-import ghidra.app.decompiler.DecompInterface;
 import ghidra.app.decompiler.DecompileResults;
 import ghidra.app.plugin.PluginCategoryNames;
 import ghidra.app.services.CodeViewerService;
@@ -35,6 +35,7 @@ import ghidra.util.exception.DuplicateNameException;
 import ghidra.util.exception.InvalidInputException;
 import ghidra.framework.plugintool.PluginInfo;
 import ghidra.framework.plugintool.util.PluginStatus;
+import ghidra.framework.Application;
 import ghidra.framework.main.AppInfo;
 import ghidra.framework.model.DomainFile;
 import ghidra.framework.model.DomainFolder;
@@ -57,23 +58,34 @@ import ghidra.framework.options.Options;
 
 
 
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 import javax.swing.SwingUtilities;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.lang.reflect.Method;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
-import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
-import java.net.URL;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @PluginInfo(
     status = PluginStatus.RELEASED,
@@ -96,12 +108,76 @@ public class GhidraMCPPlugin extends ProgramPlugin {
     private static final String OPTION_CATEGORY_NAME = "GhidraMCP HTTP Server";
     private static final String PORT_OPTION_NAME = "Server Port";
     private static final int DEFAULT_PORT = 8080;
+    private static final String EXECUTOR_MODE_OPTION_NAME = "HTTP Executor Mode";
+    private static final String DEFAULT_EXECUTOR_MODE = HttpRequestExecutor.MODE_PLATFORM;
+    private static final String WORKER_THREADS_OPTION_NAME = "HTTP Worker Threads";
+    private static final String QUEUE_DEPTH_OPTION_NAME = "HTTP Queue Depth";
+    private static final int DEFAULT_QUEUE_DEPTH = 64;
+    private HttpRequestExecutor httpExecutor;
     private static final String AUTOMATION_OPTION_CATEGORY_NAME = "GhidraMCP Automation";
     private static final String AUTO_WORKFLOW_ENABLED_OPTION_NAME =
         "Trigger Multi-Agent workflow after auto-analysis";
     private static final String AUTO_WORKFLOW_URL_OPTION_NAME = "Multi-Agent trigger URL";
     private static final String DEFAULT_AUTO_WORKFLOW_URL = "http://127.0.0.1:7861/automation/ghidra-load";
+    private static final String AUTO_WORKFLOW_BATCH_WINDOW_OPTION_NAME = "Trigger batch window (ms)";
+    private static final int DEFAULT_AUTO_WORKFLOW_BATCH_WINDOW_MS = 0;
+    private static final String PREWARM_ENABLED_OPTION_NAME = "Prewarm decompiler cache after auto-analysis";
+    private static final String PREWARM_DEPTH_OPTION_NAME = "Prewarm call depth";
+    private static final int DEFAULT_PREWARM_DEPTH = 2;
+    private static final String PREWARM_BUDGET_OPTION_NAME = "Prewarm function budget";
+    private static final int DEFAULT_PREWARM_BUDGET = 256;
     private final Map<String, String> autoWorkflowTriggerFingerprints = Collections.synchronizedMap(new HashMap<>());
+    private static final int AUTO_WORKFLOW_THREADS = 2;
+    // Runs triggers and prewarm hand-offs once a program's auto-analysis has settled
+    private final ExecutorService autoWorkflowRunner = Executors.newFixedThreadPool(AUTO_WORKFLOW_THREADS, r -> {
+        Thread t = new Thread(r, "GhidraMCP-AutoWorkflow");
+        t.setDaemon(true);
+        return t;
+    });
+    // Programs waiting for auto-analysis to settle. The analysis manager holds its listeners
+    // weakly, so this map is what keeps a pending wait alive.
+    private final Map<Program, AnalysisWait> analysisWaits = new HashMap<>();
+    private final WorkflowTriggerOutbox triggerOutbox = new WorkflowTriggerOutbox(
+        new File(Application.getUserSettingsDirectory(), "GhidraMCP" + File.separator + "trigger-outbox"),
+        AUTO_WORKFLOW_THREADS,
+        autoWorkflowTriggerFingerprints::remove);
+    private static final long DECOMPILER_IDLE_TIMEOUT_MS = 5 * 60 * 1000L;
+    private final DecompilerPool decompilerPool =
+        new DecompilerPool(Runtime.getRuntime().availableProcessors(), DECOMPILER_IDLE_TIMEOUT_MS);
+    private static final int STREAM_BUFFER_CHARS = 64 * 1024;
+    private static final int DECOMPILE_CACHE_MAX_ENTRIES = 512;
+    // In C text characters, with each cached HighFunction's p-code counted in (see DecompileCache)
+    private static final long DECOMPILE_CACHE_MAX_WEIGHT = 64L * 1024 * 1024;
+    private final DecompileCache decompileCache =
+        new DecompileCache(DECOMPILE_CACHE_MAX_ENTRIES, DECOMPILE_CACHE_MAX_WEIGHT);
+    private final ThreadPoolExecutor decompileWorkers = (ThreadPoolExecutor) Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(),
+        r -> {
+            Thread t = new Thread(r, "GhidraMCP-Decompile-Worker");
+            t.setDaemon(true);
+            return t;
+        });
+    // Prewarm decompiles run on a few low-priority threads of their own rather than queueing
+    // ahead of requests on decompileWorkers, and pause while decompileWorkers has work
+    private static final int PREWARM_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final long PREWARM_YIELD_MS = 250L;
+    private final ExecutorService prewarmWorkers = Executors.newFixedThreadPool(PREWARM_THREADS, r -> {
+        Thread t = new Thread(r, "GhidraMCP-Decompile-Prewarm");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+    private final Map<Program, FunctionNameIndex> functionNameIndexes = new HashMap<>();
+    private final Map<Program, StringIndex> stringIndexes = new HashMap<>();
+    private final Map<Program, CallAdjacencyIndex> callIndexes = new HashMap<>();
+    private final Map<Program, ProgramStats> programStats = new HashMap<>();
+    private final Map<DataTypeManager, DataTypeIndex> dataTypeIndexes = new HashMap<>();
+    private final ForkJoinPool callGraphPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final ExecutorService indexBuilder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "GhidraMCP-Index-Builder");
+        t.setDaemon(true);
+        return t;
+    });
 
     private static final class GraphRootSelection {
         final List<Function> roots;
@@ -125,6 +201,19 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             null, // No help location for now
             "The network port number the embedded HTTP server will listen on. " +
             "Requires Ghidra restart or plugin reload to take effect after changing.");
+        options.registerOption(EXECUTOR_MODE_OPTION_NAME, DEFAULT_EXECUTOR_MODE,
+            null,
+            "How HTTP requests are dispatched: 'platform' (bounded thread pool), " +
+            "'virtual' (virtual thread per request) or 'single' (one dispatcher thread). " +
+            "Requires Ghidra restart or plugin reload to take effect after changing.");
+        options.registerOption(WORKER_THREADS_OPTION_NAME, Runtime.getRuntime().availableProcessors(),
+            null,
+            "Number of requests handled concurrently in 'platform' mode. " +
+            "Requires Ghidra restart or plugin reload to take effect after changing.");
+        options.registerOption(QUEUE_DEPTH_OPTION_NAME, DEFAULT_QUEUE_DEPTH,
+            null,
+            "Requests allowed to wait beyond the worker threads before new requests get HTTP 503. " +
+            "Requires Ghidra restart or plugin reload to take effect after changing.");
 
         Options automationOptions = tool.getOptions(AUTOMATION_OPTION_CATEGORY_NAME);
         automationOptions.registerOption(
@@ -139,6 +228,30 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             null,
             "HTTP endpoint exposed by multi_agent_wf/main.py for automated Ghidra load triggers."
         );
+        automationOptions.registerOption(
+            PREWARM_ENABLED_OPTION_NAME,
+            false,
+            null,
+            "If enabled, decompile the call-graph roots and their callees in the background once auto-analysis settles, so the first agent requests hit the decompile cache."
+        );
+        automationOptions.registerOption(
+            PREWARM_DEPTH_OPTION_NAME,
+            DEFAULT_PREWARM_DEPTH,
+            null,
+            "How many call levels below the root functions are prewarmed (0 = roots only)."
+        );
+        automationOptions.registerOption(
+            PREWARM_BUDGET_OPTION_NAME,
+            DEFAULT_PREWARM_BUDGET,
+            null,
+            "Maximum number of functions decompiled by one prewarm pass."
+        );
+        automationOptions.registerOption(
+            AUTO_WORKFLOW_BATCH_WINDOW_OPTION_NAME,
+            DEFAULT_AUTO_WORKFLOW_BATCH_WINDOW_MS,
+            null,
+            "If above 0, workflow triggers that become ready within this many milliseconds of each other are sent as one JSON array POST (0 = one POST per program)."
+        );
 
         try {
             startServer();
@@ -146,6 +259,10 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         catch (IOException e) {
             Msg.error(this, "Failed to start HTTP server", e);
         }
+        if (isAutoWorkflowEnabled()) {
+            triggerOutbox.setBatchWindow(getAutoWorkflowBatchWindowMillis());
+            triggerOutbox.recover();
+        }
         Msg.info(this, "GhidraMCPPlugin loaded!");
     }
 
@@ -159,10 +276,110 @@ public class GhidraMCPPlugin extends ProgramPlugin {
     protected void programClosed(Program program) {
         super.programClosed(program);
         autoWorkflowTriggerFingerprints.remove(getProgramAutomationBaseKey(program));
+        AnalysisWait wait;
+        synchronized (analysisWaits) {
+            wait = analysisWaits.remove(program);
+        }
+        if (wait != null) {
+            wait.cancel();
+        }
+        decompilerPool.disposeProgram(program);
+        decompileCache.invalidateProgram(program);
+        FunctionNameIndex nameIndex;
+        synchronized (functionNameIndexes) {
+            nameIndex = functionNameIndexes.remove(program);
+        }
+        if (nameIndex != null) {
+            nameIndex.dispose();
+        }
+        StringIndex strIndex;
+        synchronized (stringIndexes) {
+            strIndex = stringIndexes.remove(program);
+        }
+        if (strIndex != null) {
+            strIndex.dispose();
+        }
+        CallAdjacencyIndex callIndex;
+        synchronized (callIndexes) {
+            callIndex = callIndexes.remove(program);
+        }
+        if (callIndex != null) {
+            callIndex.dispose();
+        }
+        synchronized (programStats) {
+            programStats.remove(program);
+        }
+        DataTypeIndex typeIndex;
+        synchronized (dataTypeIndexes) {
+            typeIndex = dataTypeIndexes.remove(program.getDataTypeManager());
+        }
+        if (typeIndex != null) {
+            typeIndex.dispose();
+        }
+    }
+
+    private DataTypeIndex getDataTypeIndex(DataTypeManager dtm) {
+        synchronized (dataTypeIndexes) {
+            return dataTypeIndexes.computeIfAbsent(dtm, DataTypeIndex::new);
+        }
+    }
+
+    private FunctionNameIndex getFunctionNameIndex(Program program) {
+        synchronized (functionNameIndexes) {
+            return functionNameIndexes.computeIfAbsent(program, FunctionNameIndex::new);
+        }
+    }
+
+    private StringIndex getStringIndex(Program program) {
+        synchronized (stringIndexes) {
+            return stringIndexes.computeIfAbsent(program, p -> new StringIndex(p, this::isStringData));
+        }
+    }
+
+    private CallAdjacencyIndex getCallAdjacencyIndex(Program program) {
+        if (program == null) {
+            return null;
+        }
+        synchronized (callIndexes) {
+            return callIndexes.computeIfAbsent(program, p -> new CallAdjacencyIndex(p, indexBuilder));
+        }
+    }
+
+    /**
+     * Counts and summaries for program, collected in one pass per data source and reused
+     * until the program's modification number changes.
+     */
+    private ProgramStats getProgramStats(Program program) {
+        long modificationNumber = getProgramModificationNumber(program);
+        synchronized (programStats) {
+            ProgramStats cached = programStats.get(program);
+            if (cached != null && cached.isCurrent(modificationNumber)) {
+                return cached;
+            }
+        }
+        // Collected outside the lock; concurrent misses just collect twice
+        ProgramStats stats = ProgramStats.collect(program, this::isStringData, modificationNumber);
+        synchronized (programStats) {
+            programStats.put(program, stats);
+        }
+        return stats;
+    }
+
+    private List<Function> findFunctionsByName(Program program, String name) {
+        return getFunctionNameIndex(program).find(name);
+    }
+
+    private Function findFunctionByName(Program program, String name) {
+        return getFunctionNameIndex(program).findFirst(name);
     }
 
     private void maybeQueueAutoWorkflowTrigger(Program program) {
-        if (program == null || !isAutoWorkflowEnabled()) {
+        if (program == null) {
+            return;
+        }
+        boolean triggerEnabled = isAutoWorkflowEnabled();
+        boolean prewarmEnabled = isDecompilerPrewarmEnabled();
+        if (!triggerEnabled && !prewarmEnabled) {
             return;
         }
 
@@ -173,11 +390,7 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             return;
         }
         autoWorkflowTriggerFingerprints.put(baseKey, fingerprint);
-
-        Thread worker = new Thread(() -> waitForAutoAnalysisAndTrigger(program, baseKey, fingerprint),
-            "GhidraMCP-AutoWorkflow-" + Integer.toHexString(System.identityHashCode(program)));
-        worker.setDaemon(true);
-        worker.start();
+        waitForAutoAnalysisAndTrigger(program, baseKey, fingerprint, triggerEnabled, prewarmEnabled);
     }
 
     private boolean isAutoWorkflowEnabled() {
@@ -185,6 +398,17 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         return automationOptions.getBoolean(AUTO_WORKFLOW_ENABLED_OPTION_NAME, false);
     }
 
+    private long getAutoWorkflowBatchWindowMillis() {
+        Options automationOptions = tool.getOptions(AUTOMATION_OPTION_CATEGORY_NAME);
+        return Math.max(0, automationOptions.getInt(
+            AUTO_WORKFLOW_BATCH_WINDOW_OPTION_NAME, DEFAULT_AUTO_WORKFLOW_BATCH_WINDOW_MS));
+    }
+
+    private boolean isDecompilerPrewarmEnabled() {
+        Options automationOptions = tool.getOptions(AUTOMATION_OPTION_CATEGORY_NAME);
+        return automationOptions.getBoolean(PREWARM_ENABLED_OPTION_NAME, false);
+    }
+
     private String getAutoWorkflowUrl() {
         Options automationOptions = tool.getOptions(AUTOMATION_OPTION_CATEGORY_NAME);
         return trimToNull(automationOptions.getString(AUTO_WORKFLOW_URL_OPTION_NAME, DEFAULT_AUTO_WORKFLOW_URL));
@@ -217,17 +441,11 @@ public class GhidraMCPPlugin extends ProgramPlugin {
     }
 
     private String getProgramModificationToken(Program program) {
-        if (program == null) {
-            return "";
-        }
-
-        try {
-            Method method = program.getClass().getMethod("getModificationNumber");
-            Object value = method.invoke(program);
-            return safe(String.valueOf(value));
-        } catch (Exception ignored) {}
+        return (program == null) ? "" : Long.toString(program.getModificationNumber());
+    }
 
-        return "";
+    private long getProgramModificationNumber(Program program) {
+        return (program == null) ? -1L : program.getModificationNumber();
     }
 
     private String getProgramAutomationFingerprint(Program program) {
@@ -247,26 +465,87 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         return fingerprint;
     }
 
-    private void waitForAutoAnalysisAndTrigger(Program program, String baseKey, String fingerprint) {
-        try {
-            AutoAnalysisManager manager = AutoAnalysisManager.getAnalysisManager(program);
-            boolean scheduled = manager.scheduleWorker(new AnalysisWorker() {
-                @Override
-                public String getWorkerName() {
-                    return "WFTrigger";
-                }
+    /**
+     * Waits for one program's auto-analysis to end, then hands the trigger and prewarm to
+     * autoWorkflowRunner. Fires at most once.
+     */
+    private final class AnalysisWait implements AutoAnalysisManagerListener {
+        private final Program program;
+        private final AutoAnalysisManager manager;
+        private final String baseKey;
+        private final String fingerprint;
+        private final boolean triggerEnabled;
+        private final boolean prewarmEnabled;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        AnalysisWait(Program program, AutoAnalysisManager manager, String baseKey, String fingerprint,
+                     boolean triggerEnabled, boolean prewarmEnabled) {
+            this.program = program;
+            this.manager = manager;
+            this.baseKey = baseKey;
+            this.fingerprint = fingerprint;
+            this.triggerEnabled = triggerEnabled;
+            this.prewarmEnabled = prewarmEnabled;
+        }
+
+        @Override
+        public void analysisEnded(AutoAnalysisManager endedManager, boolean isCancelled) {
+            fire();
+        }
+
+        void fire() {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (analysisWaits) {
+                analysisWaits.remove(program, this);
+            }
+            try {
+                autoWorkflowRunner.execute(() -> {
+                    // Not from inside the callback, while the manager is notifying its listeners
+                    manager.removeListener(this);
+                    if (program.isClosed()) {
+                        return;
+                    }
+                    if (prewarmEnabled) {
+                        scheduleDecompilerPrewarm(program);
+                    }
+                    if (triggerEnabled) {
+                        postAutoWorkflowTrigger(program, baseKey, fingerprint);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                autoWorkflowTriggerFingerprints.remove(baseKey);
+            }
+        }
 
-                @Override
-                public boolean analysisWorkerCallback(Program analyzedProgram, Object workerContext, TaskMonitor monitor)
-                        throws Exception {
-                    postAutoWorkflowTrigger(analyzedProgram, baseKey, fingerprint);
-                    return true;
-                }
-            }, null, true, TaskMonitor.DUMMY);
+        void cancel() {
+            done.set(true);
+            manager.removeListener(this);
+        }
+    }
 
-            if (!scheduled) {
-                autoWorkflowTriggerFingerprints.remove(baseKey);
-                Msg.warn(this, "Auto workflow trigger was not scheduled for program " + safe(program.getName()));
+    /**
+     * Trigger the workflow and prewarm once auto-analysis of program has settled: right
+     * away if analysis is idle, else when the analysis manager reports that it ended. No
+     * thread waits in the meantime. A newer wait for the same program replaces an older one.
+     */
+    private void waitForAutoAnalysisAndTrigger(Program program, String baseKey, String fingerprint,
+                                               boolean triggerEnabled, boolean prewarmEnabled) {
+        try {
+            AutoAnalysisManager manager = AutoAnalysisManager.getAnalysisManager(program);
+            AnalysisWait wait = new AnalysisWait(program, manager, baseKey, fingerprint, triggerEnabled, prewarmEnabled);
+            AnalysisWait previous;
+            synchronized (analysisWaits) {
+                previous = analysisWaits.put(program, wait);
+            }
+            if (previous != null) {
+                previous.cancel();
+            }
+            // Listen before checking, so analysis that ends in between is not missed
+            manager.addListener(wait);
+            if (!manager.isAnalyzing()) {
+                wait.fire();
             }
         } catch (Exception e) {
             autoWorkflowTriggerFingerprints.remove(baseKey);
@@ -274,61 +553,140 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         }
     }
 
-    private void postAutoWorkflowTrigger(Program program, String baseKey, String fingerprint) {
-        String targetUrl = getAutoWorkflowUrl();
-        if (program == null || targetUrl == null) {
-            autoWorkflowTriggerFingerprints.remove(baseKey);
+    /**
+     * Queue background decompiles of the call-graph roots and their callees (breadth-first,
+     * bounded by the prewarm depth and budget options) so they land in the decompile cache.
+     * They run on a small low-priority pool of their own, in breadth-first order, and
+     * each waits while request-driven decompiles are running on decompileWorkers.
+     */
+    private void scheduleDecompilerPrewarm(Program program) {
+        if (program == null) {
+            return;
+        }
+        Options automationOptions = tool.getOptions(AUTOMATION_OPTION_CATEGORY_NAME);
+        int maxDepth = Math.max(0, automationOptions.getInt(PREWARM_DEPTH_OPTION_NAME, DEFAULT_PREWARM_DEPTH));
+        int budget = Math.max(0, automationOptions.getInt(PREWARM_BUDGET_OPTION_NAME, DEFAULT_PREWARM_BUDGET));
+        if (budget == 0) {
             return;
         }
 
-        HttpURLConnection connection = null;
         try {
-            URL url = new URL(targetUrl);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.setConnectTimeout(1500);
-            connection.setReadTimeout(5000);
-            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
-
-            byte[] body = buildAutoWorkflowPayload(program, baseKey, fingerprint).getBytes(StandardCharsets.UTF_8);
-            connection.setFixedLengthStreamingMode(body.length);
-            try (OutputStream os = connection.getOutputStream()) {
-                os.write(body);
-            }
-
-            int status = connection.getResponseCode();
-            String response = readHttpResponseBody(connection);
-            if (status >= 200 && status < 300) {
-                if (response.contains("\"accepted\":false")) {
-                    Msg.info(this, "Multi-Agent workflow auto-trigger skipped for " + safe(program.getName()) + " (duplicate or already triaged).");
-                    return;
+            prewarmWorkers.execute(() -> runDecompilerPrewarm(program, maxDepth, budget));
+        } catch (RejectedExecutionException e) {
+            Msg.debug(this, "Decompiler prewarm skipped; prewarm workers are shut down");
+        }
+    }
+
+    private void runDecompilerPrewarm(Program program, int maxDepth, int budget) {
+        if (program.isClosed()) {
+            return;
+        }
+
+        List<Function> targets = new ArrayList<>();
+        try {
+            // Not selectCallGraphRoots: with no parameters it falls back to the function under
+            // the cursor, which may belong to another program
+            List<Function> roots = CallGraphBuilder.defaultRoots(program);
+
+            Set<Address> seen = new HashSet<>();
+            List<Function> level = new ArrayList<>();
+            for (Function root : roots) {
+                if (root != null && !root.isExternal() && seen.add(root.getEntryPoint())) {
+                    level.add(root);
                 }
-                Msg.info(this, "Auto-triggered Multi-Agent workflow for " + safe(program.getName()));
-                return;
             }
-            if (status == 409) {
-                autoWorkflowTriggerFingerprints.remove(baseKey);
-                Msg.info(this, "Multi-Agent workflow is already running; skipped auto-trigger for " + safe(program.getName()));
+            for (int depth = 0; !level.isEmpty() && targets.size() < budget; depth++) {
+                List<Function> next = new ArrayList<>();
+                for (Function func : level) {
+                    if (targets.size() >= budget) {
+                        break;
+                    }
+                    targets.add(func);
+                    if (depth >= maxDepth) {
+                        continue;
+                    }
+                    for (Function callee : func.getCalledFunctions(TaskMonitor.DUMMY)) {
+                        if (callee != null && !callee.isExternal() && seen.add(callee.getEntryPoint())) {
+                            next.add(callee);
+                        }
+                    }
+                }
+                level = next;
+            }
+        } catch (Exception e) {
+            Msg.warn(this, "Decompiler prewarm target selection failed for " + safe(program.getName()) + ": " + e.getMessage());
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        AtomicInteger warmed = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(targets.size());
+        for (Function func : targets) {
+            try {
+                prewarmWorkers.execute(() -> {
+                    try {
+                        if (prewarmDecompile(program, func)) {
+                            warmed.incrementAndGet();
+                        }
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            Msg.info(this, "Prewarmed decompile cache for " + safe(program.getName()) + ": " +
+                                warmed.get() + "/" + targets.size() + " functions in " +
+                                (System.currentTimeMillis() - startedAt) + " ms");
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
                 return;
             }
+        }
+    }
+
+    /** @return true if func landed in the decompile cache */
+    private boolean prewarmDecompile(Program program, Function func) {
+        try {
+            while (decompileWorkers.getActiveCount() > 0 || !decompileWorkers.getQueue().isEmpty()) {
+                if (program.isClosed()) {
+                    return false;
+                }
+                Thread.sleep(PREWARM_YIELD_MS);
+            }
+            if (program.isClosed()) {
+                return false;
+            }
+            return decompileCached(program, func, 30) != null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            Msg.debug(this, "Prewarm decompile failed for " + safe(func.getName()) + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Hand the trigger to the outbox, which persists it and retries delivery until the
+     * workflow endpoint accepts it.
+     */
+    private void postAutoWorkflowTrigger(Program program, String baseKey, String fingerprint) {
+        String targetUrl = getAutoWorkflowUrl();
+        if (program == null || targetUrl == null) {
             autoWorkflowTriggerFingerprints.remove(baseKey);
-            Msg.warn(
-                this,
-                "Multi-Agent workflow trigger failed for " + safe(program.getName()) +
-                " with HTTP " + status + (response.isEmpty() ? "" : (": " + response))
-            );
-        } catch (IOException e) {
+            return;
+        }
+        String payload;
+        try {
+            payload = buildAutoWorkflowPayload(program, baseKey, fingerprint);
+        } catch (Exception e) {
             autoWorkflowTriggerFingerprints.remove(baseKey);
-            Msg.info(
-                this,
-                "Multi-Agent-WF trigger endpoint not reachable at " + targetUrl +
-                "; skipping auto-trigger for " + safe(program.getName())
-            );
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
-            }
+            Msg.error(this, "Failed to build auto workflow payload for " + safe(program.getName()), e);
+            return;
+        }
+        triggerOutbox.setBatchWindow(getAutoWorkflowBatchWindowMillis());
+        if (!triggerOutbox.enqueue(baseKey, fingerprint, targetUrl, payload)) {
+            Msg.debug(this, "Auto workflow trigger for " + safe(program.getName()) + " is already pending");
         }
     }
 
@@ -361,11 +719,9 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             }
         } catch (Exception ignored) {}
 
-        List<String> warnings = new ArrayList<>();
+        ProgramStats stats = getProgramStats(program);
+        List<String> warnings = new ArrayList<>(stats.getWarnings());
         List<String> failures = new ArrayList<>();
-        List<String> sectionSummary = buildAutomationSectionSummary(program, 12, warnings);
-        List<String> importSummary = buildAutomationImportSummary(program, 20, warnings);
-        List<String> exportSummary = buildAutomationExportSummary(program, 12, warnings);
         List<String> rootFunctions = buildAutomationRootSummary(program, 8, warnings);
         String entryPoint = "";
         if (!rootFunctions.isEmpty()) {
@@ -394,17 +750,17 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             + "\"compiler\":" + jsonStr(safe(compilerId)) + ","
             + "\"image_base\":" + jsonStr(safe(imageBase)) + ","
             + "\"entry_point\":" + jsonStr(safe(entryPoint)) + ","
-            + "\"section_summary\":" + jsonStrArray(sectionSummary) + ","
-            + "\"import_summary\":" + jsonStrArray(importSummary) + ","
-            + "\"export_summary\":" + jsonStrArray(exportSummary) + ","
+            + "\"section_summary\":" + jsonStrArray(stats.getSectionSummary()) + ","
+            + "\"import_summary\":" + jsonStrArray(stats.getImportSummary()) + ","
+            + "\"export_summary\":" + jsonStrArray(stats.getExportSummary()) + ","
             + "\"root_functions\":" + jsonStrArray(rootFunctions) + ","
             + "\"counts\":{"
-                + "\"functions\":" + countFunctions(program) + ","
-                + "\"imports\":" + countImports(program) + ","
-                + "\"exports\":" + countExports(program) + ","
-                + "\"strings\":" + countDefinedStrings(program) + ","
-                + "\"external_references\":" + countExternalReferences(program) + ","
-                + "\"segments\":" + program.getMemory().getBlocks().length
+                + "\"functions\":" + stats.getFunctionCount() + ","
+                + "\"imports\":" + stats.getImportCount() + ","
+                + "\"exports\":" + stats.getExportCount() + ","
+                + "\"strings\":" + stats.getStringCount() + ","
+                + "\"external_references\":" + stats.getExternalReferenceCount() + ","
+                + "\"segments\":" + stats.getSegmentCount()
             + "},"
             + "\"program_info\":" + getProgramInfoJson() + ","
             + "\"auto_analysis_warnings\":" + jsonStrArray(warnings) + ","
@@ -412,25 +768,13 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             + "}";
     }
 
-    private String readHttpResponseBody(HttpURLConnection connection) throws IOException {
-        InputStream stream = null;
-        try {
-            stream = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
-        } catch (IOException ignored) {
-            stream = connection.getErrorStream();
-        }
-        if (stream == null) {
-            return "";
-        }
-        try (InputStream in = stream) {
-            return new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
-        }
-    }
-
     private void startServer() throws IOException {
         // Read the configured port
         Options options = tool.getOptions(OPTION_CATEGORY_NAME);
         int port = options.getInt(PORT_OPTION_NAME, DEFAULT_PORT);
+        String executorMode = options.getString(EXECUTOR_MODE_OPTION_NAME, DEFAULT_EXECUTOR_MODE);
+        int workerThreads = options.getInt(WORKER_THREADS_OPTION_NAME, Runtime.getRuntime().availableProcessors());
+        int queueDepth = options.getInt(QUEUE_DEPTH_OPTION_NAME, DEFAULT_QUEUE_DEPTH);
 
         // Stop existing server if running (e.g., if plugin is reloaded)
         if (server != null) {
@@ -438,43 +782,57 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             server.stop(0);
             server = null;
         }
+        if (httpExecutor != null) {
+            httpExecutor.shutdown();
+            httpExecutor = null;
+        }
 
         server = HttpServer.create(new InetSocketAddress(port), 0);
 
-        // Each listing endpoint uses offset & limit from query params:
-        server.createContext("/methods", exchange -> {
+        // Each listing endpoint uses offset & limit from query params.
+        // /methods, /imports, /data, /strings and /xrefs_to also accept cursor=start and
+        // return the next page's cursor in the X-Next-Cursor header.
+        createContext("/methods", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
-            int offset = parseIntOrDefault(qparams.get("offset"), 0);
-            int limit  = parseIntOrDefault(qparams.get("limit"),  100);
-            sendResponse(exchange, getAllFunctionNames(offset, limit));
+            ListingCursor.Page page = newListingPage("methods", null, qparams);
+            sendPagedResponse(exchange, getAllFunctionNames(page, qparams.get("cursor")), page);
         });
 
-        server.createContext("/classes", exchange -> {
+        createContext("/classes", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             int offset = parseIntOrDefault(qparams.get("offset"), 0);
             int limit  = parseIntOrDefault(qparams.get("limit"),  100);
             sendResponse(exchange, getAllClassNames(offset, limit));
         });
 
-        server.createContext("/decompile", exchange -> {
+        createContext("/decompile", exchange -> {
             String name = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
             sendResponse(exchange, decompileFunctionByName(name));
         });
 
-        server.createContext("/renameFunction", exchange -> {
+        createContext("/decompile_batch", exchange -> {
+            Map<String, String> params = parsePostParams(exchange);
+            streamDecompileBatch(exchange, params);
+        });
+
+        createContext("/decompile_cache_stats", exchange -> {
+            sendJsonResponse(exchange, decompileCache.statsJson());
+        });
+
+        createContext("/renameFunction", exchange -> {
             Map<String, String> params = parsePostParams(exchange);
             String response = renameFunction(params.get("oldName"), params.get("newName"))
                     ? "Renamed successfully" : "Rename failed";
             sendResponse(exchange, response);
         });
 
-        server.createContext("/renameData", exchange -> {
+        createContext("/renameData", exchange -> {
             Map<String, String> params = parsePostParams(exchange);
             renameDataAtAddress(params.get("address"), params.get("newName"));
             sendResponse(exchange, "Rename data attempted");
         });
 
-        server.createContext("/renameVariable", exchange -> {
+        createContext("/renameVariable", exchange -> {
             Map<String, String> params = parsePostParams(exchange);
             String functionName = params.get("functionName");
             String oldName = params.get("oldName");
@@ -483,42 +841,40 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             sendResponse(exchange, result);
         });
 
-        server.createContext("/segments", exchange -> {
+        createContext("/segments", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             int offset = parseIntOrDefault(qparams.get("offset"), 0);
             int limit  = parseIntOrDefault(qparams.get("limit"),  100);
             sendResponse(exchange, listSegments(offset, limit));
         });
 
-        server.createContext("/imports", exchange -> {
+        createContext("/imports", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
-            int offset = parseIntOrDefault(qparams.get("offset"), 0);
-            int limit  = parseIntOrDefault(qparams.get("limit"),  100);
-            sendResponse(exchange, listImports(offset, limit));
+            ListingCursor.Page page = newListingPage("imports", null, qparams);
+            sendPagedResponse(exchange, listImports(page, qparams.get("cursor")), page);
         });
 
-        server.createContext("/exports", exchange -> {
+        createContext("/exports", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             int offset = parseIntOrDefault(qparams.get("offset"), 0);
             int limit  = parseIntOrDefault(qparams.get("limit"),  100);
             sendResponse(exchange, listExports(offset, limit));
         });
 
-        server.createContext("/namespaces", exchange -> {
+        createContext("/namespaces", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             int offset = parseIntOrDefault(qparams.get("offset"), 0);
             int limit  = parseIntOrDefault(qparams.get("limit"),  100);
             sendResponse(exchange, listNamespaces(offset, limit));
         });
 
-        server.createContext("/data", exchange -> {
+        createContext("/data", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
-            int offset = parseIntOrDefault(qparams.get("offset"), 0);
-            int limit  = parseIntOrDefault(qparams.get("limit"),  100);
-            sendResponse(exchange, listDefinedData(offset, limit));
+            ListingCursor.Page page = newListingPage("data", null, qparams);
+            sendPagedResponse(exchange, listDefinedData(page, qparams.get("cursor")), page);
         });
 
-        server.createContext("/searchFunctions", exchange -> {
+        createContext("/searchFunctions", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             String searchTerm = qparams.get("query");
             int offset = parseIntOrDefault(qparams.get("offset"), 0);
@@ -528,37 +884,37 @@ public class GhidraMCPPlugin extends ProgramPlugin {
 
         // New API endpoints based on requirements
         
-        server.createContext("/get_function_by_address", exchange -> {
+        createContext("/get_function_by_address", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             String address = qparams.get("address");
             sendResponse(exchange, getFunctionByAddress(address));
         });
 
-        server.createContext("/get_current_address", exchange -> {
+        createContext("/get_current_address", exchange -> {
             sendResponse(exchange, getCurrentAddress());
         });
 
-        server.createContext("/get_current_function", exchange -> {
+        createContext("/get_current_function", exchange -> {
             sendResponse(exchange, getCurrentFunction());
         });
 
-        server.createContext("/list_functions", exchange -> {
+        createContext("/list_functions", exchange -> {
             sendResponse(exchange, listFunctions());
         });
 
-        server.createContext("/decompile_function", exchange -> {
+        createContext("/decompile_function", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             String address = qparams.get("address");
             sendResponse(exchange, decompileFunctionByAddress(address));
         });
 
-        server.createContext("/disassemble_function", exchange -> {
+        createContext("/disassemble_function", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             String address = qparams.get("address");
             sendResponse(exchange, disassembleFunction(address));
         });
 
-        server.createContext("/set_decompiler_comment", exchange -> {
+        createContext("/set_decompiler_comment", exchange -> {
             Map<String, String> params = parsePostParams(exchange);
             String address = params.get("address");
             String comment = params.get("comment");
@@ -566,7 +922,7 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             sendResponse(exchange, success ? "Comment set successfully" : "Failed to set comment");
         });
 
-        server.createContext("/set_disassembly_comment", exchange -> {
+        createContext("/set_disassembly_comment", exchange -> {
             Map<String, String> params = parsePostParams(exchange);
             String address = params.get("address");
             String comment = params.get("comment");
@@ -574,7 +930,7 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             sendResponse(exchange, success ? "Comment set successfully" : "Failed to set comment");
         });
 
-        server.createContext("/rename_function_by_address", exchange -> {
+        createContext("/rename_function_by_address", exchange -> {
             Map<String, String> params = parsePostParams(exchange);
             String functionAddress = params.get("function_address");
             String newName = params.get("new_name");
@@ -582,7 +938,7 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             sendResponse(exchange, success ? "Function renamed successfully" : "Failed to rename function");
         });
 
-        server.createContext("/set_function_prototype", exchange -> {
+        createContext("/set_function_prototype", exchange -> {
             Map<String, String> params = parsePostParams(exchange);
             String functionAddress = params.get("function_address");
             String prototype = params.get("prototype");
@@ -603,7 +959,7 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             }
         });
 
-        server.createContext("/set_local_variable_type", exchange -> {
+        createContext("/set_local_variable_type", exchange -> {
             Map<String, String> params = parsePostParams(exchange);
             String functionAddress = params.get("function_address");
             String variableName = params.get("variable_name");
@@ -644,15 +1000,21 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             sendResponse(exchange, responseMsg.toString());
         });
 
-        server.createContext("/xrefs_to", exchange -> {
+        createContext("/batch_mutations", exchange -> {
+            Map<String, String> qparams = parseQueryParams(exchange);
+            boolean atomic = parseBooleanParam(qparams.get("atomic"), false);
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            sendJsonResponse(exchange, applyBatchMutations(body, atomic));
+        });
+
+        createContext("/xrefs_to", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             String address = qparams.get("address");
-            int offset = parseIntOrDefault(qparams.get("offset"), 0);
-            int limit = parseIntOrDefault(qparams.get("limit"), 100);
-            sendResponse(exchange, getXrefsTo(address, offset, limit));
+            ListingCursor.Page page = newListingPage("xrefs_to", address, qparams);
+            sendPagedResponse(exchange, getXrefsTo(address, page, qparams.get("cursor")), page);
         });
 
-        server.createContext("/xrefs_from", exchange -> {
+        createContext("/xrefs_from", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             String address = qparams.get("address");
             int offset = parseIntOrDefault(qparams.get("offset"), 0);
@@ -660,7 +1022,7 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             sendResponse(exchange, getXrefsFrom(address, offset, limit));
         });
 
-        server.createContext("/function_xrefs", exchange -> {
+        createContext("/function_xrefs", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             String name = qparams.get("name");
             int offset = parseIntOrDefault(qparams.get("offset"), 0);
@@ -668,19 +1030,25 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             sendResponse(exchange, getFunctionXrefs(name, offset, limit));
         });
 
-        server.createContext("/strings", exchange -> {
+        createContext("/strings", exchange -> {
+            Map<String, String> qparams = parseQueryParams(exchange);
+            String filter = qparams.get("filter");
+            ListingCursor.Page page = newListingPage("strings", filter, qparams);
+            sendPagedResponse(exchange, listDefinedStrings(page, qparams.get("cursor"), filter), page);
+        });
+
+        createContext("/search_strings", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             int offset = parseIntOrDefault(qparams.get("offset"), 0);
             int limit = parseIntOrDefault(qparams.get("limit"), 100);
-            String filter = qparams.get("filter");
-            sendResponse(exchange, listDefinedStrings(offset, limit, filter));
+            sendJsonResponse(exchange, searchStringsJson(qparams.get("query"), qparams.get("mode"), offset, limit));
         });
 
-        server.createContext("/program_info", exchange -> {
+        createContext("/program_info", exchange -> {
             sendJsonResponse(exchange, getProgramInfoJson());
         });
 
-        server.createContext("/import_executable", exchange -> {
+        createContext("/import_executable", exchange -> {
             Map<String, String> params = parsePostParams(exchange);
             String filePath = params.get("file_path");
             String projectFolder = params.get("project_folder");
@@ -692,10 +1060,23 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             );
         });
         
-        server.createContext("/callgraph_json", exchange -> {
+        createContext("/callgraph_json", exchange -> {
             Map<String, String> qparams = parseQueryParams(exchange);
             int maxDepth = parseIntOrDefault(qparams.get("maxDepth"), 4);
             int maxNodes = parseIntOrDefault(qparams.get("maxNodes"), 2000);
+            ForkJoinPool graphPool = parseBooleanParam(qparams.get("parallel"), false) ? callGraphPool : null;
+            String direction = CallGraphBuilder.normalizeDirection(qparams.get("direction"));
+            if (direction == null) {
+                sendJsonResponse(exchange, jsonError("Invalid direction " + qparams.get("direction")
+                    + " (expected callees, callers or both)"));
+                return;
+            }
+
+            String mode = qparams.getOrDefault("mode", "graph").trim().toLowerCase(Locale.ROOT);
+            if (!"graph".equals(mode) && !"analytics".equals(mode)) {
+                sendJsonResponse(exchange, jsonError("Invalid mode " + mode + " (expected graph or analytics)"));
+                return;
+            }
 
             Program program = getCurrentProgram();
             GraphRootSelection rootSelection = selectCallGraphRoots(program, qparams);
@@ -704,18 +1085,106 @@ public class GhidraMCPPlugin extends ProgramPlugin {
                 return;
             }
 
+            if ("analytics".equals(mode)) {
+                // Compact summary (SCCs, dominators, rankings); its size is bounded by topN
+                sendJsonResponse(exchange, CallGraphBuilder.buildAnalytics(
+                    program,
+                    rootSelection.roots,
+                    rootSelection.strategy,
+                    maxDepth,
+                    maxNodes,
+                    direction,
+                    parseIntOrDefault(qparams.get("topN"), 20),
+                    parseIntOrDefault(qparams.get("samples"), 64),
+                    getCallAdjacencyIndex(program),
+                    graphPool
+                ));
+                return;
+            }
+
+            if (parseBooleanParam(qparams.get("stream"), false)) {
+                // Chunked response written straight from the builder; large graphs never
+                // exist as one String or byte[] in the GUI heap.
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0);
+                try (Writer out = new BufferedWriter(
+                        new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8),
+                        STREAM_BUFFER_CHARS)) {
+                    CallGraphBuilder.writeJson(
+                        program,
+                        rootSelection.roots,
+                        rootSelection.strategy,
+                        maxDepth,
+                        maxNodes,
+                        direction,
+                        getCallAdjacencyIndex(program),
+                        graphPool,
+                        out
+                    );
+                }
+                return;
+            }
+
             String json = CallGraphBuilder.build(
                 program,
                 rootSelection.roots,
                 rootSelection.strategy,
                 maxDepth,
-                maxNodes
+                maxNodes,
+                direction,
+                getCallAdjacencyIndex(program),
+                graphPool
             );
             sendJsonResponse(exchange, json);
         });
 
+        createContext("/callgraph_path", exchange -> {
+            Map<String, String> qparams = parseQueryParams(exchange);
+            int k = parseIntOrDefault(qparams.get("k"), 3);
+            int maxDepth = parseIntOrDefault(qparams.get("maxDepth"), 8);
+            int extraHops = parseIntOrDefault(qparams.get("extraHops"), 2);
+            int maxNodes = parseIntOrDefault(qparams.get("maxNodes"), 20000);
+
+            Program program = getCurrentProgram();
+            if (program == null) {
+                sendJsonResponse(exchange, jsonError("No program loaded"));
+                return;
+            }
+            GraphRootSelection sources = selectCallGraphRoots(program, qparams);
+            if (sources.error != null) {
+                sendJsonResponse(exchange, jsonError(sources.error));
+                return;
+            }
+            List<Function> sourceFunctions = sources.roots.isEmpty()
+                ? CallGraphBuilder.defaultRoots(program)
+                : sources.roots;
+            GraphRootSelection targets = selectCallPathTargets(program, qparams);
+            if (targets.error != null) {
+                sendJsonResponse(exchange, jsonError(targets.error));
+                return;
+            }
+
+            sendJsonResponse(exchange, CallPathFinder.findPaths(
+                program,
+                sourceFunctions,
+                targets.roots,
+                k,
+                maxDepth,
+                extraHops,
+                maxNodes,
+                getCallAdjacencyIndex(program)
+            ));
+        });
+
 
-        server.setExecutor(null);
+        httpExecutor = HttpRequestExecutor.create(executorMode, workerThreads, queueDepth);
+        server.setExecutor(httpExecutor);
+        if (httpExecutor != null) {
+            Msg.info(this, "GhidraMCP HTTP executor: " + httpExecutor.getMode() +
+                " (max " + httpExecutor.getMaxInFlight() + " requests in flight)");
+        } else {
+            Msg.info(this, "GhidraMCP HTTP executor: single dispatcher thread");
+        }
         new Thread(() -> {
             try {
                 server.start();
@@ -727,21 +1196,40 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         }, "GhidraMCP-HTTP-Server").start();
     }
 
-    
+    /**
+     * Register an endpoint handler. Every context carries the saturation filter so
+     * requests rejected by the HTTP executor are answered with 503.
+     */
+    private void createContext(String path, HttpHandler handler) {
+        HttpContext context = server.createContext(path, handler);
+        context.getFilters().add(HttpRequestExecutor.saturationFilter());
+    }
 
     // ----------------------------------------------------------------------------------
     // Pagination-aware listing methods
     // ----------------------------------------------------------------------------------
 
-    private String getAllFunctionNames(int offset, int limit) {
+    private String getAllFunctionNames(ListingCursor.Page page, String cursor) {
         Program program = getCurrentProgram();
         if (program == null) return "No program loaded";
 
-        List<String> names = new ArrayList<>();
-        for (Function f : program.getFunctionManager().getFunctions(true)) {
-            names.add(f.getName());
+        Address resume;
+        try {
+            resume = resolveCursorAddress(program, cursor, "methods", null);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
         }
-        return paginateList(names, offset, limit);
+
+        FunctionManager fm = program.getFunctionManager();
+        FunctionIterator it = (resume == null) ? fm.getFunctions(true) : fm.getFunctions(resume, true);
+        for (Function f : it) {
+            Address entry = f.getEntryPoint();
+            if (entry.equals(resume)) continue;
+            if (!page.hasRoom()) break;
+            if (page.skip()) continue;
+            page.add(f.getName(), entry.toString(true));
+        }
+        return page.getBody();
     }
 
     private String getAllClassNames(int offset, int limit) {
@@ -772,15 +1260,34 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         return paginateList(lines, offset, limit);
     }
 
-    private String listImports(int offset, int limit) {
+    private String listImports(ListingCursor.Page page, String cursor) {
         Program program = getCurrentProgram();
         if (program == null) return "No program loaded";
 
-        List<String> lines = new ArrayList<>();
+        // External symbols have no address-ordered resume point, so the checkpoint is the
+        // last symbol ID and earlier symbols are passed over without being formatted.
+        long resumeId;
+        try {
+            String checkpoint = ListingCursor.decode(cursor, "imports", null).getCheckpoint();
+            resumeId = (checkpoint == null) ? -1L : Long.parseLong(checkpoint);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+
+        boolean resumed = resumeId < 0;
         for (Symbol symbol : program.getSymbolTable().getExternalSymbols()) {
-            lines.add(symbol.getName() + " -> " + symbol.getAddress());
+            if (!resumed) {
+                resumed = symbol.getID() == resumeId;
+                continue;
+            }
+            if (!page.hasRoom()) break;
+            if (page.skip()) continue;
+            page.add(symbol.getName() + " -> " + symbol.getAddress(), Long.toString(symbol.getID()));
         }
-        return paginateList(lines, offset, limit);
+        if (!resumed) {
+            return "Cursor is no longer valid; restart with cursor=start";
+        }
+        return page.getBody();
     }
 
     private String listExports(int offset, int limit) {
@@ -817,27 +1324,37 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         return paginateList(sorted, offset, limit);
     }
 
-    private String listDefinedData(int offset, int limit) {
+    private String listDefinedData(ListingCursor.Page page, String cursor) {
         Program program = getCurrentProgram();
         if (program == null) return "No program loaded";
 
-        List<String> lines = new ArrayList<>();
-        for (MemoryBlock block : program.getMemory().getBlocks()) {
-            DataIterator it = program.getListing().getDefinedData(block.getStart(), true);
-            while (it.hasNext()) {
-                Data data = it.next();
-                if (block.contains(data.getAddress())) {
-                    String label   = data.getLabel() != null ? data.getLabel() : "(unnamed)";
-                    String valRepr = data.getDefaultValueRepresentation();
-                    lines.add(String.format("%s: %s = %s",
-                        data.getAddress(),
-                        escapeNonAscii(label),
-                        escapeNonAscii(valRepr)
-                    ));
-                }
-            }
+        Address resume;
+        try {
+            resume = resolveCursorAddress(program, cursor, "data", null);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
         }
-        return paginateList(lines, offset, limit);
+
+        // Memory blocks are address ordered, so one pass over the listing visits the same
+        // items, in the same order, as walking each block separately.
+        Memory memory = program.getMemory();
+        Listing listing = program.getListing();
+        DataIterator it = (resume == null) ? listing.getDefinedData(true) : listing.getDefinedData(resume, true);
+        while (it.hasNext()) {
+            Data data = it.next();
+            Address addr = data.getAddress();
+            if (addr.equals(resume) || !memory.contains(addr)) continue;
+            if (!page.hasRoom()) break;
+            if (page.skip()) continue;
+            String label   = data.getLabel() != null ? data.getLabel() : "(unnamed)";
+            String valRepr = data.getDefaultValueRepresentation();
+            page.add(String.format("%s: %s = %s",
+                addr,
+                escapeNonAscii(label),
+                escapeNonAscii(valRepr)
+            ), addr.toString(true));
+        }
+        return page.getBody();
     }
 
     private String searchFunctionsByName(String searchTerm, int offset, int limit) {
@@ -924,10 +1441,11 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         sb.append("\"pointerSize\":").append(program.getDefaultPointerSize());
         sb.append("},");
         sb.append("\"counts\":{");
-        sb.append("\"functions\":").append(countFunctions(program)).append(",");
-        sb.append("\"imports\":").append(countImports(program)).append(",");
-        sb.append("\"exports\":").append(countExports(program)).append(",");
-        sb.append("\"segments\":").append(program.getMemory().getBlocks().length);
+        ProgramStats stats = getProgramStats(program);
+        sb.append("\"functions\":").append(stats.getFunctionCount()).append(",");
+        sb.append("\"imports\":").append(stats.getImportCount()).append(",");
+        sb.append("\"exports\":").append(stats.getExportCount()).append(",");
+        sb.append("\"segments\":").append(stats.getSegmentCount());
         sb.append("},");
         sb.append("\"currentLocation\":");
         if (location == null || location.getAddress() == null) {
@@ -956,142 +1474,6 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         return (namespace == null) ? "Global" : safe(namespace.getName());
     }
 
-    private int countFunctions(Program program) {
-        int count = 0;
-        for (Function ignored : program.getFunctionManager().getFunctions(true)) {
-            count++;
-        }
-        return count;
-    }
-
-    private int countImports(Program program) {
-        int count = 0;
-        for (Symbol ignored : program.getSymbolTable().getExternalSymbols()) {
-            count++;
-        }
-        return count;
-    }
-
-    private int countExports(Program program) {
-        int count = 0;
-        SymbolIterator it = program.getSymbolTable().getAllSymbols(true);
-        while (it.hasNext()) {
-            Symbol symbol = it.next();
-            if (symbol.isExternalEntryPoint()) {
-                count++;
-            }
-        }
-        return count;
-    }
-
-    private int countDefinedStrings(Program program) {
-        if (program == null) {
-            return 0;
-        }
-
-        int count = 0;
-        DataIterator dataIt = program.getListing().getDefinedData(true);
-        while (dataIt.hasNext()) {
-            Data data = dataIt.next();
-            if (data != null && isStringData(data)) {
-                count++;
-            }
-        }
-        return count;
-    }
-
-    private int countExternalReferences(Program program) {
-        if (program == null) {
-            return 0;
-        }
-
-        int count = 0;
-        ReferenceManager refManager = program.getReferenceManager();
-        for (Symbol symbol : program.getSymbolTable().getExternalSymbols()) {
-            Address address = symbol.getAddress();
-            if (address == null) {
-                continue;
-            }
-            ReferenceIterator refs = refManager.getReferencesTo(address);
-            while (refs.hasNext()) {
-                refs.next();
-                count++;
-            }
-        }
-        return count;
-    }
-
-    private List<String> buildAutomationSectionSummary(Program program, int maxItems, List<String> warnings) {
-        List<String> lines = new ArrayList<>();
-        if (program == null) {
-            return lines;
-        }
-
-        try {
-            for (MemoryBlock block : program.getMemory().getBlocks()) {
-                if (lines.size() >= maxItems) {
-                    break;
-                }
-                String perms =
-                    (block.isRead() ? "r" : "-") +
-                    (block.isWrite() ? "w" : "-") +
-                    (block.isExecute() ? "x" : "-");
-                lines.add(
-                    String.format(
-                        "%s: %s - %s perms=%s size=%d",
-                        block.getName(),
-                        block.getStart(),
-                        block.getEnd(),
-                        perms,
-                        block.getSize()
-                    )
-                );
-            }
-        } catch (Exception e) {
-            warnings.add("Section summary collection failed: " + safe(e.getMessage()));
-        }
-        return lines;
-    }
-
-    private List<String> buildAutomationImportSummary(Program program, int maxItems, List<String> warnings) {
-        List<String> lines = new ArrayList<>();
-        if (program == null) {
-            return lines;
-        }
-
-        try {
-            for (Symbol symbol : program.getSymbolTable().getExternalSymbols()) {
-                if (lines.size() >= maxItems) {
-                    break;
-                }
-                lines.add(symbol.getName() + " -> " + symbol.getAddress());
-            }
-        } catch (Exception e) {
-            warnings.add("Import summary collection failed: " + safe(e.getMessage()));
-        }
-        return lines;
-    }
-
-    private List<String> buildAutomationExportSummary(Program program, int maxItems, List<String> warnings) {
-        List<String> lines = new ArrayList<>();
-        if (program == null) {
-            return lines;
-        }
-
-        try {
-            SymbolIterator it = program.getSymbolTable().getAllSymbols(true);
-            while (it.hasNext() && lines.size() < maxItems) {
-                Symbol symbol = it.next();
-                if (symbol.isExternalEntryPoint()) {
-                    lines.add(symbol.getName() + " -> " + symbol.getAddress());
-                }
-            }
-        } catch (Exception e) {
-            warnings.add("Export summary collection failed: " + safe(e.getMessage()));
-        }
-        return lines;
-    }
-
     private List<String> buildAutomationRootSummary(Program program, int maxItems, List<String> warnings) {
         List<String> lines = new ArrayList<>();
         if (program == null) {
@@ -1148,9 +1530,15 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         String rootName = trimToNull(qparams.get("rootName"));
         if (rootName != null) {
             LinkedHashMap<String, Function> matches = new LinkedHashMap<>();
-            for (Function func : program.getFunctionManager().getFunctions(true)) {
-                if (rootName.equals(func.getName())) {
-                    matches.put(func.getEntryPoint().toString(), func);
+            for (Function func : findFunctionsByName(program, rootName)) {
+                matches.put(func.getEntryPoint().toString(), func);
+            }
+            if (matches.isEmpty()) {
+                // Imports, so direction=callers can start from an external API
+                for (Function func : program.getFunctionManager().getExternalFunctions()) {
+                    if (rootName.equals(func.getName())) {
+                        matches.put(func.getEntryPoint().toString(), func);
+                    }
                 }
             }
             if (matches.isEmpty()) {
@@ -1171,6 +1559,56 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         return new GraphRootSelection(Collections.emptyList(), "heuristic", null);
     }
 
+    /**
+     * Resolve /callgraph_path targets from targetAddress or targetName. Name lookups fall
+     * back to external functions so a chain can end at an import.
+     */
+    private GraphRootSelection selectCallPathTargets(Program program, Map<String, String> qparams) {
+        String targetAddress = trimToNull(qparams.get("targetAddress"));
+        if (targetAddress != null) {
+            try {
+                Address addr = program.getAddressFactory().getAddress(targetAddress);
+                Function func = getFunctionForAddress(program, addr);
+                if (func == null) {
+                    return new GraphRootSelection(
+                        Collections.emptyList(),
+                        "explicit_address",
+                        "No function found at or containing targetAddress " + targetAddress
+                    );
+                }
+                return new GraphRootSelection(Collections.singletonList(func), "explicit_address", null);
+            } catch (Exception e) {
+                return new GraphRootSelection(
+                    Collections.emptyList(),
+                    "explicit_address",
+                    "Invalid targetAddress " + targetAddress + ": " + e.getMessage()
+                );
+            }
+        }
+
+        String targetName = trimToNull(qparams.get("targetName"));
+        if (targetName == null) {
+            return new GraphRootSelection(Collections.emptyList(), "none", "targetAddress or targetName is required");
+        }
+        LinkedHashMap<String, Function> matches = new LinkedHashMap<>();
+        for (Function func : findFunctionsByName(program, targetName)) {
+            matches.put(func.getEntryPoint().toString(), func);
+        }
+        for (Function func : program.getFunctionManager().getExternalFunctions()) {
+            if (targetName.equals(func.getName())) {
+                matches.put(func.getEntryPoint().toString(), func);
+            }
+        }
+        if (matches.isEmpty()) {
+            return new GraphRootSelection(
+                Collections.emptyList(),
+                "explicit_name",
+                "No function found with targetName " + targetName
+            );
+        }
+        return new GraphRootSelection(new ArrayList<>(matches.values()), "explicit_name", null);
+    }
+
     private String trimToNull(String value) {
         if (value == null) {
             return null;
@@ -1373,20 +1811,12 @@ public class GhidraMCPPlugin extends ProgramPlugin {
     private String decompileFunctionByName(String name) {
         Program program = getCurrentProgram();
         if (program == null) return "No program loaded";
-        DecompInterface decomp = new DecompInterface();
-        decomp.openProgram(program);
-        for (Function func : program.getFunctionManager().getFunctions(true)) {
-            if (func.getName().equals(name)) {
-                DecompileResults result =
-                    decomp.decompileFunction(func, 30, new ConsoleTaskMonitor());
-                if (result != null && result.decompileCompleted()) {
-                    return result.getDecompiledFunction().getC();
-                } else {
-                    return "Decompilation failed";
-                }
-            }
+        Function func = findFunctionByName(program, name);
+        if (func == null) {
+            return "Function not found";
         }
-        return "Function not found";
+        DecompileCache.Entry result = decompileCached(program, func, 30);
+        return (result != null) ? result.getC() : "Decompilation failed";
     }
 
     private boolean renameFunction(String oldName, String newName) {
@@ -1398,12 +1828,10 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             SwingUtilities.invokeAndWait(() -> {
                 int tx = program.startTransaction("Rename function via HTTP");
                 try {
-                    for (Function func : program.getFunctionManager().getFunctions(true)) {
-                        if (func.getName().equals(oldName)) {
-                            func.setName(newName, SourceType.USER_DEFINED);
-                            successFlag.set(true);
-                            break;
-                        }
+                    Function func = findFunctionByName(program, oldName);
+                    if (func != null) {
+                        func.setName(newName, SourceType.USER_DEFINED);
+                        successFlag.set(true);
                     }
                 }
                 catch (Exception e) {
@@ -1458,23 +1886,13 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         Program program = getCurrentProgram();
         if (program == null) return "No program loaded";
 
-        DecompInterface decomp = new DecompInterface();
-        decomp.openProgram(program);
-
-        Function func = null;
-        for (Function f : program.getFunctionManager().getFunctions(true)) {
-            if (f.getName().equals(functionName)) {
-                func = f;
-                break;
-            }
-        }
-
+        Function func = findFunctionByName(program, functionName);
         if (func == null) {
             return "Function not found";
         }
 
-        DecompileResults result = decomp.decompileFunction(func, 30, new ConsoleTaskMonitor());
-        if (result == null || !result.decompileCompleted()) {
+        DecompileCache.Entry result = decompileCached(program, func, 30);
+        if (result == null) {
             return "Decompilation failed";
         }
 
@@ -1676,40 +2094,279 @@ public class GhidraMCPPlugin extends ProgramPlugin {
     }
 
     /**
-     * Gets a function at the given address or containing the address
-     * @return the function or null if not found
+     * Gets a function at the given address or containing the address
+     * @return the function or null if not found
+     */
+    private Function getFunctionForAddress(Program program, Address addr) {
+        Function func = program.getFunctionManager().getFunctionAt(addr);
+        if (func == null) {
+            func = program.getFunctionManager().getFunctionContaining(addr);
+        }
+        return func;
+    }
+
+    /**
+     * Decompile a function at the given address
+     */
+    private String decompileFunctionByAddress(String addressStr) {
+        Program program = getCurrentProgram();
+        if (program == null) return "No program loaded";
+        if (addressStr == null || addressStr.isEmpty()) return "Address is required";
+
+        try {
+            Address addr = program.getAddressFactory().getAddress(addressStr);
+            Function func = getFunctionForAddress(program, addr);
+            if (func == null) return "No function found at or containing address " + addressStr;
+
+            DecompileCache.Entry result = decompileCached(program, func, 30);
+            return (result != null) ? result.getC() : "Decompilation failed";
+        } catch (Exception e) {
+            return "Error decompiling function: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Outcome of one decompile request made through the cache.
+     */
+    private static final class DecompileAttempt {
+        DecompileCache.Entry entry;
+        boolean cached;
+        boolean timedOut;
+        String error = "";
+    }
+
+    /**
+     * Decompile a function through the result cache. Entries are reused only while the
+     * program modification number is unchanged, so any edit forces a fresh decompile.
+     * @return the cached or freshly decompiled entry, or null if decompilation failed
+     */
+    private DecompileCache.Entry decompileCached(Program program, Function func, int timeoutSecs) {
+        return attemptDecompile(program, func, timeoutSecs).entry;
+    }
+
+    private DecompileAttempt attemptDecompile(Program program, Function func, int timeoutSecs) {
+        DecompileAttempt attempt = new DecompileAttempt();
+        long modificationNumber = getProgramModificationNumber(program);
+        Address entryPoint = func.getEntryPoint();
+        if (modificationNumber >= 0) {
+            DecompileCache.Entry cached = decompileCache.get(program, entryPoint, modificationNumber);
+            if (cached != null) {
+                attempt.entry = cached;
+                attempt.cached = true;
+                return attempt;
+            }
+        }
+
+        DecompileResults result = decompilerPool.decompile(program, func, timeoutSecs, new ConsoleTaskMonitor());
+        if (result == null) {
+            attempt.error = "No decompiler available";
+            return attempt;
+        }
+        if (!result.decompileCompleted() || result.getDecompiledFunction() == null) {
+            attempt.timedOut = result.isTimedOut();
+            attempt.error = attempt.timedOut
+                ? "Decompilation timed out after " + timeoutSecs + "s"
+                : safe(result.getErrorMessage()).trim();
+            return attempt;
+        }
+
+        DecompileCache.Entry entry =
+            new DecompileCache.Entry(result.getDecompiledFunction().getC(), result.getHighFunction());
+        if (modificationNumber >= 0) {
+            decompileCache.put(program, entryPoint, modificationNumber, entry);
+        }
+        attempt.entry = entry;
+        return attempt;
+    }
+
+    /**
+     * One requested function in a /decompile_batch call.
+     */
+    private static final class BatchDecompileItem {
+        final int index;
+        final String query;
+        final Function function;
+        final String error;
+
+        BatchDecompileItem(int index, String query, Function function, String error) {
+            this.index = index;
+            this.query = query;
+            this.function = function;
+            this.error = error;
+        }
+    }
+
+    private static final class BatchDecompileLine {
+        final boolean ok;
+        final String json;
+
+        BatchDecompileLine(boolean ok, String json) {
+            this.ok = ok;
+            this.json = json;
+        }
+    }
+
+    /**
+     * Decompile many functions in parallel and stream one JSON object per line as each
+     * function finishes. The last line is a summary with "done":true.
      */
-    private Function getFunctionForAddress(Program program, Address addr) {
-        Function func = program.getFunctionManager().getFunctionAt(addr);
-        if (func == null) {
-            func = program.getFunctionManager().getFunctionContaining(addr);
+    private void streamDecompileBatch(HttpExchange exchange, Map<String, String> params) throws IOException {
+        Program program = getCurrentProgram();
+        if (program == null) {
+            sendJsonResponse(exchange, jsonError("No program loaded"));
+            return;
+        }
+        List<String> addresses = splitListParam(params.get("addresses"));
+        List<String> names = splitListParam(params.get("names"));
+        if (addresses.isEmpty() && names.isEmpty()) {
+            sendJsonResponse(exchange, jsonError("addresses or names is required"));
+            return;
+        }
+        int timeoutSecs = Math.max(1, Math.min(600, parseIntOrDefault(params.get("timeout"), 30)));
+        List<BatchDecompileItem> items = resolveBatchDecompileItems(program, addresses, names);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+
+        long startedAt = System.currentTimeMillis();
+        int okCount = 0;
+        int failedCount = 0;
+        List<Future<BatchDecompileLine>> futures = new ArrayList<>();
+        try (OutputStream os = exchange.getResponseBody()) {
+            CompletionService<BatchDecompileLine> completion = new ExecutorCompletionService<>(decompileWorkers);
+            for (BatchDecompileItem item : items) {
+                if (item.function == null) {
+                    writeNdjsonLine(os, batchItemJson(item, "not_found", null, false, 0L, item.error));
+                    failedCount++;
+                    continue;
+                }
+                futures.add(completion.submit(() -> decompileBatchItem(program, item, timeoutSecs)));
+            }
+
+            for (int pending = futures.size(); pending > 0; pending--) {
+                BatchDecompileLine line;
+                try {
+                    line = completion.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+                    line = new BatchDecompileLine(false,
+                        "{\"status\":\"error\",\"error\":" + jsonStr(safe(cause.toString())) + "}");
+                }
+                if (line.ok) {
+                    okCount++;
+                } else {
+                    failedCount++;
+                }
+                writeNdjsonLine(os, line.json);
+            }
+
+            writeNdjsonLine(os, "{"
+                + "\"done\":true,"
+                + "\"requested\":" + items.size() + ","
+                + "\"ok\":" + okCount + ","
+                + "\"failed\":" + failedCount + ","
+                + "\"elapsedMs\":" + (System.currentTimeMillis() - startedAt)
+                + "}");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Only does anything when the client went away or we were interrupted mid-stream
+            for (Future<BatchDecompileLine> future : futures) {
+                future.cancel(true);
+            }
         }
-        return func;
     }
 
-    /**
-     * Decompile a function at the given address
-     */
-    private String decompileFunctionByAddress(String addressStr) {
-        Program program = getCurrentProgram();
-        if (program == null) return "No program loaded";
-        if (addressStr == null || addressStr.isEmpty()) return "Address is required";
+    private List<BatchDecompileItem> resolveBatchDecompileItems(Program program, List<String> addresses, List<String> names) {
+        List<BatchDecompileItem> items = new ArrayList<>();
+        Set<Address> seenEntries = new HashSet<>();
 
-        try {
-            Address addr = program.getAddressFactory().getAddress(addressStr);
-            Function func = getFunctionForAddress(program, addr);
-            if (func == null) return "No function found at or containing address " + addressStr;
+        for (String addressStr : addresses) {
+            Function func = null;
+            String error = null;
+            try {
+                Address addr = program.getAddressFactory().getAddress(addressStr);
+                func = (addr != null) ? getFunctionForAddress(program, addr) : null;
+                if (func == null) {
+                    error = "No function found at or containing address " + addressStr;
+                }
+            } catch (Exception e) {
+                error = "Invalid address " + addressStr + ": " + safe(e.getMessage());
+            }
+            if (func != null && !seenEntries.add(func.getEntryPoint())) {
+                continue;
+            }
+            items.add(new BatchDecompileItem(items.size(), addressStr, func, error));
+        }
 
-            DecompInterface decomp = new DecompInterface();
-            decomp.openProgram(program);
-            DecompileResults result = decomp.decompileFunction(func, 30, new ConsoleTaskMonitor());
+        if (!names.isEmpty()) {
+            Map<String, List<Function>> byName = new LinkedHashMap<>();
+            for (String name : names) {
+                if (!byName.containsKey(name)) {
+                    byName.put(name, findFunctionsByName(program, name));
+                }
+            }
+            for (Map.Entry<String, List<Function>> entry : byName.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    items.add(new BatchDecompileItem(items.size(), entry.getKey(), null,
+                        "Function not found: " + entry.getKey()));
+                    continue;
+                }
+                for (Function func : entry.getValue()) {
+                    if (seenEntries.add(func.getEntryPoint())) {
+                        items.add(new BatchDecompileItem(items.size(), entry.getKey(), func, null));
+                    }
+                }
+            }
+        }
+        return items;
+    }
 
-            return (result != null && result.decompileCompleted()) 
-                ? result.getDecompiledFunction().getC() 
-                : "Decompilation failed";
+    private BatchDecompileLine decompileBatchItem(Program program, BatchDecompileItem item, int timeoutSecs) {
+        long startedAt = System.currentTimeMillis();
+        DecompileAttempt attempt;
+        try {
+            attempt = attemptDecompile(program, item.function, timeoutSecs);
         } catch (Exception e) {
-            return "Error decompiling function: " + e.getMessage();
+            return new BatchDecompileLine(false,
+                batchItemJson(item, "error", null, false, System.currentTimeMillis() - startedAt, safe(e.toString())));
+        }
+        long elapsedMs = System.currentTimeMillis() - startedAt;
+        if (attempt.entry != null) {
+            return new BatchDecompileLine(true,
+                batchItemJson(item, "ok", attempt.entry.getC(), attempt.cached, elapsedMs, null));
+        }
+        String status = attempt.timedOut ? "timeout" : "failed";
+        return new BatchDecompileLine(false, batchItemJson(item, status, null, false, elapsedMs, attempt.error));
+    }
+
+    private String batchItemJson(BatchDecompileItem item, String status, String c, boolean cached,
+                                 long elapsedMs, String error) {
+        StringBuilder sb = new StringBuilder(256 + (c == null ? 0 : c.length()));
+        sb.append("{");
+        sb.append("\"index\":").append(item.index).append(",");
+        sb.append("\"query\":").append(jsonStr(item.query)).append(",");
+        if (item.function != null) {
+            sb.append("\"name\":").append(jsonStr(safe(item.function.getName()))).append(",");
+            sb.append("\"address\":").append(jsonStr(item.function.getEntryPoint().toString())).append(",");
+        }
+        sb.append("\"status\":").append(jsonStr(status)).append(",");
+        sb.append("\"cached\":").append(cached).append(",");
+        sb.append("\"elapsedMs\":").append(elapsedMs);
+        if (c != null) {
+            sb.append(",\"c\":").append(jsonStr(c));
+        }
+        if (error != null && !error.isEmpty()) {
+            sb.append(",\"error\":").append(jsonStr(error));
         }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    private void writeNdjsonLine(OutputStream os, String json) throws IOException {
+        os.write(json.getBytes(StandardCharsets.UTF_8));
+        os.write('\n');
+        os.flush();
     }
 
     /**
@@ -2034,8 +2691,9 @@ public class GhidraMCPPlugin extends ProgramPlugin {
                 return;
             }
 
-            DecompileResults results = decompileFunction(func, program);
-            if (results == null || !results.decompileCompleted()) {
+            DecompileCache.Entry results = decompileCached(program, func, 60);
+            if (results == null) {
+                Msg.error(this, "Could not decompile function at address: " + functionAddrStr);
                 return;
             }
 
@@ -2095,26 +2753,6 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         return null;
     }
 
-    /**
-     * Decompile a function and return the results
-     */
-    private DecompileResults decompileFunction(Function func, Program program) {
-        // Set up decompiler for accessing the decompiled function
-        DecompInterface decomp = new DecompInterface();
-        decomp.openProgram(program);
-        decomp.setSimplificationStyle("decompile"); // Full decompilation
-
-        // Decompile the function
-        DecompileResults results = decomp.decompileFunction(func, 60, new ConsoleTaskMonitor());
-
-        if (!results.decompileCompleted()) {
-            Msg.error(this, "Could not decompile function: " + results.getErrorMessage());
-            return null;
-        }
-
-        return results;
-    }
-
     /**
      * Apply the type update in a transaction
      */
@@ -2138,10 +2776,370 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         }
     }
 
+    // ----------------------------------------------------------------------------------
+    // Batched mutations
+    // ----------------------------------------------------------------------------------
+
+    private static final int MAX_BATCH_MUTATIONS = 5000;
+
+    /** One line of a /batch_mutations request and its outcome. */
+    private static final class BatchMutation {
+        final int index;
+        final String op;
+        final Map<String, String> params;
+        String status = "pending";
+        String message = "";
+
+        BatchMutation(int index, String op, Map<String, String> params) {
+            this.index = index;
+            this.op = op;
+            this.params = params;
+        }
+    }
+
+    /** State shared by the operations of one batch across its Swing dispatches. */
+    private static final class BatchContext {
+        // One decompile per function entry, shared by its variable ops until a prototype
+        // change; a null value records a failed decompile
+        final Map<Address, HighFunction> highFunctions = new HashMap<>();
+        // Names given by rename_variable in this batch; the HighFunction keeps the old ones
+        final Map<HighSymbol, String> renamedSymbols = new HashMap<>();
+        final Set<Address> changedFunctions = new HashSet<>();
+        // Set when a variable op needs a decompile first; the dispatch stops at that op
+        Function needsDecompile;
+        boolean failed;
+
+        String nameOf(HighSymbol symbol) {
+            String renamed = renamedSymbols.get(symbol);
+            return (renamed != null) ? renamed : symbol.getName();
+        }
+    }
+
+    /**
+     * Apply the operations of a /batch_mutations body in order, in one transaction (one
+     * undo step). Each line is a form-encoded operation, e.g.
+     * op=rename_function_by_address&function_address=00401000&new_name=parse_config,
+     * using the parameter names of the matching single endpoint. With atomic set, the
+     * first failure stops the batch and rolls every change back. Operations see the effect
+     * of earlier ones, e.g. rename_variable may name a function renamed earlier in the batch.
+     * Operations run on the Swing thread; the variable operations' decompiles do not. Each
+     * function is decompiled once, and again only after set_function_prototype changed it,
+     * by pausing the dispatch at the op that needs it.
+     */
+    private String applyBatchMutations(String body, boolean atomic) {
+        Program program = getCurrentProgram();
+        if (program == null) {
+            return jsonError("No program loaded");
+        }
+
+        List<BatchMutation> ops = new ArrayList<>();
+        String[] lines = (body == null) ? new String[0] : body.split("\r?\n");
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (ops.size() >= MAX_BATCH_MUTATIONS) {
+                return jsonError("Too many operations (max " + MAX_BATCH_MUTATIONS + ")");
+            }
+            Map<String, String> params = parseFormEncoded(trimmed);
+            ops.add(new BatchMutation(ops.size(), safe(params.get("op")).trim(), params));
+        }
+        if (ops.isEmpty()) {
+            return jsonError("No operations given (one form-encoded operation per line)");
+        }
+
+        BatchContext ctx = new BatchContext();
+        // Decompile the functions the variable ops name, as they stand before the batch
+        for (BatchMutation m : ops) {
+            Function func = isBatchVariableOp(m) ? batchVariableFunction(program, m) : null;
+            if (func != null && !ctx.highFunctions.containsKey(func.getEntryPoint())) {
+                ctx.highFunctions.put(func.getEntryPoint(), decompileForBatch(program, func, false));
+            }
+        }
+
+        int tx = program.startTransaction("Batch mutations (" + ops.size() + " operations)");
+        Exception dispatchError = null;
+        boolean committed;
+        try {
+            int next = 0;
+            while (next < ops.size()) {
+                int from = next;
+                int[] reached = { from };
+                SwingUtilities.invokeAndWait(() -> reached[0] = applyBatchSegment(program, ops, from, atomic, ctx));
+                next = reached[0];
+                Function func = ctx.needsDecompile;
+                if (func != null) {
+                    ctx.needsDecompile = null;
+                    Address entry = func.getEntryPoint();
+                    ctx.highFunctions.put(entry, decompileForBatch(program, func, ctx.changedFunctions.contains(entry)));
+                }
+            }
+        } catch (InterruptedException | InvocationTargetException e) {
+            dispatchError = e;
+        } finally {
+            committed = program.endTransaction(tx, dispatchError == null && !(atomic && ctx.failed));
+        }
+        if (dispatchError != null) {
+            Msg.error(this, "Failed to execute batch mutations on Swing thread", dispatchError);
+            return jsonError("Failed to execute batch mutations on Swing thread: " + dispatchError.getMessage());
+        }
+
+        int succeeded = 0;
+        int failedCount = 0;
+        for (BatchMutation m : ops) {
+            if ("ok".equals(m.status)) {
+                if (!committed) {
+                    m.status = "rolled_back";
+                } else {
+                    succeeded++;
+                }
+            } else if ("failed".equals(m.status)) {
+                failedCount++;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(256 + ops.size() * 64);
+        sb.append("{");
+        sb.append("\"atomic\":").append(atomic).append(",");
+        sb.append("\"committed\":").append(committed).append(",");
+        sb.append("\"total\":").append(ops.size()).append(",");
+        sb.append("\"succeeded\":").append(succeeded).append(",");
+        sb.append("\"failed\":").append(failedCount).append(",");
+        sb.append("\"results\":[");
+        for (int i = 0; i < ops.size(); i++) {
+            BatchMutation m = ops.get(i);
+            if (i > 0) sb.append(",");
+            sb.append("{");
+            sb.append("\"index\":").append(m.index).append(",");
+            sb.append("\"op\":").append(jsonStr(m.op)).append(",");
+            sb.append("\"status\":").append(jsonStr(m.status));
+            if (!m.message.isEmpty()) {
+                sb.append(",\"message\":").append(jsonStr(m.message));
+            }
+            sb.append("}");
+        }
+        sb.append("]");
+        sb.append("}");
+        return sb.toString();
+    }
+
+    /**
+     * Apply operations from index from on, on the Swing thread, until the end of the batch
+     * or a variable op whose function has no decompile yet; that function is left in
+     * ctx.needsDecompile for the caller to decompile off the Swing thread.
+     * @return the index of the first operation not yet applied
+     */
+    private int applyBatchSegment(Program program, List<BatchMutation> ops, int from, boolean atomic,
+            BatchContext ctx) {
+        for (int i = from; i < ops.size(); i++) {
+            BatchMutation m = ops.get(i);
+            if (ctx.failed && atomic) {
+                m.status = "skipped";
+                continue;
+            }
+            Function func = isBatchVariableOp(m) ? batchVariableFunction(program, m) : null;
+            if (func != null && !ctx.highFunctions.containsKey(func.getEntryPoint())) {
+                ctx.needsDecompile = func;
+                return i;
+            }
+            String error;
+            try {
+                error = applyBatchMutation(program, m, ctx);
+            } catch (Exception e) {
+                error = e.getClass().getSimpleName() + ": " + safe(e.getMessage());
+            }
+            if (error == null) {
+                m.status = "ok";
+            } else {
+                m.status = "failed";
+                m.message = error;
+                ctx.failed = true;
+            }
+        }
+        return ops.size();
+    }
+
+    private static boolean isBatchVariableOp(BatchMutation m) {
+        return "rename_variable".equals(m.op) || "set_local_variable_type".equals(m.op);
+    }
+
+    /**
+     * Decompile a function for the variable ops of a batch; called off the Swing thread.
+     * A function the batch already changed bypasses the cache, since the transaction may
+     * still be rolled back.
+     * @return the HighFunction, or null if decompilation failed
+     */
+    private HighFunction decompileForBatch(Program program, Function func, boolean changed) {
+        if (!changed) {
+            DecompileCache.Entry result = decompileCached(program, func, 60);
+            return (result == null) ? null : result.getHighFunction();
+        }
+        DecompileResults result = decompilerPool.decompile(program, func, 60, new ConsoleTaskMonitor());
+        return (result == null || !result.decompileCompleted()) ? null : result.getHighFunction();
+    }
+
+    private Function batchVariableFunction(Program program, BatchMutation m) {
+        if ("rename_variable".equals(m.op)) {
+            return findFunctionByName(program, safe(m.params.get("functionName")));
+        }
+        return batchFunctionAt(program, m.params.get("function_address"));
+    }
+
+    /**
+     * Apply one operation inside the batch transaction. Must not open a transaction of its
+     * own: ending a nested transaction without commit would abort the whole batch.
+     * A successful operation adds its function to ctx.changedFunctions; variable ops find
+     * their function's decompile in ctx.highFunctions.
+     * @return null on success, else the failure message
+     */
+    private String applyBatchMutation(Program program, BatchMutation m, BatchContext ctx) throws Exception {
+        Map<String, String> p = m.params;
+        switch (m.op) {
+            case "rename_function": {
+                Function func = findFunctionByName(program, safe(p.get("oldName")));
+                if (func == null) return "Function not found";
+                if (trimToNull(p.get("newName")) == null) return "newName is required";
+                func.setName(p.get("newName"), SourceType.USER_DEFINED);
+                ctx.changedFunctions.add(func.getEntryPoint());
+                return null;
+            }
+            case "rename_function_by_address": {
+                Function func = batchFunctionAt(program, p.get("function_address"));
+                if (func == null) return "Could not find function at address: " + safe(p.get("function_address"));
+                if (trimToNull(p.get("new_name")) == null) return "new_name is required";
+                func.setName(p.get("new_name"), SourceType.USER_DEFINED);
+                ctx.changedFunctions.add(func.getEntryPoint());
+                return null;
+            }
+            case "rename_data": {
+                Address addr = batchAddress(program, p.get("address"));
+                if (addr == null) return "Invalid address: " + safe(p.get("address"));
+                if (trimToNull(p.get("newName")) == null) return "newName is required";
+                if (program.getListing().getDefinedDataAt(addr) == null) return "No defined data at " + addr;
+                SymbolTable symTable = program.getSymbolTable();
+                Symbol symbol = symTable.getPrimarySymbol(addr);
+                if (symbol != null) {
+                    symbol.setName(p.get("newName"), SourceType.USER_DEFINED);
+                } else {
+                    symTable.createLabel(addr, p.get("newName"), SourceType.USER_DEFINED);
+                }
+                return null;
+            }
+            case "set_decompiler_comment":
+            case "set_disassembly_comment": {
+                Address addr = batchAddress(program, p.get("address"));
+                if (addr == null) return "Invalid address: " + safe(p.get("address"));
+                if (p.get("comment") == null) return "comment is required";
+                int commentType = "set_decompiler_comment".equals(m.op) ? CodeUnit.PRE_COMMENT : CodeUnit.EOL_COMMENT;
+                program.getListing().setComment(addr, commentType, p.get("comment"));
+                return null;
+            }
+            case "set_function_prototype": {
+                Function func = batchFunctionAt(program, p.get("function_address"));
+                if (func == null) return "Could not find function at address: " + safe(p.get("function_address"));
+                String prototype = trimToNull(p.get("prototype"));
+                if (prototype == null) return "prototype is required";
+                ghidra.app.services.DataTypeManagerService dtms =
+                    tool.getService(ghidra.app.services.DataTypeManagerService.class);
+                ghidra.app.util.parser.FunctionSignatureParser parser =
+                    new ghidra.app.util.parser.FunctionSignatureParser(program.getDataTypeManager(), dtms);
+                ghidra.program.model.data.FunctionDefinitionDataType sig = parser.parse(null, prototype);
+                if (sig == null) return "Failed to parse function prototype";
+                program.getListing().setComment(func.getEntryPoint(), CodeUnit.PLATE_COMMENT,
+                    "Setting prototype: " + prototype);
+                ghidra.app.cmd.function.ApplyFunctionSignatureCmd cmd =
+                    new ghidra.app.cmd.function.ApplyFunctionSignatureCmd(
+                        func.getEntryPoint(), sig, SourceType.USER_DEFINED);
+                // Variable ops must not reuse a decompile from before even a failed attempt
+                Address entry = func.getEntryPoint();
+                ctx.changedFunctions.add(entry);
+                HighFunction stale = ctx.highFunctions.remove(entry);
+                if (stale != null) {
+                    ctx.renamedSymbols.keySet().removeIf(symbol -> symbol.getHighFunction() == stale);
+                }
+                return cmd.applyTo(program, new ConsoleTaskMonitor()) ? null : "Command failed: " + cmd.getStatusMsg();
+            }
+            case "rename_variable": {
+                String oldName = safe(p.get("oldName"));
+                String newName = trimToNull(p.get("newName"));
+                if (newName == null) return "newName is required";
+                Function func = batchVariableFunction(program, m);
+                if (func == null) return "Function not found";
+                HighFunction highFunction = ctx.highFunctions.get(func.getEntryPoint());
+                if (highFunction == null) return "Decompilation failed";
+                HighSymbol target = null;
+                Iterator<HighSymbol> symbols = highFunction.getLocalSymbolMap().getSymbols();
+                while (symbols.hasNext()) {
+                    HighSymbol symbol = symbols.next();
+                    String name = ctx.nameOf(symbol);
+                    if (name.equals(oldName)) {
+                        target = symbol;
+                    }
+                    if (name.equals(newName)) {
+                        return "A variable with name '" + newName + "' already exists in this function";
+                    }
+                }
+                if (target == null) return "Variable not found";
+                if (checkFullCommit(target, highFunction)) {
+                    HighFunctionDBUtil.commitParamsToDatabase(highFunction, false,
+                        ReturnCommitOption.NO_COMMIT, func.getSignatureSource());
+                }
+                HighFunctionDBUtil.updateDBVariable(target, newName, null, SourceType.USER_DEFINED);
+                ctx.renamedSymbols.put(target, newName);
+                ctx.changedFunctions.add(func.getEntryPoint());
+                return null;
+            }
+            case "set_local_variable_type": {
+                String variableName = safe(p.get("variable_name"));
+                String newType = trimToNull(p.get("new_type"));
+                if (newType == null) return "new_type is required";
+                Function func = batchVariableFunction(program, m);
+                if (func == null) return "Could not find function at address: " + safe(p.get("function_address"));
+                HighFunction highFunction = ctx.highFunctions.get(func.getEntryPoint());
+                if (highFunction == null) return "Decompilation failed";
+                HighSymbol symbol = null;
+                Iterator<HighSymbol> symbols = highFunction.getLocalSymbolMap().getSymbols();
+                while (symbols.hasNext() && symbol == null) {
+                    HighSymbol candidate = symbols.next();
+                    if (ctx.nameOf(candidate).equals(variableName)) {
+                        symbol = candidate;
+                    }
+                }
+                if (symbol == null) return "Could not find variable '" + variableName + "' in decompiled function";
+                DataType dataType = resolveDataType(program.getDataTypeManager(), newType);
+                if (dataType == null) return "Could not resolve data type: " + newType;
+                HighFunctionDBUtil.updateDBVariable(symbol, ctx.nameOf(symbol), dataType, SourceType.USER_DEFINED);
+                ctx.changedFunctions.add(func.getEntryPoint());
+                return null;
+            }
+            case "":
+                return "op is required";
+            default:
+                return "Unknown op " + m.op;
+        }
+    }
+
+    private Address batchAddress(Program program, String addrStr) {
+        if (trimToNull(addrStr) == null) {
+            return null;
+        }
+        try {
+            return program.getAddressFactory().getAddress(addrStr.trim());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Function batchFunctionAt(Program program, String addrStr) {
+        Address addr = batchAddress(program, addrStr);
+        return (addr == null) ? null : getFunctionForAddress(program, addr);
+    }
+
     /**
      * Get all references to a specific address (xref to)
      */
-    private String getXrefsTo(String addressStr, int offset, int limit) {
+    private String getXrefsTo(String addressStr, ListingCursor.Page page, String cursor) {
         Program program = getCurrentProgram();
         if (program == null) return "No program loaded";
         if (addressStr == null || addressStr.isEmpty()) return "Address is required";
@@ -2150,21 +3148,34 @@ public class GhidraMCPPlugin extends ProgramPlugin {
             Address addr = program.getAddressFactory().getAddress(addressStr);
             ReferenceManager refManager = program.getReferenceManager();
             
+            // References have no resume point either; the checkpoint names the last
+            // reference returned and earlier ones are passed over without formatting.
+            String resumeRef = ListingCursor.decode(cursor, "xrefs_to", addressStr).getCheckpoint();
+            boolean resumed = resumeRef == null;
+
             ReferenceIterator refIter = refManager.getReferencesTo(addr);
-            
-            List<String> refs = new ArrayList<>();
             while (refIter.hasNext()) {
                 Reference ref = refIter.next();
                 Address fromAddr = ref.getFromAddress();
+                String checkpoint = fromAddr.toString(true) + "#" + ref.getOperandIndex();
+                if (!resumed) {
+                    resumed = checkpoint.equals(resumeRef);
+                    continue;
+                }
+                if (!page.hasRoom()) break;
+                if (page.skip()) continue;
+
                 RefType refType = ref.getReferenceType();
-                
                 Function fromFunc = program.getFunctionManager().getFunctionContaining(fromAddr);
                 String funcInfo = (fromFunc != null) ? " in " + fromFunc.getName() : "";
                 
-                refs.add(String.format("From %s%s [%s]", fromAddr, funcInfo, refType.getName()));
+                page.add(String.format("From %s%s [%s]", fromAddr, funcInfo, refType.getName()), checkpoint);
+            }
+            if (!resumed) {
+                return "Cursor is no longer valid; restart with cursor=start";
             }
             
-            return paginateList(refs, offset, limit);
+            return page.getBody();
         } catch (Exception e) {
             return "Error getting references to address: " + e.getMessage();
         }
@@ -2220,21 +3231,19 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         try {
             List<String> refs = new ArrayList<>();
             FunctionManager funcManager = program.getFunctionManager();
-            for (Function function : funcManager.getFunctions(true)) {
-                if (function.getName().equals(functionName)) {
-                    Address entryPoint = function.getEntryPoint();
-                    ReferenceIterator refIter = program.getReferenceManager().getReferencesTo(entryPoint);
+            for (Function function : findFunctionsByName(program, functionName)) {
+                Address entryPoint = function.getEntryPoint();
+                ReferenceIterator refIter = program.getReferenceManager().getReferencesTo(entryPoint);
+                
+                while (refIter.hasNext()) {
+                    Reference ref = refIter.next();
+                    Address fromAddr = ref.getFromAddress();
+                    RefType refType = ref.getReferenceType();
                     
-                    while (refIter.hasNext()) {
-                        Reference ref = refIter.next();
-                        Address fromAddr = ref.getFromAddress();
-                        RefType refType = ref.getReferenceType();
-                        
-                        Function fromFunc = funcManager.getFunctionContaining(fromAddr);
-                        String funcInfo = (fromFunc != null) ? " in " + fromFunc.getName() : "";
-                        
-                        refs.add(String.format("From %s%s [%s]", fromAddr, funcInfo, refType.getName()));
-                    }
+                    Function fromFunc = funcManager.getFunctionContaining(fromAddr);
+                    String funcInfo = (fromFunc != null) ? " in " + fromFunc.getName() : "";
+                    
+                    refs.add(String.format("From %s%s [%s]", fromAddr, funcInfo, refType.getName()));
                 }
             }
             
@@ -2251,27 +3260,85 @@ public class GhidraMCPPlugin extends ProgramPlugin {
 /**
  * List all defined strings in the program with their addresses
  */
-    private String listDefinedStrings(int offset, int limit, String filter) {
+    private String listDefinedStrings(ListingCursor.Page page, String cursor, String filter) {
         Program program = getCurrentProgram();
         if (program == null) return "No program loaded";
 
-        List<String> lines = new ArrayList<>();
-        DataIterator dataIt = program.getListing().getDefinedData(true);
+        Address resume;
+        try {
+            resume = resolveCursorAddress(program, cursor, "strings", filter);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+
+        if (filter != null) {
+            for (StringIndex.Match match : getStringIndex(program).findSubstringByAddress(filter)) {
+                if (resume != null && match.getAddress().compareTo(resume) <= 0) continue;
+                if (!page.hasRoom()) break;
+                if (page.skip()) continue;
+                page.add(String.format("%s: \"%s\"", match.getAddress(), escapeString(match.getValue())),
+                    match.getAddress().toString(true));
+            }
+            return page.getBody();
+        }
+
+        Listing listing = program.getListing();
+        DataIterator dataIt = (resume == null) ? listing.getDefinedData(true) : listing.getDefinedData(resume, true);
         
         while (dataIt.hasNext()) {
             Data data = dataIt.next();
             
-            if (data != null && isStringData(data)) {
+            if (data != null && isStringData(data) && !data.getAddress().equals(resume)) {
+                if (!page.hasRoom()) break;
+                if (page.skip()) continue;
                 String value = data.getValue() != null ? data.getValue().toString() : "";
-                
-                if (filter == null || value.toLowerCase().contains(filter.toLowerCase())) {
-                    String escapedValue = escapeString(value);
-                    lines.add(String.format("%s: \"%s\"", data.getAddress(), escapedValue));
-                }
+                String escapedValue = escapeString(value);
+                page.add(String.format("%s: \"%s\"", data.getAddress(), escapedValue),
+                    data.getAddress().toString(true));
             }
         }
         
-        return paginateList(lines, offset, limit);
+        return page.getBody();
+    }
+
+    /**
+     * Ranked search over defined strings using the per-program string index.
+     * Modes: substring (default), prefix, regex; all case-insensitive.
+     */
+    private String searchStringsJson(String query, String mode, int offset, int limit) {
+        Program program = getCurrentProgram();
+        if (program == null) return jsonError("No program loaded");
+        if (query == null || query.isEmpty()) return jsonError("query is required");
+
+        List<StringIndex.Match> matches;
+        try {
+            matches = getStringIndex(program).search(query, mode);
+        } catch (IllegalArgumentException e) {
+            // also covers PatternSyntaxException
+            return jsonError(safe(e.getMessage()));
+        }
+
+        int start = Math.max(0, offset);
+        int end = Math.min(matches.size(), start + Math.max(0, limit));
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"query\":").append(jsonStr(query)).append(",");
+        sb.append("\"mode\":").append(jsonStr(mode == null ? StringIndex.MODE_SUBSTRING : mode)).append(",");
+        sb.append("\"total\":").append(matches.size()).append(",");
+        sb.append("\"offset\":").append(start).append(",");
+        sb.append("\"limit\":").append(limit).append(",");
+        sb.append("\"results\":[");
+        for (int i = start; i < end; i++) {
+            StringIndex.Match match = matches.get(i);
+            if (i > start) sb.append(",");
+            sb.append("{");
+            sb.append("\"address\":").append(jsonStr(match.getAddress().toString())).append(",");
+            sb.append("\"value\":").append(jsonStr(match.getValue())).append(",");
+            sb.append("\"rank\":").append(match.getRank());
+            sb.append("}");
+        }
+        sb.append("]}");
+        return sb.toString();
     }
 
     /**
@@ -2389,38 +3456,13 @@ public class GhidraMCPPlugin extends ProgramPlugin {
     }
     
     /**
-     * Find a data type by name in all categories/folders of the data type manager
-     * This searches through all categories rather than just the root
+     * Find a data type by name in all categories/folders of the data type manager.
+     * Exact-case matches win over case-insensitive ones, and trailing pointer suffixes
+     * ("char *") are resolved. Lookups go through a per-manager index kept current from
+     * DataTypeManager change events.
      */
     private DataType findDataTypeByNameInAllCategories(DataTypeManager dtm, String typeName) {
-        // Try exact match first
-        DataType result = searchByNameInAllCategories(dtm, typeName);
-        if (result != null) {
-            return result;
-        }
-
-        // Try lowercase
-        return searchByNameInAllCategories(dtm, typeName.toLowerCase());
-    }
-
-    /**
-     * Helper method to search for a data type by name in all categories
-     */
-    private DataType searchByNameInAllCategories(DataTypeManager dtm, String name) {
-        // Get all data types from the manager
-        Iterator<DataType> allTypes = dtm.getAllDataTypes();
-        while (allTypes.hasNext()) {
-            DataType dt = allTypes.next();
-            // Check if the name matches exactly (case-sensitive) 
-            if (dt.getName().equals(name)) {
-                return dt;
-            }
-            // For case-insensitive, we want an exact match except for case
-            if (dt.getName().equalsIgnoreCase(name)) {
-                return dt;
-            }
-        }
-        return null;
+        return getDataTypeIndex(dtm).find(typeName);
     }
 
     // ----------------------------------------------------------------------------------
@@ -2457,7 +3499,13 @@ public class GhidraMCPPlugin extends ProgramPlugin {
      */
     private Map<String, String> parsePostParams(HttpExchange exchange) throws IOException {
         byte[] body = exchange.getRequestBody().readAllBytes();
-        String bodyStr = new String(body, StandardCharsets.UTF_8);
+        return parseFormEncoded(new String(body, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse an application/x-www-form-urlencoded string (key=value&...).
+     */
+    private Map<String, String> parseFormEncoded(String bodyStr) {
         Map<String, String> params = new HashMap<>();
         for (String pair : bodyStr.split("&")) {
             String[] kv = pair.split("=");
@@ -2475,6 +3523,39 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         return params;
     }
 
+    /**
+     * Page for a cursor-capable listing. The numeric offset is ignored once a cursor is given.
+     */
+    private ListingCursor.Page newListingPage(String kind, String scope, Map<String, String> qparams) {
+        int offset = (qparams.get("cursor") != null) ? 0 : parseIntOrDefault(qparams.get("offset"), 0);
+        int limit  = parseIntOrDefault(qparams.get("limit"), 100);
+        return new ListingCursor.Page(kind, scope, offset, limit);
+    }
+
+    /**
+     * Decode a listing cursor whose checkpoint is an address.
+     * @return the last address already returned, or null to start at the beginning
+     */
+    private Address resolveCursorAddress(Program program, String cursor, String kind, String scope) {
+        String checkpoint = ListingCursor.decode(cursor, kind, scope).getCheckpoint();
+        if (checkpoint == null) {
+            return null;
+        }
+        Address addr = program.getAddressFactory().getAddress(checkpoint);
+        if (addr == null) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return addr;
+    }
+
+    private void sendPagedResponse(HttpExchange exchange, String body, ListingCursor.Page page) throws IOException {
+        String next = page.getNextCursor();
+        if (next != null) {
+            exchange.getResponseHeaders().set(ListingCursor.NEXT_CURSOR_HEADER, next);
+        }
+        sendResponse(exchange, body);
+    }
+
     /**
      * Convert a list of strings into one big newline-delimited string, applying offset & limit.
      */
@@ -2489,6 +3570,23 @@ public class GhidraMCPPlugin extends ProgramPlugin {
         return String.join("\n", sub);
     }
 
+    /**
+     * Split a comma- or newline-separated parameter into trimmed, non-empty values.
+     */
+    private List<String> splitListParam(String value) {
+        List<String> values = new ArrayList<>();
+        if (value == null) {
+            return values;
+        }
+        for (String part : value.split("[,\\r\\n]+")) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) {
+                values.add(trimmed);
+            }
+        }
+        return values;
+    }
+
     /**
      * Parse an integer from a string, or return defaultValue if null/invalid.
      */
@@ -2601,6 +3699,60 @@ private String jsonStr(String s) {
             server = null; // Nullify the reference
             Msg.info(this, "GhidraMCP HTTP server stopped.");
         }
+        if (httpExecutor != null) {
+            httpExecutor.shutdown();
+            httpExecutor = null;
+        }
+        decompileWorkers.shutdownNow();
+        prewarmWorkers.shutdownNow();
+        autoWorkflowRunner.shutdownNow();
+        List<AnalysisWait> waits;
+        synchronized (analysisWaits) {
+            waits = new ArrayList<>(analysisWaits.values());
+            analysisWaits.clear();
+        }
+        for (AnalysisWait wait : waits) {
+            wait.cancel();
+        }
+        triggerOutbox.shutdown();
+        decompilerPool.dispose();
+        List<FunctionNameIndex> nameIndexes;
+        synchronized (functionNameIndexes) {
+            nameIndexes = new ArrayList<>(functionNameIndexes.values());
+            functionNameIndexes.clear();
+        }
+        for (FunctionNameIndex nameIndex : nameIndexes) {
+            nameIndex.dispose();
+        }
+        List<StringIndex> strIndexes;
+        synchronized (stringIndexes) {
+            strIndexes = new ArrayList<>(stringIndexes.values());
+            stringIndexes.clear();
+        }
+        for (StringIndex strIndex : strIndexes) {
+            strIndex.dispose();
+        }
+        List<CallAdjacencyIndex> callIndexList;
+        synchronized (callIndexes) {
+            callIndexList = new ArrayList<>(callIndexes.values());
+            callIndexes.clear();
+        }
+        for (CallAdjacencyIndex callIndex : callIndexList) {
+            callIndex.dispose();
+        }
+        synchronized (programStats) {
+            programStats.clear();
+        }
+        List<DataTypeIndex> typeIndexes;
+        synchronized (dataTypeIndexes) {
+            typeIndexes = new ArrayList<>(dataTypeIndexes.values());
+            dataTypeIndexes.clear();
+        }
+        for (DataTypeIndex typeIndex : typeIndexes) {
+            typeIndex.dispose();
+        }
+        indexBuilder.shutdownNow();
+        callGraphPool.shutdownNow();
         super.dispose();
     }
 }
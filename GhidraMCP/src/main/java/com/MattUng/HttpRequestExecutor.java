@@ -0,0 +1,169 @@
+package com.MattUng;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import ghidra.util.Msg;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for the embedded HttpServer.
+ *
+ * Modes:
+ *  - "platform": a fixed pool of platform threads
+ *  - "virtual":  one virtual thread per admitted request
+ *  - "single":   the HttpServer default dispatcher thread (no executor, see {@link #create})
+ * Any other mode is logged and treated as "platform".
+ *
+ * At most workerThreads + queueDepth requests are admitted at once. Requests beyond
+ * that are handed to a single rejection thread which runs them with a marker set, and
+ * {@link #saturationFilter()} answers those exchanges with 503 instead of invoking the
+ * endpoint handler. The filter has to be attached to every context for that to work.
+ */
+public final class HttpRequestExecutor implements Executor {
+
+    public static final String MODE_SINGLE = "single";
+    public static final String MODE_PLATFORM = "platform";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    private static final ThreadLocal<Boolean> SATURATED_DISPATCH = new ThreadLocal<>();
+
+    private final String mode;
+    private final ExecutorService workers;
+    private final ExecutorService rejector;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private HttpRequestExecutor(String mode, ExecutorService workers, int maxInFlight) {
+        this.mode = mode;
+        this.workers = workers;
+        this.maxInFlight = maxInFlight;
+        this.rejector = Executors.newSingleThreadExecutor(daemonThreads("GhidraMCP-HTTP-Reject"));
+    }
+
+    /**
+     * Create an executor for the given mode.
+     * @return the executor, or null for "single", which keeps the HttpServer's own
+     *         dispatcher thread; unknown modes get a platform pool
+     */
+    public static HttpRequestExecutor create(String mode, int workerThreads, int queueDepth) {
+        String normalized = (mode == null) ? "" : mode.trim().toLowerCase(Locale.ROOT);
+        if (MODE_SINGLE.equals(normalized)) {
+            return null;
+        }
+        if (!MODE_PLATFORM.equals(normalized) && !MODE_VIRTUAL.equals(normalized)) {
+            Msg.warn(HttpRequestExecutor.class, "Unknown HTTP executor mode '" + mode + "' (valid: " +
+                MODE_PLATFORM + ", " + MODE_VIRTUAL + ", " + MODE_SINGLE + "); using " + MODE_PLATFORM);
+            normalized = MODE_PLATFORM;
+        }
+        int threads = Math.max(1, workerThreads);
+        int maxInFlight = threads + Math.max(0, queueDepth);
+
+        if (MODE_PLATFORM.equals(normalized)) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads, threads,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                daemonThreads("GhidraMCP-HTTP-Worker")
+            );
+            pool.allowCoreThreadTimeOut(true);
+            return new HttpRequestExecutor(MODE_PLATFORM, pool, maxInFlight);
+        }
+        ThreadFactory factory = Thread.ofVirtual().name("GhidraMCP-HTTP-Virtual-", 0).factory();
+        return new HttpRequestExecutor(MODE_VIRTUAL, Executors.newThreadPerTaskExecutor(factory), maxInFlight);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            rejected.incrementAndGet();
+            rejector.execute(() -> {
+                SATURATED_DISPATCH.set(Boolean.TRUE);
+                try {
+                    command.run();
+                } finally {
+                    SATURATED_DISPATCH.remove();
+                }
+            });
+            return;
+        }
+
+        try {
+            workers.execute(() -> {
+                try {
+                    command.run();
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+        rejector.shutdownNow();
+    }
+
+    /**
+     * Filter that answers 503 for exchanges dispatched while the executor was saturated.
+     */
+    public static Filter saturationFilter() {
+        return new Filter() {
+            @Override
+            public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+                if (!Boolean.TRUE.equals(SATURATED_DISPATCH.get())) {
+                    chain.doFilter(exchange);
+                    return;
+                }
+                byte[] bytes = "Server busy: too many concurrent requests, retry shortly"
+                    .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                exchange.sendResponseHeaders(503, bytes.length);
+                OutputStream os = exchange.getResponseBody();
+                try {
+                    os.write(bytes);
+                } finally {
+                    os.close();
+                }
+            }
+
+            @Override
+            public String description() {
+                return "Rejects requests with 503 when the GhidraMCP HTTP executor is saturated";
+            }
+        };
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
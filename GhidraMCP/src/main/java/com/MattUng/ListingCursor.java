@@ -0,0 +1,129 @@
+package com.MattUng;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque resume tokens for the line-oriented listing endpoints.
+ *
+ * A cursor records which listing it belongs to (kind), an optional scope such as
+ * the target address of /xrefs_to, and a checkpoint naming the last item returned
+ * (usually an address). Listings resume iteration just past the checkpoint instead
+ * of rebuilding and re-slicing the whole list, so walking a large listing page by
+ * page stays linear.
+ *
+ * Clients pass cursor=start for the first page and then echo the value of the
+ * X-Next-Cursor response header until it is no longer sent.
+ */
+public final class ListingCursor {
+
+    public static final String START = "start";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final String VERSION = "1";
+    private static final String SEPARATOR = "|";
+
+    private final String checkpoint;
+
+    private ListingCursor(String checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Decode a client supplied token for the given listing.
+     * @throws IllegalArgumentException if the token is malformed or belongs to another listing
+     */
+    public static ListingCursor decode(String token, String kind, String scope) {
+        if (token == null || START.equals(token.trim())) {
+            return new ListingCursor(null);
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        // version|kind|checkpoint|scope; the scope goes last since it may contain the separator
+        String[] parts = decoded.split("\\|", 4);
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!parts[1].equals(kind) || !parts[3].equals(scope == null ? "" : scope)) {
+            throw new IllegalArgumentException("Cursor does not belong to this listing");
+        }
+        return new ListingCursor(parts[2].isEmpty() ? null : parts[2]);
+    }
+
+    public static String encode(String kind, String scope, String checkpoint) {
+        String raw = VERSION + SEPARATOR + kind + SEPARATOR + (checkpoint == null ? "" : checkpoint)
+            + SEPARATOR + (scope == null ? "" : scope);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Checkpoint of the last item already returned, or null to start from the beginning. */
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Collects one page of lines. Callers offer items in listing order: {@link #skip()}
+     * consumes the numeric offset without formatting anything, and once the page is
+     * full the next offered item only records that more results exist.
+     */
+    public static final class Page {
+        private final String kind;
+        private final String scope;
+        private final int limit;
+        private int toSkip;
+        private final List<String> lines = new ArrayList<>();
+        private String lastCheckpoint;
+        private boolean more;
+
+        public Page(String kind, String scope, int offset, int limit) {
+            this.kind = kind;
+            this.scope = scope;
+            this.toSkip = Math.max(0, offset);
+            this.limit = Math.max(0, limit);
+        }
+
+        /**
+         * Offer the next qualifying item.
+         * @return false when the page is complete and iteration should stop
+         */
+        public boolean hasRoom() {
+            if (lines.size() >= limit) {
+                more = true;
+                return false;
+            }
+            return true;
+        }
+
+        /** @return true if this item falls inside the offset and should not be formatted */
+        public boolean skip() {
+            if (toSkip > 0) {
+                toSkip--;
+                return true;
+            }
+            return false;
+        }
+
+        public void add(String line, String checkpoint) {
+            lines.add(line);
+            lastCheckpoint = checkpoint;
+        }
+
+        public String getBody() {
+            return String.join("\n", lines);
+        }
+
+        /** Token for the following page, or null when the listing is exhausted. */
+        public String getNextCursor() {
+            if (!more || lastCheckpoint == null) {
+                return null;
+            }
+            return encode(kind, scope, lastCheckpoint);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.MattUng;
+
+import java.util.Arrays;
+
+/**
+ * Small open-addressing collections keyed by primitive longs, used by the call graph
+ * code to track nodes and edges by address offset without boxing or string keys.
+ *
+ * All of them use linear probing over power-of-two tables, grow at a 0.5 load factor
+ * and do not support removal. None are thread-safe.
+ */
+public final class PrimitiveCollections {
+
+    private PrimitiveCollections() {}
+
+    private static final int MIN_CAPACITY = 16;
+
+    static int mix(long key) {
+        // Murmur3 fmix64
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private static int tableSizeFor(int expected) {
+        int size = MIN_CAPACITY;
+        while (size < expected * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * long -> int map. Lookups of absent keys return the caller supplied default.
+     */
+    public static final class LongIntMap {
+        private long[] keys;
+        private int[] values;
+        private boolean[] used;
+        private int size;
+
+        public LongIntMap() {
+            this(MIN_CAPACITY);
+        }
+
+        public LongIntMap(int expectedSize) {
+            int capacity = tableSizeFor(expectedSize);
+            keys = new long[capacity];
+            values = new int[capacity];
+            used = new boolean[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int get(long key, int missing) {
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; used[i]; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return missing;
+        }
+
+        public void put(long key, int value) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (used[i]) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            keys[i] = key;
+            values[i] = value;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (!oldUsed[j]) continue;
+                int i = mix(oldKeys[j]) & mask;
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                used[i] = true;
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    /**
+     * Set of (long, long) pairs, e.g. (from/to node pair, call-site offset) for edge dedup.
+     */
+    public static final class LongPairSet {
+        private long[] firsts;
+        private long[] seconds;
+        private boolean[] used;
+        private int size;
+
+        public LongPairSet() {
+            this(MIN_CAPACITY);
+        }
+
+        public LongPairSet(int expectedSize) {
+            int capacity = tableSizeFor(expectedSize);
+            firsts = new long[capacity];
+            seconds = new long[capacity];
+            used = new boolean[capacity];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /** @return true if the pair was not already present */
+        public boolean add(long first, long second) {
+            int mask = firsts.length - 1;
+            int i = slot(first, second) & mask;
+            while (used[i]) {
+                if (firsts[i] == first && seconds[i] == second) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            used[i] = true;
+            firsts[i] = first;
+            seconds[i] = second;
+            if (++size * 2 > firsts.length) {
+                rehash();
+            }
+            return true;
+        }
+
+        public boolean contains(long first, long second) {
+            int mask = firsts.length - 1;
+            for (int i = slot(first, second) & mask; used[i]; i = (i + 1) & mask) {
+                if (firsts[i] == first && seconds[i] == second) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int slot(long first, long second) {
+            return mix(first * 0x9e3779b97f4a7c15L + second);
+        }
+
+        private void rehash() {
+            long[] oldFirsts = firsts;
+            long[] oldSeconds = seconds;
+            boolean[] oldUsed = used;
+            firsts = new long[oldFirsts.length * 2];
+            seconds = new long[oldFirsts.length * 2];
+            used = new boolean[oldFirsts.length * 2];
+            int mask = firsts.length - 1;
+            for (int j = 0; j < oldFirsts.length; j++) {
+                if (!oldUsed[j]) continue;
+                int i = slot(oldFirsts[j], oldSeconds[j]) & mask;
+                while (used[i]) {
+                    i = (i + 1) & mask;
+                }
+                used[i] = true;
+                firsts[i] = oldFirsts[j];
+                seconds[i] = oldSeconds[j];
+            }
+        }
+    }
+
+    /**
+     * Growable int array.
+     */
+    public static final class IntList {
+        private int[] items;
+        private int size;
+
+        public IntList() {
+            this(MIN_CAPACITY);
+        }
+
+        public IntList(int capacity) {
+            items = new int[Math.max(1, capacity)];
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int get(int index) {
+            return items[index];
+        }
+
+        public void set(int index, int value) {
+            items[index] = value;
+        }
+
+        public void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        public void clear() {
+            size = 0;
+        }
+
+        public int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.MattUng;
+
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressIterator;
+import ghidra.program.model.listing.Data;
+import ghidra.program.model.listing.DataIterator;
+import ghidra.program.model.listing.FunctionIterator;
+import ghidra.program.model.listing.FunctionManager;
+import ghidra.program.model.listing.Program;
+import ghidra.program.model.mem.MemoryBlock;
+import ghidra.program.model.symbol.ReferenceManager;
+import ghidra.program.model.symbol.Symbol;
+import ghidra.program.model.symbol.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Program-wide counts and summaries shared by /program_info and the auto-workflow
+ * payload, gathered with one pass per data source:
+ *  - memory blocks: segment count and section summary
+ *  - external symbols: import count, import summary and references to imports
+ *  - external entry points: export count and export summary
+ *  - defined data: string count
+ * The function count comes from the function manager, less its external functions.
+ *
+ * Instances are immutable snapshots tagged with the program modification number they
+ * were collected at, so callers can reuse them until the program changes.
+ */
+public final class ProgramStats {
+
+    public static final int SECTION_SUMMARY_LIMIT = 12;
+    public static final int IMPORT_SUMMARY_LIMIT = 20;
+    public static final int EXPORT_SUMMARY_LIMIT = 12;
+
+    private final long modificationNumber;
+    private final int functionCount;
+    private final int importCount;
+    private final int exportCount;
+    private final int stringCount;
+    private final int externalReferenceCount;
+    private final int segmentCount;
+    private final List<String> sectionSummary;
+    private final List<String> importSummary;
+    private final List<String> exportSummary;
+    private final List<String> warnings;
+
+    private ProgramStats(long modificationNumber, int functionCount, int importCount, int exportCount,
+                         int stringCount, int externalReferenceCount, int segmentCount,
+                         List<String> sectionSummary, List<String> importSummary,
+                         List<String> exportSummary, List<String> warnings) {
+        this.modificationNumber = modificationNumber;
+        this.functionCount = functionCount;
+        this.importCount = importCount;
+        this.exportCount = exportCount;
+        this.stringCount = stringCount;
+        this.externalReferenceCount = externalReferenceCount;
+        this.segmentCount = segmentCount;
+        this.sectionSummary = Collections.unmodifiableList(sectionSummary);
+        this.importSummary = Collections.unmodifiableList(importSummary);
+        this.exportSummary = Collections.unmodifiableList(exportSummary);
+        this.warnings = Collections.unmodifiableList(warnings);
+    }
+
+    /**
+     * Collect stats for program. A failing data source is reported in
+     * {@link #getWarnings()} and leaves its counts at zero.
+     *
+     * @param isString           which defined data counts as a string
+     * @param modificationNumber program modification number the snapshot belongs to
+     */
+    public static ProgramStats collect(Program program, Predicate<Data> isString, long modificationNumber) {
+        List<String> warnings = new ArrayList<>();
+
+        // getFunctionCount() includes external functions; there are few of them, so
+        // subtracting is cheaper than iterating the internal ones
+        FunctionManager functionManager = program.getFunctionManager();
+        int functionCount = functionManager.getFunctionCount();
+        try {
+            FunctionIterator externals = functionManager.getExternalFunctions();
+            while (externals.hasNext()) {
+                externals.next();
+                functionCount--;
+            }
+        } catch (Exception e) {
+            warnings.add("External function count failed: " + safe(e.getMessage()));
+        }
+
+        // --- memory blocks ---
+        int segmentCount = 0;
+        List<String> sections = new ArrayList<>();
+        try {
+            MemoryBlock[] blocks = program.getMemory().getBlocks();
+            segmentCount = blocks.length;
+            for (MemoryBlock block : blocks) {
+                if (sections.size() >= SECTION_SUMMARY_LIMIT) {
+                    break;
+                }
+                String perms =
+                    (block.isRead() ? "r" : "-") +
+                    (block.isWrite() ? "w" : "-") +
+                    (block.isExecute() ? "x" : "-");
+                sections.add(
+                    String.format(
+                        "%s: %s - %s perms=%s size=%d",
+                        block.getName(),
+                        block.getStart(),
+                        block.getEnd(),
+                        perms,
+                        block.getSize()
+                    )
+                );
+            }
+        } catch (Exception e) {
+            warnings.add("Section summary collection failed: " + safe(e.getMessage()));
+        }
+
+        // --- imports and references to them ---
+        SymbolTable symtab = program.getSymbolTable();
+        ReferenceManager refManager = program.getReferenceManager();
+        int importCount = 0;
+        int externalReferenceCount = 0;
+        List<String> imports = new ArrayList<>();
+        try {
+            for (Symbol symbol : symtab.getExternalSymbols()) {
+                importCount++;
+                Address address = symbol.getAddress();
+                if (imports.size() < IMPORT_SUMMARY_LIMIT) {
+                    imports.add(symbol.getName() + " -> " + address);
+                }
+                if (address != null) {
+                    externalReferenceCount += refManager.getReferenceCountTo(address);
+                }
+            }
+        } catch (Exception e) {
+            warnings.add("Import summary collection failed: " + safe(e.getMessage()));
+        }
+
+        // --- exports: only the entry point addresses, not the whole symbol table ---
+        int exportCount = 0;
+        List<String> exports = new ArrayList<>();
+        try {
+            AddressIterator entries = symtab.getExternalEntryPointIterator();
+            while (entries.hasNext()) {
+                Address entry = entries.next();
+                for (Symbol symbol : symtab.getSymbols(entry)) {
+                    if (!symbol.isExternalEntryPoint()) continue;
+                    exportCount++;
+                    if (exports.size() < EXPORT_SUMMARY_LIMIT) {
+                        exports.add(symbol.getName() + " -> " + symbol.getAddress());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            warnings.add("Export summary collection failed: " + safe(e.getMessage()));
+        }
+
+        // --- defined strings ---
+        int stringCount = 0;
+        try {
+            DataIterator dataIt = program.getListing().getDefinedData(true);
+            while (dataIt.hasNext()) {
+                Data data = dataIt.next();
+                if (data != null && isString.test(data)) {
+                    stringCount++;
+                }
+            }
+        } catch (Exception e) {
+            warnings.add("String count collection failed: " + safe(e.getMessage()));
+        }
+
+        return new ProgramStats(modificationNumber, functionCount, importCount, exportCount, stringCount,
+            externalReferenceCount, segmentCount, sections, imports, exports, warnings);
+    }
+
+    /** @return true if this snapshot was taken at the given (known) modification number */
+    public boolean isCurrent(long modificationNumber) {
+        return modificationNumber >= 0 && this.modificationNumber == modificationNumber;
+    }
+
+    public long getModificationNumber() {
+        return modificationNumber;
+    }
+
+    public int getFunctionCount() {
+        return functionCount;
+    }
+
+    public int getImportCount() {
+        return importCount;
+    }
+
+    public int getExportCount() {
+        return exportCount;
+    }
+
+    public int getStringCount() {
+        return stringCount;
+    }
+
+    public int getExternalReferenceCount() {
+        return externalReferenceCount;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /** First {@link #SECTION_SUMMARY_LIMIT} memory blocks as "name: start - end perms=rwx size=n". */
+    public List<String> getSectionSummary() {
+        return sectionSummary;
+    }
+
+    /** First {@link #IMPORT_SUMMARY_LIMIT} external symbols as "name -> address". */
+    public List<String> getImportSummary() {
+        return importSummary;
+    }
+
+    /** First {@link #EXPORT_SUMMARY_LIMIT} exported symbols, in address order, as "name -> address". */
+    public List<String> getExportSummary() {
+        return exportSummary;
+    }
+
+    /** Collection failures, one line per data source that could not be read. */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    private static String safe(String s) {
+        return (s == null) ? "" : s;
+    }
+}
@@ -0,0 +1,451 @@
+package com.MattUng;
+
+import com.MattUng.PrimitiveCollections.IntList;
+import ghidra.framework.model.DomainObjectChangeRecord;
+import ghidra.framework.model.DomainObjectChangedEvent;
+import ghidra.framework.model.DomainObjectEvent;
+import ghidra.framework.model.DomainObjectListener;
+import ghidra.framework.model.EventType;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressSet;
+import ghidra.program.model.listing.Data;
+import ghidra.program.model.listing.DataIterator;
+import ghidra.program.model.listing.Listing;
+import ghidra.program.model.listing.Program;
+import ghidra.program.util.ProgramChangeRecord;
+import ghidra.program.util.ProgramEvent;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of a program's defined strings.
+ *
+ * Each string is stored with a case-folded copy, and every distinct trigram of the
+ * folded text maps to an ascending posting list of string ids. Substring and prefix
+ * queries of three or more characters intersect the postings of the query's trigrams
+ * and only verify the surviving candidates; shorter queries and regexes scan the
+ * in-memory strings, which is still far cheaper than walking the listing. Regexes are
+ * matched against a snapshot outside the monitor, so a slow pattern does not hold up
+ * other queries or index maintenance.
+ *
+ * Listing and memory-byte changes mark address ranges dirty. Strings in a dirty range
+ * are tombstoned and re-read on the next query. Structural changes (memory blocks, data
+ * types, undo/redo) drop the index so it is rebuilt on the next query.
+ */
+public final class StringIndex implements DomainObjectListener {
+
+    public static final String MODE_SUBSTRING = "substring";
+    public static final String MODE_PREFIX = "prefix";
+    public static final String MODE_REGEX = "regex";
+
+    // Ranks, best first
+    public static final int RANK_EXACT = 0;
+    public static final int RANK_PREFIX = 1;
+    public static final int RANK_WORD = 2;
+    public static final int RANK_OTHER = 3;
+
+    private static final int MAX_DIRTY_RANGES = 512;
+    private static final int MIN_TOMBSTONES_BEFORE_REBUILD = 1024;
+
+    public static final class Match {
+        private final Address address;
+        private final String value;
+        private final int rank;
+
+        Match(Address address, String value, int rank) {
+            this.address = address;
+            this.value = value;
+            this.rank = rank;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+    }
+
+    private static final Comparator<Match> BY_RANK = (a, b) -> {
+        if (a.rank != b.rank) return Integer.compare(a.rank, b.rank);
+        if (a.value.length() != b.value.length()) return Integer.compare(a.value.length(), b.value.length());
+        return a.address.compareTo(b.address);
+    };
+
+    private static final Comparator<Match> BY_ADDRESS = (a, b) -> a.address.compareTo(b.address);
+
+    private final Program program;
+    private final Predicate<Data> isString;
+
+    private boolean built;
+    private final List<Address> addresses = new ArrayList<>();
+    private final List<String> values = new ArrayList<>();
+    private final List<String> folded = new ArrayList<>();
+    private final BitSet dead = new BitSet();
+    private int deadCount;
+    private final TreeMap<Address, Integer> idByAddress = new TreeMap<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private boolean listening;
+    private boolean disposed;
+
+    // Written by the change listener; kept under a separate lock so event delivery never
+    // waits for a query that is rebuilding the index.
+    private final Object pendingLock = new Object();
+    private final List<Address[]> pendingRanges = new ArrayList<>();
+    private boolean pendingInvalidate;
+
+    public StringIndex(Program program, Predicate<Data> isString) {
+        this.program = program;
+        this.isString = isString;
+    }
+
+    /**
+     * All strings matching the query, best match first (exact, prefix, word start,
+     * anywhere; then shorter strings; then address).
+     * @throws java.util.regex.PatternSyntaxException for an invalid regex
+     * @throws IllegalArgumentException for an unknown mode
+     */
+    public List<Match> search(String query, String mode) {
+        String normalizedMode = (mode == null) ? MODE_SUBSTRING : mode.trim().toLowerCase(Locale.ROOT);
+        List<Match> matches;
+        if (MODE_SUBSTRING.equals(normalizedMode)) {
+            synchronized (this) {
+                matches = findLiteral(query, false);
+            }
+        } else if (MODE_PREFIX.equals(normalizedMode)) {
+            synchronized (this) {
+                matches = findLiteral(query, true);
+            }
+        } else if (MODE_REGEX.equals(normalizedMode)) {
+            matches = findRegex(query);
+        } else {
+            throw new IllegalArgumentException("Unknown mode: " + mode + " (expected substring, prefix or regex)");
+        }
+        matches.sort(BY_RANK);
+        return matches;
+    }
+
+    /**
+     * Case-insensitive substring matches in address order, as listed by /strings.
+     */
+    public synchronized List<Match> findSubstringByAddress(String query) {
+        List<Match> matches = findLiteral(query, false);
+        matches.sort(BY_ADDRESS);
+        return matches;
+    }
+
+    public synchronized void dispose() {
+        disposed = true;
+        if (listening) {
+            program.removeListener(this);
+            listening = false;
+        }
+        built = false;
+        clear();
+    }
+
+    @Override
+    public void domainObjectChanged(DomainObjectChangedEvent ev) {
+        if (ev.contains(DomainObjectEvent.RESTORED,
+                ProgramEvent.MEMORY_BLOCK_ADDED, ProgramEvent.MEMORY_BLOCK_REMOVED,
+                ProgramEvent.MEMORY_BLOCK_MOVED, ProgramEvent.MEMORY_BLOCK_SPLIT,
+                ProgramEvent.MEMORY_BLOCKS_JOINED, ProgramEvent.IMAGE_BASE_CHANGED,
+                ProgramEvent.DATA_TYPE_CHANGED, ProgramEvent.DATA_TYPE_REPLACED,
+                ProgramEvent.DATA_TYPE_REMOVED)) {
+            invalidate();
+            return;
+        }
+        if (!ev.contains(ProgramEvent.CODE_ADDED, ProgramEvent.CODE_REMOVED,
+                ProgramEvent.CODE_REPLACED, ProgramEvent.MEMORY_BYTES_CHANGED)) {
+            return;
+        }
+        for (int i = 0; i < ev.numRecords(); i++) {
+            DomainObjectChangeRecord record = ev.getChangeRecord(i);
+            EventType type = record.getEventType();
+            if (type != ProgramEvent.CODE_ADDED && type != ProgramEvent.CODE_REMOVED &&
+                type != ProgramEvent.CODE_REPLACED && type != ProgramEvent.MEMORY_BYTES_CHANGED) {
+                continue;
+            }
+            Address start = (record instanceof ProgramChangeRecord) ? ((ProgramChangeRecord) record).getStart() : null;
+            if (start == null) {
+                invalidate();
+                return;
+            }
+            Address end = ((ProgramChangeRecord) record).getEnd();
+            markDirty(start, end == null ? start : end);
+        }
+    }
+
+    // ----------------------------
+    // Queries
+    // ----------------------------
+
+    /** Caller holds the monitor. */
+    private List<Match> findLiteral(String query, boolean prefixOnly) {
+        sync();
+        String q = fold(query == null ? "" : query);
+        List<Match> matches = new ArrayList<>();
+
+        IntList candidates = candidatesFor(q);
+        int count = (candidates == null) ? values.size() : candidates.size();
+        for (int i = 0; i < count; i++) {
+            int id = (candidates == null) ? i : candidates.get(i);
+            if (dead.get(id)) {
+                continue;
+            }
+            String text = folded.get(id);
+            int at = prefixOnly ? (text.startsWith(q) ? 0 : -1) : text.indexOf(q);
+            if (at < 0) {
+                continue;
+            }
+            matches.add(new Match(addresses.get(id), values.get(id), rankOf(text, q, at)));
+        }
+        return matches;
+    }
+
+    /** Matches a snapshot of the live strings, taken under the monitor and matched outside it. */
+    private List<Match> findRegex(String query) {
+        Pattern pattern = Pattern.compile(query == null ? "" : query,
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        Address[] liveAddresses;
+        String[] liveValues;
+        int live = 0;
+        synchronized (this) {
+            sync();
+            liveAddresses = new Address[values.size()];
+            liveValues = new String[values.size()];
+            for (int id = 0; id < values.size(); id++) {
+                if (!dead.get(id)) {
+                    liveAddresses[live] = addresses.get(id);
+                    liveValues[live] = values.get(id);
+                    live++;
+                }
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int i = 0; i < live; i++) {
+            String value = liveValues[i];
+            Matcher m = pattern.matcher(value);
+            if (!m.find()) {
+                continue;
+            }
+            int rank;
+            if (m.start() == 0 && m.end() == value.length()) {
+                rank = RANK_EXACT;
+            } else if (m.start() == 0) {
+                rank = RANK_PREFIX;
+            } else {
+                rank = isWordStart(value, m.start()) ? RANK_WORD : RANK_OTHER;
+            }
+            matches.add(new Match(liveAddresses[i], value, rank));
+        }
+        return matches;
+    }
+
+    private static int rankOf(String text, String q, int at) {
+        if (at == 0) {
+            return text.length() == q.length() ? RANK_EXACT : RANK_PREFIX;
+        }
+        for (int i = at; i >= 0; i = text.indexOf(q, i + 1)) {
+            if (isWordStart(text, i)) {
+                return RANK_WORD;
+            }
+        }
+        return RANK_OTHER;
+    }
+
+    private static boolean isWordStart(String text, int index) {
+        return index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1));
+    }
+
+    /**
+     * Ids whose text contains every trigram of the query, or null when the query is too
+     * short to use the trigram postings.
+     */
+    private IntList candidatesFor(String q) {
+        if (q.length() < 3) {
+            return null;
+        }
+        List<IntList> lists = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i + 3 <= q.length(); i++) {
+            long key = trigram(q, i);
+            if (!seen.add(key)) {
+                continue;
+            }
+            IntList list = postings.get(key);
+            if (list == null) {
+                return new IntList();
+            }
+            lists.add(list);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+        IntList result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.size() > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private static IntList intersect(IntList a, IntList b) {
+        IntList out = new IntList();
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            int x = a.get(i);
+            int y = b.get(j);
+            if (x == y) {
+                out.add(x);
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return out;
+    }
+
+    // ----------------------------
+    // Index maintenance
+    // ----------------------------
+
+    private void invalidate() {
+        synchronized (pendingLock) {
+            pendingInvalidate = true;
+            pendingRanges.clear();
+        }
+    }
+
+    private void markDirty(Address start, Address end) {
+        synchronized (pendingLock) {
+            if (pendingInvalidate) {
+                return;
+            }
+            if (pendingRanges.size() >= MAX_DIRTY_RANGES) {
+                pendingInvalidate = true;
+                pendingRanges.clear();
+                return;
+            }
+            pendingRanges.add(new Address[] { start, end });
+        }
+    }
+
+    private void clear() {
+        addresses.clear();
+        values.clear();
+        folded.clear();
+        dead.clear();
+        deadCount = 0;
+        idByAddress.clear();
+        postings.clear();
+    }
+
+    /** Caller holds the monitor. */
+    private void sync() {
+        List<Address[]> ranges;
+        boolean invalidated;
+        synchronized (pendingLock) {
+            ranges = new ArrayList<>(pendingRanges);
+            invalidated = pendingInvalidate;
+            pendingRanges.clear();
+            pendingInvalidate = false;
+        }
+        if (!built || invalidated || deadCount > Math.max(MIN_TOMBSTONES_BEFORE_REBUILD, values.size() / 2)) {
+            rebuild();
+            return;
+        }
+        try {
+            for (Address[] range : ranges) {
+                refreshRange(range[0], range[1]);
+            }
+        } catch (RuntimeException e) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        clear();
+        // Listen before walking so edits made during the walk are queued for the next sync
+        if (!listening && !disposed) {
+            program.addListener(this);
+            listening = true;
+        }
+        DataIterator it = program.getListing().getDefinedData(true);
+        while (it.hasNext()) {
+            Data data = it.next();
+            if (data != null && isString.test(data)) {
+                add(data);
+            }
+        }
+        built = true;
+    }
+
+    private void refreshRange(Address start, Address end) {
+        Listing listing = program.getListing();
+        // A byte change inside a string starts a range in the middle of that string
+        Data containing = listing.getDefinedDataContaining(start);
+        if (containing != null && containing.getAddress().compareTo(start) < 0) {
+            start = containing.getAddress();
+        }
+
+        NavigableMap<Address, Integer> affected = idByAddress.subMap(start, true, end, true);
+        for (Integer id : affected.values()) {
+            if (!dead.get(id)) {
+                dead.set(id);
+                deadCount++;
+            }
+        }
+        affected.clear();
+
+        DataIterator it = listing.getDefinedData(new AddressSet(start, end), true);
+        while (it.hasNext()) {
+            Data data = it.next();
+            if (data != null && isString.test(data)) {
+                add(data);
+            }
+        }
+    }
+
+    private void add(Data data) {
+        Object raw = data.getValue();
+        String value = (raw != null) ? raw.toString() : "";
+        String text = fold(value);
+        int id = values.size();
+
+        Integer previous = idByAddress.put(data.getAddress(), id);
+        if (previous != null && !dead.get(previous)) {
+            dead.set(previous);
+            deadCount++;
+        }
+        addresses.add(data.getAddress());
+        values.add(value);
+        folded.add(text);
+
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            IntList list = postings.computeIfAbsent(trigram(text, i), ignored -> new IntList());
+            // ids only grow, so a repeated trigram within this string is always the tail
+            if (list.size() == 0 || list.get(list.size() - 1) != id) {
+                list.add(id);
+            }
+        }
+    }
+
+    private static String fold(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
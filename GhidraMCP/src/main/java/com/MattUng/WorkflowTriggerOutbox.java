@@ -0,0 +1,720 @@
+package com.MattUng;
+
+import ghidra.util.Msg;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Durable delivery of Multi-Agent workflow triggers.
+ *
+ * Every trigger is written to an outbox directory (one properties file per program
+ * key) before the first delivery attempt and deleted once the endpoint accepts it, so
+ * triggers queued while the workflow service is down or busy survive until it comes
+ * back, including across Ghidra restarts ({@link #recover()}).
+ *
+ * Each outbox claims a slot under the root directory and holds a file lock on it while
+ * it runs, so several tools or Ghidra instances never deliver or delete each other's
+ * triggers; a later session takes over the first free slot and what was left in it.
+ *
+ * Delivery runs on a small fixed scheduler. Connection failures and 5xx are retried with
+ * exponential backoff and jitter, up to {@link #MAX_ATTEMPTS} attempts. HTTP 409 (a
+ * workflow is already running) and 429 mean the endpoint is up but busy; they back off
+ * the same way without using up attempts, for at most {@link #MAX_BUSY_MS}. Other 4xx
+ * responses, and triggers that run out of attempts or busy time, are dropped and
+ * reported to the abandon callback. Triggers are coalesced per program key: a repeat of
+ * the pending fingerprint is ignored and a newer fingerprint replaces the pending one.
+ *
+ * With a batch window set, due triggers for the same URL are sent together as a JSON
+ * array; the endpoint answers with a "results" array holding one status per item
+ * (accepted, skipped, busy or rejected), and each item is completed, retried or dropped
+ * on its own; items missing from the results are retried. An endpoint that refuses
+ * arrays, or answers without a results array, gets the triggers one by one instead.
+ */
+public final class WorkflowTriggerOutbox {
+
+    private static final String FILE_PREFIX = "trigger-";
+    private static final String FILE_SUFFIX = ".properties";
+    private static final long BASE_BACKOFF_MS = 2000L;
+    private static final long MAX_BACKOFF_MS = 5 * 60 * 1000L;
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long MAX_BUSY_MS = 12 * 60 * 60 * 1000L;
+    private static final int CONNECT_TIMEOUT_MS = 1500;
+    private static final int READ_TIMEOUT_MS = 5000;
+    private static final int MAX_BATCH_SIZE = 32;
+    private static final String SLOT_PREFIX = "slot-";
+    private static final String LOCK_FILE_NAME = ".lock";
+    private static final int MAX_SLOTS = 64;
+
+    private enum Outcome { DELIVERED, RETRY, BUSY, REJECTED }
+
+    private static final class Entry {
+        final String key;
+        final String fingerprint;
+        final String url;
+        final String payload;
+        final File file;
+        int attempts;
+        long busySinceMs;   // first busy answer, 0 if none yet
+        int busyRetries;
+        ScheduledFuture<?> scheduled;
+        boolean ready;   // due and waiting for the batch window to close
+
+        Entry(String key, String fingerprint, String url, String payload, File file, int attempts,
+                long busySinceMs) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.url = url;
+            this.payload = payload;
+            this.file = file;
+            this.attempts = attempts;
+            this.busySinceMs = busySinceMs;
+        }
+    }
+
+    private final File root;
+    private final ScheduledExecutorService scheduler;
+    private final Consumer<String> onAbandoned;
+
+    // Guarded by this, as are writes to the outbox files; at most one pending trigger per program key
+    private final Map<String, Entry> pending = new HashMap<>();
+    private boolean shutdown;
+    private boolean flushScheduled;
+    // Claimed slot and the lock that holds it; null until first use, or if no slot was free
+    private File directory;
+    private FileChannel lockChannel;
+    private boolean claimAttempted;
+    private volatile long batchWindowMs;
+
+    /**
+     * @param root        where pending triggers are persisted, one locked slot directory
+     *                    per running outbox (created on demand)
+     * @param threads     delivery threads
+     * @param onAbandoned called with the program key of a trigger that will not be retried
+     */
+    public WorkflowTriggerOutbox(File root, int threads, Consumer<String> onAbandoned) {
+        this.root = root;
+        this.onAbandoned = onAbandoned;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "GhidraMCP-Trigger-Outbox");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+    }
+
+    /**
+     * Persist a trigger and schedule its delivery.
+     * @return false if the same fingerprint is already pending for key (coalesced)
+     */
+    public boolean enqueue(String key, String fingerprint, String url, String payload) {
+        Entry entry;
+        synchronized (this) {
+            if (shutdown) {
+                return false;
+            }
+            Entry existing = pending.get(key);
+            if (existing != null && existing.fingerprint.equals(fingerprint)) {
+                return false;
+            }
+            if (existing != null && existing.scheduled != null) {
+                existing.scheduled.cancel(false);
+            }
+            entry = new Entry(key, fingerprint, url, payload, fileFor(key), 0, 0L);
+            pending.put(key, entry);
+            persist(entry);
+        }
+        schedule(entry, 0L);
+        return true;
+    }
+
+    /**
+     * Reschedule triggers left in the outbox directory by an earlier session. Unreadable
+     * files are deleted.
+     */
+    public void recover() {
+        File slot;
+        synchronized (this) {
+            slot = claimDirectory();
+        }
+        if (slot == null) {
+            return;
+        }
+        File[] files = slot.listFiles((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (files == null || files.length == 0) {
+            return;
+        }
+        int recovered = 0;
+        for (File file : files) {
+            Entry entry = load(file);
+            if (entry == null) {
+                deleteQuietly(file);
+                continue;
+            }
+            synchronized (this) {
+                if (shutdown || pending.containsKey(entry.key)) {
+                    continue;
+                }
+                pending.put(entry.key, entry);
+            }
+            // Stagger so a backlog does not hit the endpoint all at once
+            schedule(entry, recovered * 250L);
+            recovered++;
+        }
+        if (recovered > 0) {
+            Msg.info(this, "Recovered " + recovered + " pending Multi-Agent workflow trigger(s) from " + slot);
+        }
+    }
+
+    /**
+     * Coalesce triggers that become due within windowMs of each other into one POST of a
+     * JSON array (at most {@link #MAX_BATCH_SIZE} per request). 0 sends each trigger on
+     * its own.
+     */
+    public void setBatchWindow(long windowMs) {
+        batchWindowMs = Math.max(0L, windowMs);
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stop delivering and release the slot. Pending triggers stay on disk for the next
+     * {@link #recover()}.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            pending.clear();
+            if (lockChannel != null) {
+                try {
+                    lockChannel.close();   // releases the lock
+                } catch (IOException e) {
+                    Msg.debug(this, "Could not release outbox lock: " + e.getMessage());
+                }
+                lockChannel = null;
+            }
+        }
+        scheduler.shutdownNow();
+    }
+
+    // ----------------------------
+    // Delivery
+    // ----------------------------
+
+    private void schedule(Entry entry, long delayMs) {
+        synchronized (this) {
+            if (shutdown || pending.get(entry.key) != entry) {
+                return;
+            }
+            Runnable task = (batchWindowMs > 0) ? () -> markReady(entry) : () -> deliver(entry);
+            try {
+                entry.scheduled = scheduler.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the file stays for recovery
+            }
+        }
+    }
+
+    private void deliver(Entry entry) {
+        synchronized (this) {
+            if (shutdown || pending.get(entry.key) != entry) {
+                return;   // superseded by a newer fingerprint
+            }
+        }
+        handleOutcome(entry, post(entry));
+    }
+
+    private void handleOutcome(Entry entry, Outcome outcome) {
+        if (outcome == Outcome.DELIVERED) {
+            complete(entry);
+            return;
+        }
+
+        long delay;
+        if (outcome == Outcome.BUSY) {
+            long now = System.currentTimeMillis();
+            if (entry.busySinceMs == 0L) {
+                entry.busySinceMs = now;
+            }
+            entry.busyRetries++;
+            if (now - entry.busySinceMs >= MAX_BUSY_MS) {
+                abandon(entry, "after the workflow endpoint stayed busy for " +
+                    TimeUnit.MILLISECONDS.toHours(now - entry.busySinceMs) + " hour(s)");
+                return;
+            }
+            delay = backoffMillis(entry.busyRetries);
+        } else {
+            entry.attempts++;
+            if (outcome == Outcome.REJECTED || entry.attempts >= MAX_ATTEMPTS) {
+                abandon(entry, "after " + entry.attempts + " attempt(s)");
+                return;
+            }
+            delay = backoffMillis(entry.attempts);
+        }
+        synchronized (this) {
+            if (pending.get(entry.key) != entry) {
+                return;
+            }
+            persist(entry);
+        }
+        schedule(entry, delay);
+    }
+
+    private void abandon(Entry entry, String reason) {
+        Msg.warn(this, "Giving up on Multi-Agent workflow trigger for " + entry.key + " " + reason);
+        if (complete(entry)) {
+            onAbandoned.accept(entry.key);
+        }
+    }
+
+    /** Remove a finished entry. @return false if a newer trigger already replaced it */
+    private boolean complete(Entry entry) {
+        synchronized (this) {
+            if (pending.get(entry.key) != entry) {
+                return false;
+            }
+            pending.remove(entry.key);
+            deleteQuietly(entry.file);
+        }
+        return true;
+    }
+
+    private static long backoffMillis(int attempts) {
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts - 1, 20));
+        // +-20% jitter so triggers that failed together do not retry together
+        long jitter = delay / 5;
+        return delay - jitter + ThreadLocalRandom.current().nextLong(2 * jitter + 1);
+    }
+
+    // ----------------------------
+    // Batching
+    // ----------------------------
+
+    /** The entry is due; it goes out with whatever else is due when the window closes. */
+    private void markReady(Entry entry) {
+        synchronized (this) {
+            if (shutdown || pending.get(entry.key) != entry) {
+                return;
+            }
+            entry.ready = true;
+            if (flushScheduled) {
+                return;
+            }
+            try {
+                scheduler.schedule(this::flush, Math.max(0L, batchWindowMs), TimeUnit.MILLISECONDS);
+                flushScheduled = true;
+            } catch (RejectedExecutionException e) {
+                // Shutting down; the file stays for recovery
+            }
+        }
+    }
+
+    private void flush() {
+        Map<String, List<Entry>> byUrl = new LinkedHashMap<>();
+        synchronized (this) {
+            flushScheduled = false;
+            if (shutdown) {
+                return;
+            }
+            for (Entry entry : pending.values()) {
+                if (entry.ready) {
+                    entry.ready = false;
+                    byUrl.computeIfAbsent(entry.url, ignored -> new ArrayList<>()).add(entry);
+                }
+            }
+        }
+        for (Map.Entry<String, List<Entry>> group : byUrl.entrySet()) {
+            List<Entry> entries = group.getValue();
+            for (int from = 0; from < entries.size(); from += MAX_BATCH_SIZE) {
+                List<Entry> batch = entries.subList(from, Math.min(entries.size(), from + MAX_BATCH_SIZE));
+                deliverBatch(group.getKey(), batch);
+            }
+        }
+    }
+
+    private void deliverBatch(String url, List<Entry> batch) {
+        if (batch.size() == 1) {
+            handleOutcome(batch.get(0), post(batch.get(0)));
+            return;
+        }
+        List<Outcome> outcomes = postBatch(url, batch);
+        if (outcomes == null) {
+            // Endpoint does not take arrays; fall back to one request per trigger
+            for (Entry entry : batch) {
+                handleOutcome(entry, post(entry));
+            }
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            handleOutcome(batch.get(i), outcomes.get(i));
+        }
+    }
+
+    /**
+     * POST the payloads as one JSON array.
+     * @return one outcome per entry, or null if the endpoint rejected the array itself or
+     *         answered without a results array
+     */
+    private List<Outcome> postBatch(String url, List<Entry> batch) {
+        StringBuilder body = new StringBuilder();
+        body.append('[');
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) body.append(',');
+            body.append(batch.get(i).payload);
+        }
+        body.append(']');
+
+        int status;
+        String response;
+        try {
+            String[] result = send(url, body.toString());
+            status = Integer.parseInt(result[0]);
+            response = result[1];
+        } catch (IOException e) {
+            Msg.info(this, "Multi-Agent-WF trigger endpoint not reachable at " + url +
+                "; will retry " + batch.size() + " batched trigger(s)");
+            return Collections.nCopies(batch.size(), Outcome.RETRY);
+        }
+
+        if (status >= 200 && status < 300) {
+            List<String> statuses = parseResultStatuses(response);
+            if (statuses == null) {
+                // No per-item results to go by; the endpoint dedupes repeats of a trigger
+                Msg.info(this, "Multi-Agent workflow endpoint answered a batch without results; " +
+                    "sending triggers individually");
+                return null;
+            }
+            List<Outcome> outcomes = new ArrayList<>(batch.size());
+            int accepted = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                // Items the response does not account for are not known to be taken
+                String itemStatus = (i < statuses.size()) ? statuses.get(i) : null;
+                Outcome outcome = (itemStatus == null) ? Outcome.RETRY : outcomeForItemStatus(itemStatus);
+                if ("accepted".equals(itemStatus)) {
+                    accepted++;
+                }
+                outcomes.add(outcome);
+            }
+            Msg.info(this, "Delivered " + batch.size() + " batched Multi-Agent workflow trigger(s) to " + url +
+                " (" + accepted + " accepted)");
+            return outcomes;
+        }
+        if (status == 409 || status == 429 || status >= 500) {
+            Msg.info(this, "Batched Multi-Agent workflow trigger got HTTP " + status + "; will retry " +
+                batch.size() + " trigger(s)");
+            return Collections.nCopies(batch.size(), (status >= 500) ? Outcome.RETRY : Outcome.BUSY);
+        }
+        Msg.info(this, "Multi-Agent workflow endpoint refused a batch with HTTP " + status +
+            "; sending triggers individually");
+        return null;
+    }
+
+    private static Outcome outcomeForItemStatus(String itemStatus) {
+        switch (itemStatus) {
+            case "accepted":
+            case "skipped":
+                return Outcome.DELIVERED;
+            case "busy":
+                return Outcome.BUSY;
+            default:
+                return Outcome.REJECTED;
+        }
+    }
+
+    /**
+     * The "status" of each object in the response's "results" array, in order, or null
+     * if there is no such array. Result objects are flat, so this only tracks strings
+     * and brace depth rather than parsing JSON in full.
+     */
+    static List<String> parseResultStatuses(String response) {
+        int start = response.indexOf("\"results\"");
+        if (start < 0) {
+            return null;
+        }
+        int open = response.indexOf('[', start);
+        if (open < 0) {
+            return null;
+        }
+        List<String> statuses = new ArrayList<>();
+        String currentStatus = null;
+        String lastString = null;
+        boolean expectStatusValue = false;
+        int depth = 0;
+        for (int i = open + 1; i < response.length(); i++) {
+            char c = response.charAt(i);
+            if (c == '"') {
+                StringBuilder sb = new StringBuilder();
+                for (i++; i < response.length() && response.charAt(i) != '"'; i++) {
+                    if (response.charAt(i) == '\\' && i + 1 < response.length()) {
+                        i++;
+                    }
+                    sb.append(response.charAt(i));
+                }
+                String value = sb.toString();
+                if (expectStatusValue) {
+                    currentStatus = value;
+                    expectStatusValue = false;
+                }
+                lastString = value;
+            } else if (c == ':') {
+                expectStatusValue = (depth == 1 && "status".equals(lastString));
+            } else if (c == ',') {
+                expectStatusValue = false;
+            } else if (c == '{') {
+                depth++;
+                if (depth == 1) {
+                    currentStatus = null;
+                }
+            } else if (c == '}') {
+                if (depth == 1) {
+                    statuses.add(currentStatus == null ? "" : currentStatus);
+                }
+                depth--;
+            } else if (c == ']' && depth == 0) {
+                break;
+            }
+        }
+        return statuses;
+    }
+
+    // ----------------------------
+    // HTTP
+    // ----------------------------
+
+    private Outcome post(Entry entry) {
+        try {
+            String[] result = send(entry.url, entry.payload);
+            int status = Integer.parseInt(result[0]);
+            String response = result[1];
+            if (status >= 200 && status < 300) {
+                if (response.contains("\"accepted\":false")) {
+                    Msg.info(this, "Multi-Agent workflow auto-trigger skipped for " + entry.key + " (duplicate or already triaged).");
+                } else {
+                    Msg.info(this, "Auto-triggered Multi-Agent workflow for " + entry.key);
+                }
+                return Outcome.DELIVERED;
+            }
+            if (status == 409) {
+                Msg.info(this, "Multi-Agent workflow is already running; will retry trigger for " + entry.key);
+                return Outcome.BUSY;
+            }
+            if (status == 429 || status >= 500) {
+                Msg.info(this, "Multi-Agent workflow trigger for " + entry.key + " got HTTP " + status + "; will retry");
+                return (status == 429) ? Outcome.BUSY : Outcome.RETRY;
+            }
+            Msg.warn(this, "Multi-Agent workflow trigger failed for " + entry.key +
+                " with HTTP " + status + (response.isEmpty() ? "" : (": " + response)));
+            return Outcome.REJECTED;
+        } catch (IOException e) {
+            Msg.info(this, "Multi-Agent-WF trigger endpoint not reachable at " + entry.url +
+                "; will retry trigger for " + entry.key);
+            return Outcome.RETRY;
+        } catch (RuntimeException e) {
+            Msg.warn(this, "Multi-Agent workflow trigger failed for " + entry.key + ": " + e.getMessage());
+            return Outcome.REJECTED;
+        }
+    }
+
+    /** POST a JSON body. @return {status code, response body} */
+    private static String[] send(String url, String json) throws IOException {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream os = connection.getOutputStream()) {
+                os.write(body);
+            }
+
+            int status = connection.getResponseCode();
+            return new String[] { Integer.toString(status), readResponseBody(connection) };
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private static String readResponseBody(HttpURLConnection connection) throws IOException {
+        InputStream stream;
+        try {
+            stream = connection.getResponseCode() >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        } catch (IOException ignored) {
+            stream = connection.getErrorStream();
+        }
+        if (stream == null) {
+            return "";
+        }
+        try (InputStream in = stream) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    // ----------------------------
+    // Persistence
+    // ----------------------------
+
+    /**
+     * Claim the first slot under the root that no other outbox holds, on first use.
+     * Caller holds the monitor.
+     * @return the slot directory, or null if none could be claimed
+     */
+    private File claimDirectory() {
+        if (claimAttempted) {
+            return directory;
+        }
+        claimAttempted = true;
+        for (int i = 0; i < MAX_SLOTS; i++) {
+            File slot = new File(root, SLOT_PREFIX + i);
+            FileChannel channel = null;
+            try {
+                Files.createDirectories(slot.toPath());
+                channel = FileChannel.open(new File(slot, LOCK_FILE_NAME).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = channel.tryLock();
+                if (lock != null) {
+                    lockChannel = channel;
+                    directory = slot;
+                    return slot;
+                }
+            } catch (IOException | OverlappingFileLockException e) {
+                // Held by this JVM or unusable; try the next slot
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {}
+            }
+        }
+        Msg.warn(this, "No free workflow trigger outbox slot under " + root +
+            "; pending triggers will not survive a restart");
+        return null;
+    }
+
+    /** Caller holds the monitor. @return null if no slot could be claimed */
+    private File fileFor(String key) {
+        File slot = claimDirectory();
+        return (slot == null) ? null : new File(slot, FILE_PREFIX + sha256Hex(key) + FILE_SUFFIX);
+    }
+
+    /**
+     * Write the entry via a temp file and rename, so a crash never leaves half a trigger.
+     * Caller holds the monitor.
+     */
+    private void persist(Entry entry) {
+        if (entry.file == null) {
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty("key", entry.key);
+        props.setProperty("fingerprint", entry.fingerprint);
+        props.setProperty("url", entry.url);
+        props.setProperty("attempts", Integer.toString(entry.attempts));
+        props.setProperty("busy_since", Long.toString(entry.busySinceMs));
+        props.setProperty("payload", entry.payload);
+        try {
+            Files.createDirectories(entry.file.getParentFile().toPath());
+            File tmp = new File(entry.file.getParentFile(), entry.file.getName() + ".tmp");
+            try (Writer out = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+                props.store(out, "GhidraMCP pending workflow trigger");
+            }
+            try {
+                Files.move(tmp.toPath(), entry.file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), entry.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Delivery still proceeds; only restart durability is lost
+            Msg.warn(this, "Could not persist workflow trigger for " + entry.key + ": " + e.getMessage());
+        }
+    }
+
+    private Entry load(File file) {
+        Properties props = new Properties();
+        try (Reader in = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            props.load(in);
+        } catch (IOException | IllegalArgumentException e) {
+            Msg.warn(this, "Discarding unreadable workflow trigger " + file + ": " + e.getMessage());
+            return null;
+        }
+        String key = props.getProperty("key");
+        String fingerprint = props.getProperty("fingerprint");
+        String url = props.getProperty("url");
+        String payload = props.getProperty("payload");
+        if (key == null || fingerprint == null || url == null || payload == null) {
+            return null;
+        }
+        int attempts;
+        try {
+            attempts = Integer.parseInt(props.getProperty("attempts", "0"));
+        } catch (NumberFormatException e) {
+            attempts = 0;
+        }
+        long busySinceMs;
+        try {
+            busySinceMs = Long.parseLong(props.getProperty("busy_since", "0"));
+        } catch (NumberFormatException e) {
+            busySinceMs = 0L;
+        }
+        return new Entry(key, fingerprint, url, payload, file, attempts, busySinceMs);
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            Msg.debug(WorkflowTriggerOutbox.class, "Could not delete " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.MattUng;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the batch response parsing of {@link WorkflowTriggerOutbox}.
+ */
+public class WorkflowTriggerOutboxTest extends TestCase {
+
+    public void testStatusesInOrder() {
+        String response = "{\"results\":[{\"status\":\"accepted\"},{\"status\":\"busy\"},"
+            + "{\"status\":\"skipped\"},{\"status\":\"rejected\"}]}";
+        assertEquals(Arrays.asList("accepted", "busy", "skipped", "rejected"),
+            WorkflowTriggerOutbox.parseResultStatuses(response));
+    }
+
+    public void testNoResultsArray() {
+        assertNull(WorkflowTriggerOutbox.parseResultStatuses("{\"accepted\":true}"));
+        assertNull(WorkflowTriggerOutbox.parseResultStatuses(""));
+    }
+
+    public void testEmptyResultsArray() {
+        assertEquals(Collections.emptyList(), WorkflowTriggerOutbox.parseResultStatuses("{\"results\":[]}"));
+    }
+
+    public void testObjectWithoutStatus() {
+        String response = "{\"results\":[{\"key\":\"a\"},{\"status\":\"accepted\"}]}";
+        assertEquals(Arrays.asList("", "accepted"), WorkflowTriggerOutbox.parseResultStatuses(response));
+    }
+
+    public void testEscapedQuotesAndBracesInStrings() {
+        String response = "{\"results\":[{\"message\":\"say \\\"status\\\": {x}]\",\"status\":\"busy\"},"
+            + "{\"status\":\"accepted\",\"key\":\"a\\\\\"}]}";
+        assertEquals(Arrays.asList("busy", "accepted"), WorkflowTriggerOutbox.parseResultStatuses(response));
+    }
+
+    public void testNestedObjectsDoNotSplitItems() {
+        String response = "{\"results\":[{\"detail\":{\"status\":\"rejected\",\"inner\":{}},\"status\":\"accepted\"},"
+            + "{\"status\":\"busy\",\"detail\":{\"status\":\"accepted\"}}]}";
+        assertEquals(Arrays.asList("accepted", "busy"), WorkflowTriggerOutbox.parseResultStatuses(response));
+    }
+
+    public void testStopsAtEndOfResults() {
+        String response = "{\"results\":[{\"status\":\"accepted\"}],\"extra\":[{\"status\":\"busy\"}]}";
+        assertEquals(Collections.singletonList("accepted"), WorkflowTriggerOutbox.parseResultStatuses(response));
+    }
+}
@@ -10,6 +10,7 @@ import argparse
 import json
 import logging
 import re
+from collections import OrderedDict
 from pathlib import Path
 from typing import Any, Dict, List
 
@@ -43,6 +44,77 @@ def _read_json(path: Path) -> Dict[str, Any]:
     return json.loads(path.read_text(encoding="utf-8"))
 
 
+class FunctionPack:
+    """Random-access reader for a sharded export's function pack.
+
+    The index maps each function address to the (offset, length) of its full JSON
+    record in the pack file, so one function is loaded by reading just its bytes.
+    Recently read records are kept in a small LRU cache. The index also lists the
+    whole-program sections (strings, data_items, refs_to, refs_from) that the export
+    moved into the pack. A missing or unreadable index or pack leaves the pack empty,
+    so callers fall back to the slim entries.
+    """
+
+    CACHE_SIZE = 256
+
+    def __init__(self, index_path: Path):
+        self.entries: Dict[str, tuple[int, int]] = {}
+        self.sections: Dict[str, tuple[int, int]] = {}
+        self._cache: "OrderedDict[str, Dict[str, Any]]" = OrderedDict()
+        self.pack_path = index_path
+        try:
+            index = _read_json(index_path)
+        except (OSError, ValueError) as exc:
+            logger.warning("ghidra function index unreadable, using slim entries: %s (%s)", index_path, exc)
+            return
+        if not isinstance(index, dict):
+            logger.warning("ghidra function index malformed, using slim entries: %s", index_path)
+            return
+        self.pack_path = index_path.parent / str(index.get("pack") or "")
+        if not self.pack_path.is_file():
+            logger.warning("ghidra function pack not found, using slim entries: %s", self.pack_path)
+            return
+        entries = index.get("entries") if isinstance(index.get("entries"), dict) else {}
+        self.entries = {
+            str(address).strip().lower(): (int(span[0]), int(span[1]))
+            for address, span in entries.items()
+            if isinstance(span, list) and len(span) == 2
+        }
+        sections = index.get("sections") if isinstance(index.get("sections"), dict) else {}
+        self.sections = {
+            str(name): (int(span[0]), int(span[1]))
+            for name, span in sections.items()
+            if isinstance(span, list) and len(span) == 2
+        }
+
+    def read(self, address: str) -> Dict[str, Any] | None:
+        key = str(address or "").strip().lower()
+        cached = self._cache.get(key)
+        if cached is not None:
+            self._cache.move_to_end(key)
+            return cached
+        span = self.entries.get(key)
+        if span is None:
+            return None
+        record = self._read_span(span)
+        self._cache[key] = record
+        if len(self._cache) > self.CACHE_SIZE:
+            self._cache.popitem(last=False)
+        return record
+
+    def read_section(self, name: str) -> Any:
+        span = self.sections.get(name)
+        if span is None:
+            return None
+        return self._read_span(span)
+
+    def _read_span(self, span: tuple[int, int]) -> Any:
+        offset, length = span
+        with self.pack_path.open("rb") as handle:
+            handle.seek(offset)
+            return json.loads(handle.read(length).decode("utf-8"))
+
+
 class ArtifactBundle:
     def __init__(self, bundle_dir: Path):
         self.bundle_dir = bundle_dir.resolve()
@@ -57,13 +129,18 @@ class ArtifactBundle:
         self.sections = list(self.data.get("sections") or [])
         self.imports = list(self.data.get("imports") or [])
         self.exports = list(self.data.get("exports") or [])
-        self.strings = list(self.data.get("strings") or [])
         self.functions = list(self.data.get("functions") or [])
         self.call_graph = list(self.data.get("call_graph") or [])
-        self.refs_to = self.data.get("refs_to") if isinstance(self.data.get("refs_to"), dict) else {}
-        self.refs_from = self.data.get("refs_from") if isinstance(self.data.get("refs_from"), dict) else {}
-        self.data_items = list(self.data.get("data_items") or [])
         self.root_functions = list(self.data.get("root_functions") or [])
+        # Sharded exports keep decompilation and disassembly in a pack file; the
+        # functions list above then holds slim entries only
+        self.function_pack: FunctionPack | None = None
+        index_name = str(self.data.get("function_index") or "").strip()
+        if index_name:
+            self.function_pack = FunctionPack(self.bundle_dir / index_name)
+        # strings, data_items, refs_to and refs_from: a sharded export keeps them in the
+        # function pack, so they are only read when a tool first asks for them
+        self._sections: Dict[str, Any] = {}
 
         self.functions_by_address: Dict[str, Dict[str, Any]] = {}
         self.functions_by_name: Dict[str, Dict[str, Any]] = {}
@@ -77,11 +154,48 @@ class ArtifactBundle:
             if name:
                 self.functions_by_name[name] = function
 
+    @property
+    def strings(self) -> List[Any]:
+        return self._section("strings", list)
+
+    @property
+    def data_items(self) -> List[Any]:
+        return self._section("data_items", list)
+
+    @property
+    def refs_to(self) -> Dict[str, Any]:
+        return self._section("refs_to", dict)
+
+    @property
+    def refs_from(self) -> Dict[str, Any]:
+        return self._section("refs_from", dict)
+
+    def _section(self, name: str, kind: type) -> Any:
+        if name in self._sections:
+            return self._sections[name]
+        value = self.data.get(name)
+        if value is None and self.function_pack is not None:
+            try:
+                value = self.function_pack.read_section(name)
+            except (OSError, ValueError) as exc:
+                logger.warning("ghidra section %s unreadable from function pack: %s", name, exc)
+                value = None
+        if not isinstance(value, kind):
+            value = kind()
+        self._sections[name] = value
+        return value
+
     def function_by_address(self, address: str) -> Dict[str, Any] | None:
-        return self.functions_by_address.get(str(address or "").strip().lower())
+        return self._full_entry(self.functions_by_address.get(str(address or "").strip().lower()))
 
     def function_by_name(self, name: str) -> Dict[str, Any] | None:
-        return self.functions_by_name.get(str(name or "").strip())
+        return self._full_entry(self.functions_by_name.get(str(name or "").strip()))
+
+    def _full_entry(self, function: Dict[str, Any] | None) -> Dict[str, Any] | None:
+        if function is None or self.function_pack is None:
+            return function
+        address = str(function.get("address") or function.get("entry") or "")
+        return self.function_pack.read(address) or function
 
 
 def _bundle() -> ArtifactBundle:
@@ -4,46 +4,101 @@
  */
 //@category Analysis
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.MessageDigest;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import ghidra.app.decompiler.DecompInterface;
 import ghidra.app.decompiler.DecompileResults;
 import ghidra.app.script.GhidraScript;
+import ghidra.framework.Application;
 import ghidra.program.model.address.Address;
 import ghidra.program.model.address.AddressIterator;
+import ghidra.program.model.address.AddressRange;
+import ghidra.program.model.address.AddressSet;
+import ghidra.program.model.address.AddressSpace;
+import ghidra.program.model.data.Array;
+import ghidra.program.model.data.Composite;
+import ghidra.program.model.data.DataType;
+import ghidra.program.model.data.DataTypeComponent;
+import ghidra.program.model.data.Enum;
+import ghidra.program.model.data.FunctionDefinition;
+import ghidra.program.model.data.Pointer;
+import ghidra.program.model.data.TypeDef;
 import ghidra.program.model.listing.CodeUnit;
 import ghidra.program.model.listing.Data;
 import ghidra.program.model.listing.DataIterator;
 import ghidra.program.model.listing.Function;
 import ghidra.program.model.listing.FunctionIterator;
+import ghidra.program.model.listing.FunctionManager;
 import ghidra.program.model.listing.Instruction;
 import ghidra.program.model.listing.InstructionIterator;
 import ghidra.program.model.listing.Listing;
 import ghidra.program.model.listing.Program;
+import ghidra.program.model.listing.Variable;
 import ghidra.program.model.mem.Memory;
 import ghidra.program.model.mem.MemoryBlock;
 import ghidra.program.model.symbol.RefType;
 import ghidra.program.model.symbol.Reference;
+import ghidra.program.model.symbol.ReferenceIterator;
+import ghidra.program.model.symbol.ReferenceManager;
 import ghidra.program.model.symbol.Symbol;
 import ghidra.program.model.symbol.SymbolIterator;
 import ghidra.program.model.symbol.SymbolTable;
+import ghidra.util.task.TaskMonitor;
 
 public class GhidraHeadlessExport extends GhidraScript {
 
+	private static final int MAX_ROOT_FUNCTIONS = 12;
+	// Functions each decompiler worker may run ahead of the writer
+	private static final int DECOMPILE_WINDOW_PER_WORKER = 4;
+	// Part of every fingerprint; bump when the decompiler setup or entry format changes
+	private static final String EXPORT_FORMAT_VERSION = "1";
+
+	// Data type path -> signature of its definition, for fingerprints
+	private final Map<String, String> typeSignatures = new HashMap<>();
+
 	private String safeString(Object value) {
 		return value == null ? "" : String.valueOf(value);
 	}
@@ -59,12 +114,7 @@ public class GhidraHeadlessExport extends GhidraScript {
 		try {
 			byte[] data = Files.readAllBytes(Path.of(path));
 			MessageDigest digest = MessageDigest.getInstance("SHA-256");
-			byte[] bytes = digest.digest(data);
-			StringBuilder builder = new StringBuilder();
-			for (byte b : bytes) {
-				builder.append(String.format("%02x", b));
-			}
-			return builder.toString();
+			return hex(digest.digest(data));
 		}
 		catch (Exception exc) {
 			return "";
@@ -195,12 +245,8 @@ public class GhidraHeadlessExport extends GhidraScript {
 		return strings;
 	}
 
-	private Map<String, Object> collectGlobalRefs(Program program, Map<String, String> importMap) {
-		Map<String, Object> result = new LinkedHashMap<>();
-		Map<String, List<Map<String, Object>>> refsTo = new LinkedHashMap<>();
-		Map<String, List<Map<String, Object>>> refsFrom = new LinkedHashMap<>();
+	private List<Map<String, Object>> collectDataItems(Program program) {
 		List<Map<String, Object>> dataItems = new ArrayList<>();
-
 		Listing listing = program.getListing();
 		SymbolTable symbolTable = program.getSymbolTable();
 
@@ -219,35 +265,7 @@ public class GhidraHeadlessExport extends GhidraScript {
 			item.put("data_type", safeString(data.getDataType().getName()));
 			dataItems.add(item);
 		}
-
-		InstructionIterator instrIter = listing.getInstructions(true);
-		while (instrIter.hasNext() && !monitor.isCancelled()) {
-			Instruction instruction = instrIter.next();
-			String fromAddress = addrString(instruction.getAddress());
-			for (Reference ref : instruction.getReferencesFrom()) {
-				Map<String, Object> refEntry = new LinkedHashMap<>();
-				String toAddress = addrString(ref.getToAddress());
-				refEntry.put("from_address", fromAddress);
-				refEntry.put("to_address", toAddress);
-				refEntry.put("ref_type", safeString(ref.getReferenceType()));
-				refEntry.put("operand_index", ref.getOperandIndex());
-				Data targetData = listing.getDataAt(ref.getToAddress());
-				if (isProbableString(targetData)) {
-					refEntry.put("string", dataText(targetData));
-				}
-				String importName = importMap.get(toAddress);
-				if (importName != null && !importName.isEmpty()) {
-					refEntry.put("import_name", importName);
-				}
-				refsFrom.computeIfAbsent(fromAddress, ignored -> new ArrayList<>()).add(refEntry);
-				refsTo.computeIfAbsent(toAddress, ignored -> new ArrayList<>()).add(refEntry);
-			}
-		}
-
-		result.put("refs_to", refsTo);
-		result.put("refs_from", refsFrom);
-		result.put("data_items", dataItems);
-		return result;
+		return dataItems;
 	}
 
 	private List<String> buildDisassembly(Listing listing, Function function) {
@@ -270,9 +288,10 @@ public class GhidraHeadlessExport extends GhidraScript {
 		return lines;
 	}
 
-	private String buildDecompilation(DecompInterface decomp, Function function, List<String> warnings) {
+	private String buildDecompilation(DecompInterface decomp, Function function, List<String> warnings,
+			TaskMonitor taskMonitor) {
 		try {
-			DecompileResults result = decomp.decompileFunction(function, 30, monitor);
+			DecompileResults result = decomp.decompileFunction(function, 30, taskMonitor);
 			if (result == null) {
 				warnings.add("Decompiler returned no result for " + safeString(function.getName()));
 				return "";
@@ -291,129 +310,936 @@ public class GhidraHeadlessExport extends GhidraScript {
 		}
 	}
 
-	private Map<String, Object> collectFunctions(Program program, Map<String, String> stringsByAddress,
-			Map<String, String> importMap, Map<String, List<Map<String, Object>>> refsTo) {
-		Map<String, Object> result = new LinkedHashMap<>();
-		List<Map<String, Object>> functions = new ArrayList<>();
-		List<Map<String, Object>> callGraph = new ArrayList<>();
-		List<String> warnings = new ArrayList<>();
-		List<String> failures = new ArrayList<>();
+	/** Decompiled C for one function plus the warnings raised while producing it. */
+	/** Writes one JSON value; used for the sections a sharded export moves into the pack. */
+	private interface JsonSection {
+		void write(JsonWriter json) throws IOException;
+	}
 
-		Listing listing = program.getListing();
-		DecompInterface decomp = new DecompInterface();
-		try {
-			decomp.openProgram(program);
+	private static final class DecompiledText {
+		final String c;
+		final List<String> warnings;
+
+		DecompiledText(String c, List<String> warnings) {
+			this.c = c;
+			this.warnings = warnings;
 		}
-		catch (Exception exc) {
-			failures.add("Failed to open decompiler: " + safeString(exc));
+	}
+
+	/**
+	 * Decompiles a fixed list of functions on a pool of DecompInterface instances. Workers
+	 * run ahead of the caller by a bounded window and results are handed back strictly in
+	 * list order, so the export stays in address order and at most the window's worth of
+	 * decompiled text is buffered. With a single worker everything runs inline.
+	 * Functions with a reusable previous decompilation are not decompiled; the reused text
+	 * is read back in their place when their turn comes.
+	 */
+	private final class DecompilerWorkers {
+		private final Program program;
+		private final List<Function> functions;
+		private final List<DecompInterface> instances = new ArrayList<>();
+		private final BlockingQueue<DecompInterface> idle;
+		private final ExecutorService executor;
+		private final ArrayDeque<Future<DecompiledText>> pending = new ArrayDeque<>();
+		private final ReusableDecompilations reusable;
+		private final int window;
+		private int submitted;
+		private int reused;
+
+		DecompilerWorkers(Program program, List<Function> functions, int workers,
+				ReusableDecompilations reusable, List<String> failures) {
+			this.program = program;
+			this.functions = functions;
+			this.reusable = reusable;
+			int toDecompile = 0;
+			for (Function function : functions) {
+				if (!reusable.contains(addrString(function.getEntryPoint()))) {
+					toDecompile++;
+				}
+			}
+			// Opening an instance starts a decompiler process; skip it when nothing needs one
+			int count = Math.min(workers, toDecompile);
+			for (int i = 0; i < count; i++) {
+				DecompInterface decomp = new DecompInterface();
+				try {
+					decomp.openProgram(program);
+				}
+				catch (Exception exc) {
+					failures.add("Failed to open decompiler: " + safeString(exc));
+					if (!instances.isEmpty()) {
+						decomp.dispose();
+						continue;
+					}
+				}
+				instances.add(decomp);
+			}
+			idle = new ArrayBlockingQueue<>(Math.max(1, instances.size()), false, instances);
+			window = Math.max(1, instances.size()) * DECOMPILE_WINDOW_PER_WORKER;
+			if (instances.size() > 1) {
+				AtomicInteger threadIds = new AtomicInteger();
+				executor = Executors.newFixedThreadPool(instances.size(), runnable -> {
+					Thread thread = new Thread(runnable, "HeadlessExport-Decompile-" + threadIds.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			else {
+				executor = null;
+			}
+		}
+
+		/**
+		 * Result for functions.get(index); must be called with index 0, 1, 2, ...
+		 */
+		DecompiledText take(int index) throws Exception {
+			Function function = functions.get(index);
+			if (executor == null) {
+				DecompiledText cached = takeReusable(function);
+				if (cached != null) {
+					return cached;
+				}
+				List<String> warnings = new ArrayList<>();
+				String c = buildDecompilation(inlineInstance(), function, warnings, monitor);
+				return new DecompiledText(c, warnings);
+			}
+			while (submitted < functions.size() && submitted < index + window) {
+				Function next = functions.get(submitted++);
+				DecompiledText cached = takeReusable(next);
+				if (cached != null) {
+					pending.addLast(CompletableFuture.completedFuture(cached));
+				}
+				else {
+					pending.addLast(executor.submit(() -> decompileOnWorker(next)));
+				}
+			}
+			return pending.removeFirst().get();
+		}
+
+		int reusedCount() {
+			return reused;
+		}
+
+		private DecompiledText takeReusable(Function function) {
+			DecompiledText cached = reusable.take(addrString(function.getEntryPoint()));
+			if (cached != null) {
+				reused++;
+			}
+			return cached;
+		}
+
+		/**
+		 * The instance used without a pool. None is opened up front when every function was
+		 * expected to be reused, so one is opened here if a reused record turns out unusable.
+		 */
+		private DecompInterface inlineInstance() throws Exception {
+			if (instances.isEmpty()) {
+				DecompInterface decomp = new DecompInterface();
+				decomp.openProgram(program);
+				instances.add(decomp);
+			}
+			return instances.get(0);
+		}
+
+		private DecompiledText decompileOnWorker(Function function) throws InterruptedException {
+			List<String> warnings = new ArrayList<>();
+			if (monitor.isCancelled()) {
+				return new DecompiledText("", warnings);
+			}
+			DecompInterface decomp = idle.take();
+			try {
+				// Each worker gets its own monitor; cancellation is checked above instead
+				return new DecompiledText(buildDecompilation(decomp, function, warnings, TaskMonitor.DUMMY), warnings);
+			}
+			finally {
+				idle.add(decomp);
+			}
+		}
+
+		void dispose() {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			for (DecompInterface decomp : instances) {
+				try {
+					decomp.dispose();
+				}
+				catch (Exception ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sharded layout: writes each full function entry as one compact JSON record (plus a
+	 * newline) to a pack file, and returns a slim entry for ghidra_analysis.json without the
+	 * decompilation and disassembly but with the record's pack_offset and pack_length. An
+	 * index file maps each function address to its record so readers can load one function
+	 * without parsing the whole bundle. The large whole-program sections (strings,
+	 * data_items, refs_to, refs_from) are written to the pack as one record each and
+	 * listed under "sections" in the index, so readers load them only when asked for them
+	 * and ghidra_analysis.json stays small. Both file names carry a generation stamp and are
+	 * referenced from ghidra_analysis.json, so publishing a new pack never touches the files
+	 * the previous JSON points at; if the JSON is not published, the new files are removed.
+	 */
+	private final class FunctionPackWriter implements AutoCloseable {
+		private final Gson compact = new GsonBuilder().disableHtmlEscaping().create();
+		private final File packFile;
+		private final File indexFile;
+		private final File packTemp;
+		private final File indexTemp;
+		private final OutputStream pack;
+		private final Map<String, long[]> entries = new LinkedHashMap<>();
+		private final Map<String, long[]> sections = new LinkedHashMap<>();
+		private long position;
+		private boolean finished;
+		private boolean published;
+
+		FunctionPackWriter(File outputFile) throws IOException {
+			String base = outputFile.getName().replaceFirst("\\.json$", "");
+			long generation = System.currentTimeMillis();
+			packFile = new File(outputFile.getParentFile(), base + ".functions." + generation + ".pack");
+			indexFile = new File(outputFile.getParentFile(), base + ".functions." + generation + ".index.json");
+			packTemp = new File(packFile.getPath() + ".tmp");
+			indexTemp = new File(indexFile.getPath() + ".tmp");
+			pack = new BufferedOutputStream(new FileOutputStream(packTemp));
+		}
+
+		String packName() {
+			return packFile.getName();
+		}
+
+		String indexName() {
+			return indexFile.getName();
+		}
+
+		Map<String, Object> write(Map<String, Object> item) {
+			byte[] record = compact.toJson(item).getBytes(StandardCharsets.UTF_8);
+			try {
+				pack.write(record);
+				pack.write('\n');
+			}
+			catch (IOException exc) {
+				throw new UncheckedIOException(exc);
+			}
+			long offset = position;
+			position += record.length + 1;
+			String address = safeString(item.get("address"));
+			entries.put(address, new long[] { offset, record.length });
+
+			Map<String, Object> slim = new LinkedHashMap<>(item);
+			slim.remove("decompilation");
+			slim.remove("disassembly");
+			slim.put("pack_offset", offset);
+			slim.put("pack_length", record.length);
+			return slim;
+		}
+
+		/** Writes one whole-program section as a single record, streamed straight to the pack. */
+		void writeSection(String name, JsonSection section) throws IOException {
+			long offset = position;
+			OutputStream counting = new FilterOutputStream(pack) {
+				@Override
+				public void write(int b) throws IOException {
+					out.write(b);
+					position++;
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					out.write(b, off, len);
+					position += len;
+				}
+			};
+			// Not closed: that would close the pack
+			JsonWriter json = new JsonWriter(new BufferedWriter(new OutputStreamWriter(counting, StandardCharsets.UTF_8)));
+			json.setHtmlSafe(false);
+			section.write(json);
+			json.flush();
+			sections.put(name, new long[] { offset, position - offset });
+			pack.write('\n');
+			position++;
+		}
+
+		void finish() throws IOException {
+			pack.close();
+			try (JsonWriter json = new JsonWriter(new BufferedWriter(new FileWriter(indexTemp)))) {
+				json.beginObject();
+				json.name("schema_version").value(1);
+				json.name("pack").value(packFile.getName());
+				writeSpans(json, "entries", entries);
+				writeSpans(json, "sections", sections);
+				json.endObject();
+			}
+			Files.move(packTemp.toPath(), packFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			Files.move(indexTemp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			finished = true;
 		}
 
+		private void writeSpans(JsonWriter json, String name, Map<String, long[]> spans) throws IOException {
+			json.name(name);
+			json.beginObject();
+			for (Map.Entry<String, long[]> span : spans.entrySet()) {
+				json.name(span.getKey());
+				json.beginArray().value(span.getValue()[0]).value(span.getValue()[1]).endArray();
+			}
+			json.endObject();
+		}
+
+		void markPublished() {
+			published = true;
+		}
+
+		@Override
+		public void close() {
+			if (published) {
+				return;
+			}
+			if (finished) {
+				packFile.delete();
+				indexFile.delete();
+				return;
+			}
+			try {
+				pack.close();
+			}
+			catch (IOException ignored) {
+			}
+			packTemp.delete();
+			indexTemp.delete();
+		}
+	}
+
+	private List<Function> listFunctions(Program program) {
 		FunctionIterator functionIter = program.getFunctionManager().getFunctions(true);
 		List<Function> allFunctions = new ArrayList<>();
 		while (functionIter.hasNext() && !monitor.isCancelled()) {
 			allFunctions.add(functionIter.next());
 		}
+		return allFunctions;
+	}
 
-		for (Function function : allFunctions) {
-			String entry = addrString(function.getEntryPoint());
-			List<Map<String, Object>> callers = new ArrayList<>();
-			try {
-				for (Function caller : function.getCallingFunctions(monitor)) {
-					Map<String, Object> item = new LinkedHashMap<>();
-					item.put("name", safeString(caller.getName()));
-					item.put("address", addrString(caller.getEntryPoint()));
-					callers.add(item);
+	/** Growable int array for the per-function reference indexes. */
+	private static final class IntList {
+		private int[] values = new int[4];
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		/** Distinct values in ascending order. */
+		int[] sortedUnique() {
+			int[] sorted = Arrays.copyOf(values, size);
+			Arrays.sort(sorted);
+			int count = 0;
+			for (int i = 0; i < sorted.length; i++) {
+				if (count == 0 || sorted[count - 1] != sorted[i]) {
+					sorted[count++] = sorted[i];
 				}
 			}
-			catch (Exception ignored) {
+			return Arrays.copyOf(sorted, count);
+		}
+
+		/** Distinct values in the order they were first added. */
+		int[] uniqueInOrder() {
+			Set<Integer> seen = new LinkedHashSet<>();
+			for (int i = 0; i < size; i++) {
+				seen.add(values[i]);
 			}
+			int[] result = new int[seen.size()];
+			int i = 0;
+			for (int value : seen) {
+				result[i++] = value;
+			}
+			return result;
+		}
+	}
 
-			List<Map<String, Object>> callees = new ArrayList<>();
-			try {
-				for (Function callee : function.getCalledFunctions(monitor)) {
-					String calleeAddress = addrString(callee.getEntryPoint());
-					String calleeName = safeString(callee.getName());
-					Map<String, Object> item = new LinkedHashMap<>();
-					item.put("name", calleeName);
-					item.put("address", calleeAddress);
-					callees.add(item);
+	/**
+	 * Everything the export needs from instruction references, gathered in one walk over
+	 * the program's instructions: each function's callers and callees, the strings and
+	 * imports it references, and the reference part of its fingerprint. The refs_to and
+	 * refs_from sections are not held here; writeRefsFrom and writeRefsTo produce them
+	 * while the bundle is written. Functions are identified by their index in the address-ordered function
+	 * list; external functions that are called get ids after it, and strings and imports
+	 * are identified by their position in their own sections.
+	 */
+	private static final class ReferenceIndex {
+		final List<Function> nodes;
+		final List<String> stringAddresses;
+		final List<String> importAddresses;
+		final Address[] entries;
+		final Map<Address, Integer> externalIds = new HashMap<>();
+		final IntList[] callers;
+		final IntList[] callees;
+		final IntList[] stringRefs;
+		final IntList[] importRefs;
+		final MessageDigest[] fingerprintDigests;
+		int referenceCount;
 
-					Map<String, Object> edge = new LinkedHashMap<>();
-					edge.put("caller_name", safeString(function.getName()));
-					edge.put("caller_address", entry);
-					edge.put("callee_name", calleeName);
-					edge.put("callee_address", calleeAddress);
-					callGraph.add(edge);
-				}
+		ReferenceIndex(List<Function> functions, Map<String, String> stringsByAddress, Map<String, String> importMap) {
+			int count = functions.size();
+			nodes = new ArrayList<>(functions);
+			stringAddresses = new ArrayList<>(stringsByAddress.keySet());
+			importAddresses = new ArrayList<>(importMap.keySet());
+			entries = new Address[count];
+			callers = new IntList[count];
+			callees = new IntList[count];
+			stringRefs = new IntList[count];
+			importRefs = new IntList[count];
+			fingerprintDigests = new MessageDigest[count];
+			for (int i = 0; i < count; i++) {
+				entries[i] = functions.get(i).getEntryPoint();
+				callers[i] = new IntList();
+				callees[i] = new IntList();
+				stringRefs[i] = new IntList();
+				importRefs[i] = new IntList();
 			}
-			catch (Exception ignored) {
+		}
+
+		/** Index of the (non-external) function starting at address, or -1. */
+		int functionAt(Address address) {
+			int index = Arrays.binarySearch(entries, address);
+			return index >= 0 ? index : -1;
+		}
+	}
+
+	/**
+	 * Walks every instruction reference in the program once and builds the ReferenceIndex.
+	 * Fingerprints are started here (see startFingerprint) so their reference lines can be
+	 * added during the same walk.
+	 */
+	private ReferenceIndex indexReferences(Program program, List<Function> functions,
+			Map<String, String> stringsByAddress, Map<String, String> importMap) throws Exception {
+		ReferenceIndex index = new ReferenceIndex(functions, stringsByAddress, importMap);
+		Map<String, Integer> stringIds = new HashMap<>();
+		for (int i = 0; i < index.stringAddresses.size(); i++) {
+			stringIds.put(index.stringAddresses.get(i), i);
+		}
+		Map<String, Integer> importIds = new HashMap<>();
+		for (int i = 0; i < index.importAddresses.size(); i++) {
+			importIds.put(index.importAddresses.get(i), i);
+		}
+		String salt = EXPORT_FORMAT_VERSION + "|" + safeString(Application.getApplicationVersion()) + "|" +
+			safeString(program.getLanguageID().getIdAsString()) + "|" +
+			safeString(program.getCompilerSpec().getCompilerSpecID().getIdAsString());
+		for (int i = 0; i < functions.size() && !monitor.isCancelled(); i++) {
+			index.fingerprintDigests[i] = startFingerprint(program, functions.get(i), salt);
+		}
+
+		Listing listing = program.getListing();
+		FunctionManager functionManager = program.getFunctionManager();
+		SymbolTable symbolTable = program.getSymbolTable();
+		Map<Integer, String> prototypes = new HashMap<>();
+		Function currentFunction = null;
+		int current = -1;
+
+		InstructionIterator instrIter = listing.getInstructions(true);
+		while (instrIter.hasNext() && !monitor.isCancelled()) {
+			Instruction instruction = instrIter.next();
+			Reference[] refs = instruction.getReferencesFrom();
+			if (refs.length == 0) {
+				continue;
 			}
+			Address from = instruction.getAddress();
+			// Instructions arrive in address order, so the owning function rarely changes
+			if (currentFunction == null || !currentFunction.getBody().contains(from)) {
+				currentFunction = functionManager.getFunctionContaining(from);
+				current = currentFunction == null ? -1 : index.functionAt(currentFunction.getEntryPoint());
+			}
+			for (Reference ref : refs) {
+				index.referenceCount++;
+				if (current < 0) {
+					continue;
+				}
+				Address to = ref.getToAddress();
+				String toAddress = addrString(to);
+				Integer stringId = stringIds.get(toAddress);
+				if (stringId != null) {
+					index.stringRefs[current].add(stringId);
+				}
+				Integer importId = importIds.get(toAddress);
+				if (importId != null) {
+					index.importRefs[current].add(importId);
+				}
 
-			List<Map<String, Object>> stringRefs = new ArrayList<>();
-			List<Map<String, Object>> importRefs = new ArrayList<>();
-			Set<String> seenStrings = new LinkedHashSet<>();
-			Set<String> seenImports = new LinkedHashSet<>();
-			InstructionIterator bodyIter = listing.getInstructions(function.getBody(), true);
-			while (bodyIter.hasNext() && !monitor.isCancelled()) {
-				Instruction instruction = bodyIter.next();
-				for (Reference ref : instruction.getReferencesFrom()) {
-					String toAddress = addrString(ref.getToAddress());
-					String stringValue = stringsByAddress.get(toAddress);
-					if (stringValue != null) {
-						String key = toAddress + "\u0000" + stringValue;
-						if (seenStrings.add(key)) {
-							Map<String, Object> item = new LinkedHashMap<>();
-							item.put("address", toAddress);
-							item.put("value", stringValue);
-							stringRefs.add(item);
+				int target = index.functionAt(to);
+				if (target < 0 && to.isExternalAddress()) {
+					Integer externalId = index.externalIds.get(to);
+					if (externalId == null) {
+						Function external = functionManager.getFunctionAt(to);
+						externalId = external == null ? -1 : index.nodes.size();
+						if (external != null) {
+							index.nodes.add(external);
 						}
+						index.externalIds.put(to, externalId);
 					}
-					String importName = importMap.get(toAddress);
-					if (importName != null) {
-						String key = toAddress + "\u0000" + importName;
-						if (seenImports.add(key)) {
-							Map<String, Object> item = new LinkedHashMap<>();
-							item.put("address", toAddress);
-							item.put("name", importName);
-							importRefs.add(item);
-						}
+					target = externalId;
+				}
+				if (target >= 0) {
+					index.callees[current].add(target);
+					if (target < index.entries.length) {
+						index.callers[target].add(current);
 					}
 				}
+
+				MessageDigest digest = index.fingerprintDigests[current];
+				if (digest != null) {
+					Symbol targetSymbol = symbolTable.getPrimarySymbol(to);
+					updateDigest(digest, ref.getFromAddress() + ">" + to + ":" + ref.getReferenceType() + ":" +
+						(targetSymbol == null ? "" : targetSymbol.getName(true)));
+					Data targetData = listing.getDataAt(to);
+					if (targetData != null) {
+						updateDigest(digest, typeSignature(targetData.getDataType()));
+					}
+					if (target >= 0 && ref.getReferenceType().isCall()) {
+						final int callee = target;
+						updateDigest(digest, prototypes.computeIfAbsent(callee,
+							ignored -> index.nodes.get(callee).getPrototypeString(true, true)));
+					}
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * The refs_from section: every instruction's references, one group per instruction in
+	 * address order. Each group is handed to sink as soon as it is built.
+	 */
+	private void writeRefsFrom(Program program, Map<String, String> importMap,
+			BiConsumer<String, List<Map<String, Object>>> sink) {
+		Listing listing = program.getListing();
+		InstructionIterator instrIter = listing.getInstructions(true);
+		while (instrIter.hasNext() && !monitor.isCancelled()) {
+			Instruction instruction = instrIter.next();
+			Reference[] refs = instruction.getReferencesFrom();
+			if (refs.length == 0) {
+				continue;
+			}
+			List<Map<String, Object>> group = new ArrayList<>(refs.length);
+			for (Reference ref : refs) {
+				group.add(referenceEntry(listing, ref, importMap));
+			}
+			sink.accept(addrString(instruction.getAddress()), group);
+		}
+	}
+
+	/**
+	 * The refs_to section: the instruction references to each destination, in destination
+	 * order, read back from the reference manager one destination at a time instead of
+	 * inverting refs_from in memory.
+	 */
+	private void writeRefsTo(Program program, Map<String, String> importMap,
+			BiConsumer<String, List<Map<String, Object>>> sink) {
+		Listing listing = program.getListing();
+		ReferenceManager referenceManager = program.getReferenceManager();
+		AddressSet destinations = new AddressSet(program.getMemory());
+		destinations.add(AddressSpace.EXTERNAL_SPACE.getMinAddress(), AddressSpace.EXTERNAL_SPACE.getMaxAddress());
+		AddressIterator toIter = referenceManager.getReferenceDestinationIterator(destinations, true);
+		while (toIter.hasNext() && !monitor.isCancelled()) {
+			Address to = toIter.next();
+			List<Map<String, Object>> group = new ArrayList<>();
+			ReferenceIterator refs = referenceManager.getReferencesTo(to);
+			while (refs.hasNext()) {
+				Reference ref = refs.next();
+				// Same references as refs_from: only those made by instructions
+				if (listing.getInstructionAt(ref.getFromAddress()) != null) {
+					group.add(referenceEntry(listing, ref, importMap));
+				}
 			}
+			if (!group.isEmpty()) {
+				sink.accept(addrString(to), group);
+			}
+		}
+	}
 
-			Map<String, Object> item = new LinkedHashMap<>();
-			item.put("name", safeString(function.getName()));
-			item.put("address", entry);
-			item.put("entry", entry);
-			item.put("signature", safeString(function.getSignature()));
-			item.put("prototype", safeString(function.getPrototypeString(true, true)));
-			item.put("namespace", function.getParentNamespace() == null ? "" : safeString(function.getParentNamespace().getName()));
-			item.put("is_external", function.isExternal());
-			item.put("is_thunk", function.isThunk());
-			item.put("callers", callers);
-			item.put("callees", callees);
-			item.put("xref_count", refsTo.getOrDefault(entry, List.of()).size());
-			item.put("string_refs", stringRefs);
-			item.put("import_refs", importRefs);
-			item.put("decompilation", buildDecompilation(decomp, function, warnings));
-			item.put("disassembly", buildDisassembly(listing, function));
-			functions.add(item);
+	private Map<String, Object> referenceEntry(Listing listing, Reference ref, Map<String, String> importMap) {
+		Address to = ref.getToAddress();
+		String toAddress = addrString(to);
+		Map<String, Object> refEntry = new LinkedHashMap<>();
+		refEntry.put("from_address", addrString(ref.getFromAddress()));
+		refEntry.put("to_address", toAddress);
+		refEntry.put("ref_type", safeString(ref.getReferenceType()));
+		refEntry.put("operand_index", ref.getOperandIndex());
+		Data targetData = listing.getDataAt(to);
+		if (isProbableString(targetData)) {
+			refEntry.put("string", dataText(targetData));
+		}
+		String importName = importMap.get(toAddress);
+		if (importName != null && !importName.isEmpty()) {
+			refEntry.put("import_name", importName);
 		}
+		return refEntry;
+	}
 
+	/** Writes one of the reference sections as a JSON object of address to entries. */
+	private void writeReferenceSection(JsonWriter json, Gson gson,
+			Consumer<BiConsumer<String, List<Map<String, Object>>>> section) throws IOException {
+		json.beginObject();
 		try {
-			decomp.dispose();
+			section.accept((address, group) -> {
+				try {
+					json.name(address);
+					gson.toJson(group, List.class, json);
+				}
+				catch (IOException exc) {
+					throw new UncheckedIOException(exc);
+				}
+			});
 		}
-		catch (Exception ignored) {
+		catch (UncheckedIOException exc) {
+			throw exc.getCause();
+		}
+		json.endObject();
+	}
+
+	/**
+	 * Starts the fingerprint of a function with everything its decompilation depends on
+	 * apart from its references: the body bytes, the signature and local variables and the
+	 * comments in the body. Parameter and local types are hashed by definition, so editing
+	 * a structure they use changes the fingerprint. The salt (export format, Ghidra version,
+	 * language and compiler) keeps bundles from a different setup from ever matching.
+	 * indexReferences adds every reference out of the body along with the target's name
+	 * (and prototype, for calls) and the type of any data it points at.
+	 */
+	private MessageDigest startFingerprint(Program program, Function function, String salt) throws Exception {
+		Listing listing = program.getListing();
+		Memory memory = program.getMemory();
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		updateDigest(digest, salt);
+		updateDigest(digest, function.getName());
+		updateDigest(digest, function.getPrototypeString(true, true));
+		updateDigest(digest, function.getCallingConventionName());
+		updateDigest(digest, typeSignature(function.getReturnType()));
+		for (Variable variable : function.getParameters()) {
+			updateDigest(digest, typeSignature(variable.getDataType()));
+		}
+		for (Variable variable : function.getLocalVariables()) {
+			updateDigest(digest, variable.getName() + ":" + variable.getDataType().getPathName() + "@" +
+				variable.getVariableStorage());
+			updateDigest(digest, typeSignature(variable.getDataType()));
+		}
+		for (AddressRange range : function.getBody()) {
+			updateDigest(digest, range.getMinAddress() + "-" + range.getMaxAddress());
+			byte[] bytes = new byte[(int) Math.min(range.getLength(), Integer.MAX_VALUE)];
+			try {
+				memory.getBytes(range.getMinAddress(), bytes);
+			}
+			catch (Exception exc) {
+				updateDigest(digest, "unreadable");
+			}
+			digest.update(bytes);
+		}
+		AddressIterator commentIter = listing.getCommentAddressIterator(function.getBody(), true);
+		while (commentIter.hasNext()) {
+			Address address = commentIter.next();
+			CodeUnit codeUnit = listing.getCodeUnitAt(address);
+			if (codeUnit == null) {
+				continue;
+			}
+			for (int type : new int[] { CodeUnit.PRE_COMMENT, CodeUnit.POST_COMMENT, CodeUnit.PLATE_COMMENT,
+				CodeUnit.EOL_COMMENT, CodeUnit.REPEATABLE_COMMENT }) {
+				updateDigest(digest, address + "#" + type + "=" + codeUnit.getComment(type));
+			}
+		}
+		return digest;
+	}
+
+	/**
+	 * Hash of a data type's definition: its size plus the layout of composites, enum values,
+	 * typedef, pointer and array targets and function definition prototypes, followed
+	 * recursively. A type reached again while it is being hashed contributes only its path.
+	 */
+	private String typeSignature(DataType dataType) throws Exception {
+		if (dataType == null) {
+			return "";
+		}
+		String path = dataType.getPathName();
+		String cached = typeSignatures.get(path);
+		if (cached != null) {
+			return cached;
+		}
+		typeSignatures.put(path, path);
+		StringBuilder definition = new StringBuilder(path).append('/').append(dataType.getLength());
+		if (dataType instanceof TypeDef) {
+			definition.append('=').append(typeSignature(((TypeDef) dataType).getBaseDataType()));
+		}
+		else if (dataType instanceof Pointer) {
+			definition.append('*').append(typeSignature(((Pointer) dataType).getDataType()));
+		}
+		else if (dataType instanceof Array) {
+			Array array = (Array) dataType;
+			definition.append('[').append(array.getNumElements()).append(']')
+				.append(typeSignature(array.getDataType()));
+		}
+		else if (dataType instanceof Composite) {
+			for (DataTypeComponent component : ((Composite) dataType).getDefinedComponents()) {
+				definition.append('{').append(component.getOffset()).append(':')
+					.append(component.getFieldName()).append(':')
+					.append(typeSignature(component.getDataType())).append('}');
+			}
+		}
+		else if (dataType instanceof Enum) {
+			Enum enumType = (Enum) dataType;
+			for (String name : enumType.getNames()) {
+				definition.append('{').append(name).append('=').append(enumType.getValue(name)).append('}');
+			}
+		}
+		else if (dataType instanceof FunctionDefinition) {
+			definition.append('(').append(((FunctionDefinition) dataType).getPrototypeString(true)).append(')');
+		}
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		updateDigest(digest, definition.toString());
+		String signature = hex(digest.digest());
+		typeSignatures.put(path, signature);
+		return signature;
+	}
+
+	/** Finished fingerprints keyed by entry address. */
+	private Map<String, String> finishFingerprints(ReferenceIndex index) {
+		Map<String, String> fingerprints = new LinkedHashMap<>();
+		for (int i = 0; i < index.entries.length; i++) {
+			if (index.fingerprintDigests[i] != null) {
+				fingerprints.put(addrString(index.entries[i]), hex(index.fingerprintDigests[i].digest()));
+			}
+		}
+		return fingerprints;
+	}
+
+	private void updateDigest(MessageDigest digest, String value) {
+		digest.update(safeString(value).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private String hex(byte[] bytes) {
+		StringBuilder builder = new StringBuilder();
+		for (byte b : bytes) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Decompilations that can be reused from a previous sharded bundle. Only the pack span
+	 * of each reusable function is held; its record is read from the previous pack when the
+	 * function's turn comes, so reused text never accumulates for the whole program.
+	 */
+	private final class ReusableDecompilations implements AutoCloseable {
+		private final Map<String, long[]> spans = new HashMap<>();
+		private RandomAccessFile pack;
+
+		boolean contains(String address) {
+			return spans.containsKey(address);
+		}
+
+		int size() {
+			return spans.size();
+		}
+
+		/** @return the previous decompilation, or null if there is none or it cannot be used */
+		DecompiledText take(String address) {
+			long[] span = spans.remove(address);
+			if (span == null || pack == null) {
+				return null;
+			}
+			try {
+				byte[] record = new byte[(int) span[1]];
+				pack.seek(span[0]);
+				pack.readFully(record);
+				JsonObject full = JsonParser.parseString(new String(record, StandardCharsets.UTF_8)).getAsJsonObject();
+				String decompilation = jsonText(full, "decompilation");
+				return decompilation.isBlank() ? null : new DecompiledText(decompilation, new ArrayList<>());
+			}
+			catch (Exception exc) {
+				println("Could not read previous decompilation of " + address + ": " + safeString(exc));
+				return null;
+			}
+		}
+
+		@Override
+		public void close() {
+			spans.clear();
+			if (pack != null) {
+				try {
+					pack.close();
+				}
+				catch (IOException ignored) {
+				}
+				pack = null;
+			}
+		}
+	}
+
+	/**
+	 * Reads the functions array of a previous sharded bundle and remembers the pack span of
+	 * every function whose fingerprint still matches and whose previous decompile succeeded
+	 * cleanly (no warnings). A missing or unreadable bundle, or one without a function pack,
+	 * just means nothing is reused.
+	 */
+	private ReusableDecompilations loadReusableDecompilations(File previousFile,
+			Map<String, String> fingerprints) {
+		ReusableDecompilations reusable = new ReusableDecompilations();
+		if (!previousFile.isFile()) {
+			println("Previous bundle not found, exporting everything: " + previousFile);
+			return reusable;
+		}
+		try (JsonReader reader = new JsonReader(new BufferedReader(new FileReader(previousFile)))) {
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if (name.equals("function_pack")) {
+					// Written before "functions", so the pack is open by the time entries arrive
+					reusable.pack = new RandomAccessFile(new File(previousFile.getParentFile(), reader.nextString()), "r");
+					continue;
+				}
+				if (!name.equals("functions") || reusable.pack == null) {
+					reader.skipValue();
+					continue;
+				}
+				reader.beginArray();
+				while (reader.hasNext()) {
+					JsonObject item = JsonParser.parseReader(reader).getAsJsonObject();
+					String address = jsonText(item, "address");
+					String fingerprint = jsonText(item, "fingerprint");
+					if (fingerprint.isEmpty() || !fingerprint.equals(fingerprints.get(address)) ||
+						!item.has("pack_offset") || !item.has("pack_length")) {
+						continue;
+					}
+					// Timeouts, exceptions and incomplete results are retried rather than reused
+					JsonElement previousWarnings = item.get("decompile_warnings");
+					if (previousWarnings == null || !previousWarnings.isJsonArray() ||
+						previousWarnings.getAsJsonArray().size() > 0) {
+						continue;
+					}
+					reusable.spans.put(address,
+						new long[] { item.get("pack_offset").getAsLong(), item.get("pack_length").getAsLong() });
+				}
+				reader.endArray();
+			}
+			reader.endObject();
+		}
+		catch (Exception exc) {
+			println("Could not read previous bundle, exporting everything: " + safeString(exc));
+			reusable.close();
+			return new ReusableDecompilations();
+		}
+		if (reusable.pack == null) {
+			println("Previous bundle has no function pack, exporting everything: " + previousFile);
+		}
+		return reusable;
+	}
+
+	private String jsonText(JsonObject item, String key) {
+		JsonElement value = item.get(key);
+		return (value == null || !value.isJsonPrimitive()) ? "" : value.getAsString();
+	}
+
+	/**
+	 * Builds one entry per function, in address order, and hands each to the sink as soon
+	 * as it is complete. The returned map carries call_graph, warnings and failures.
+	 */
+	private Map<String, Object> collectFunctions(Program program, List<Function> allFunctions,
+			Map<String, String> stringsByAddress, Map<String, String> importMap, ReferenceIndex refs,
+			int decompileWorkers, Map<String, String> fingerprints, ReusableDecompilations reusable,
+			Consumer<Map<String, Object>> sink) throws Exception {
+		Map<String, Object> result = new LinkedHashMap<>();
+		List<Map<String, Object>> callGraph = new ArrayList<>();
+		List<String> warnings = new ArrayList<>();
+		List<String> failures = new ArrayList<>();
+
+		Listing listing = program.getListing();
+		ReferenceManager referenceManager = program.getReferenceManager();
+		DecompilerWorkers decompilers =
+			new DecompilerWorkers(program, allFunctions, decompileWorkers, reusable, failures);
+		try {
+			for (int index = 0; index < allFunctions.size(); index++) {
+				Function function = allFunctions.get(index);
+				String entry = addrString(function.getEntryPoint());
+				List<Map<String, Object>> callers = new ArrayList<>();
+				for (int caller : refs.callers[index].sortedUnique()) {
+					callers.add(functionRef(refs.nodes.get(caller)));
+				}
+
+				List<Map<String, Object>> callees = new ArrayList<>();
+				for (int calleeIndex : refs.callees[index].sortedUnique()) {
+					Function callee = refs.nodes.get(calleeIndex);
+					callees.add(functionRef(callee));
+
+					Map<String, Object> edge = new LinkedHashMap<>();
+					edge.put("caller_name", safeString(function.getName()));
+					edge.put("caller_address", entry);
+					edge.put("callee_name", safeString(callee.getName()));
+					edge.put("callee_address", addrString(callee.getEntryPoint()));
+					callGraph.add(edge);
+				}
+
+				List<Map<String, Object>> stringRefs = new ArrayList<>();
+				for (int stringId : refs.stringRefs[index].uniqueInOrder()) {
+					String toAddress = refs.stringAddresses.get(stringId);
+					Map<String, Object> ref = new LinkedHashMap<>();
+					ref.put("address", toAddress);
+					ref.put("value", stringsByAddress.get(toAddress));
+					stringRefs.add(ref);
+				}
+
+				List<Map<String, Object>> importRefs = new ArrayList<>();
+				for (int importId : refs.importRefs[index].uniqueInOrder()) {
+					String toAddress = refs.importAddresses.get(importId);
+					Map<String, Object> ref = new LinkedHashMap<>();
+					ref.put("address", toAddress);
+					ref.put("name", importMap.get(toAddress));
+					importRefs.add(ref);
+				}
+
+				Map<String, Object> item = new LinkedHashMap<>();
+				item.put("name", safeString(function.getName()));
+				item.put("address", entry);
+				item.put("entry", entry);
+				item.put("signature", safeString(function.getSignature()));
+				item.put("prototype", safeString(function.getPrototypeString(true, true)));
+				item.put("namespace", function.getParentNamespace() == null ? "" : safeString(function.getParentNamespace().getName()));
+				item.put("is_external", function.isExternal());
+				item.put("is_thunk", function.isThunk());
+				item.put("callers", callers);
+				item.put("callees", callees);
+				item.put("xref_count", referenceManager.getReferenceCountTo(function.getEntryPoint()));
+				item.put("string_refs", stringRefs);
+				item.put("import_refs", importRefs);
+				DecompiledText decompiled = decompilers.take(index);
+				warnings.addAll(decompiled.warnings);
+				item.put("fingerprint", safeString(fingerprints.get(entry)));
+				item.put("decompilation", decompiled.c);
+				item.put("decompile_warnings", decompiled.warnings);
+				item.put("disassembly", buildDisassembly(listing, function));
+				sink.accept(item);
+			}
+		}
+		finally {
+			decompilers.dispose();
+		}
+		if (decompilers.reusedCount() > 0) {
+			println("Reused " + decompilers.reusedCount() + " of " + allFunctions.size() +
+				" decompilations from the previous bundle");
 		}
 
-		result.put("functions", functions);
 		result.put("call_graph", callGraph);
 		result.put("warnings", warnings);
 		result.put("failures", failures);
 		return result;
 	}
 
-	private Map<String, String> bestEffortEntryPoint(Program program, List<Map<String, Object>> functions) {
+	private Map<String, Object> functionRef(Function function) {
+		Map<String, Object> item = new LinkedHashMap<>();
+		item.put("name", safeString(function.getName()));
+		item.put("address", addrString(function.getEntryPoint()));
+		return item;
+	}
+
+	private Map<String, String> bestEffortEntryPoint(Program program, List<Function> functions) {
 		SymbolTable symbolTable = program.getSymbolTable();
 		for (String name : List.of("entry", "entry0", "main", "WinMain", "_start", "start")) {
 			try {
@@ -431,8 +1257,8 @@ public class GhidraHeadlessExport extends GhidraScript {
 		}
 		if (!functions.isEmpty()) {
 			Map<String, String> entry = new LinkedHashMap<>();
-			entry.put("name", safeString(functions.get(0).get("name")));
-			entry.put("address", safeString(functions.get(0).get("address")));
+			entry.put("name", safeString(functions.get(0).getName()));
+			entry.put("address", addrString(functions.get(0).getEntryPoint()));
 			return entry;
 		}
 		Map<String, String> empty = new LinkedHashMap<>();
@@ -444,23 +1270,183 @@ public class GhidraHeadlessExport extends GhidraScript {
 	private List<Map<String, Object>> determineRootFunctions(List<Map<String, Object>> functions) {
 		List<Map<String, Object>> roots = new ArrayList<>();
 		for (Map<String, Object> function : functions) {
-			String name = safeString(function.get("name"));
-			@SuppressWarnings("unchecked")
-			List<Map<String, Object>> callers = (List<Map<String, Object>>) function.get("callers");
-			boolean namedEntry = List.of("entry", "entry0", "main", "WinMain", "_start", "start").contains(name);
-			if (namedEntry || callers == null || callers.isEmpty()) {
-				Map<String, Object> item = new LinkedHashMap<>();
-				item.put("name", name);
-				item.put("address", safeString(function.get("address")));
-				roots.add(item);
-			}
-			if (roots.size() >= 12) {
+			addRootFunction(roots, function);
+			if (roots.size() >= MAX_ROOT_FUNCTIONS) {
 				break;
 			}
 		}
 		return roots;
 	}
 
+	private void addRootFunction(List<Map<String, Object>> roots, Map<String, Object> function) {
+		if (roots.size() >= MAX_ROOT_FUNCTIONS) {
+			return;
+		}
+		String name = safeString(function.get("name"));
+		@SuppressWarnings("unchecked")
+		List<Map<String, Object>> callers = (List<Map<String, Object>>) function.get("callers");
+		boolean namedEntry = List.of("entry", "entry0", "main", "WinMain", "_start", "start").contains(name);
+		if (namedEntry || callers == null || callers.isEmpty()) {
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("name", name);
+			item.put("address", safeString(function.get("address")));
+			roots.add(item);
+		}
+	}
+
+	/**
+	 * Parses the optional key=value script arguments that follow the output path.
+	 */
+	private Map<String, String> parseScriptOptions(String[] args) {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (int i = 1; i < args.length; i++) {
+			String arg = safeString(args[i]).trim();
+			int eq = arg.indexOf('=');
+			if (eq <= 0) {
+				throw new IllegalArgumentException("Expected key=value script argument, got: " + arg);
+			}
+			options.put(arg.substring(0, eq).trim().toLowerCase(), arg.substring(eq + 1).trim());
+		}
+		return options;
+	}
+
+	private boolean optionEnabled(Map<String, String> options, String key) {
+		String value = safeString(options.get(key)).toLowerCase();
+		return value.equals("true") || value.equals("1") || value.equals("yes");
+	}
+
+	private int optionInt(Map<String, String> options, String key, int defaultValue) {
+		String value = safeString(options.get(key));
+		if (value.isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Math.max(1, Integer.parseInt(value));
+		}
+		catch (NumberFormatException exc) {
+			throw new IllegalArgumentException("Expected an integer for " + key + ", got: " + value);
+		}
+	}
+
+	private Map<String, Object> buildProgramInfo(Program program, Map<String, String> entry) {
+		Map<String, Object> programInfo = new LinkedHashMap<>();
+		programInfo.put("name", safeString(program.getName()));
+		try {
+			programInfo.put("ghidraProjectPath", safeString(program.getDomainFile().getPathname()));
+		}
+		catch (Exception exc) {
+			programInfo.put("ghidraProjectPath", "");
+		}
+		String executablePath = safeString(program.getExecutablePath());
+		programInfo.put("executablePath", executablePath);
+		programInfo.put("executableMD5", safeString(program.getExecutableMD5()));
+		programInfo.put("executableSHA256", sha256ForPath(executablePath));
+		programInfo.put("language", safeString(program.getLanguageID().getIdAsString()));
+		programInfo.put("compiler", safeString(program.getCompilerSpec().getCompilerSpecID().getIdAsString()));
+		programInfo.put("endianness", program.getLanguage().isBigEndian() ? "big" : "little");
+		programInfo.put("imageBase", addrString(program.getImageBase()));
+		programInfo.put("entryPoint", safeString(entry.get("address")));
+		return programInfo;
+	}
+
+	/**
+	 * Writes the bundle field by field with a JsonWriter. Each function entry is written
+	 * as soon as it is built and then dropped, so decompilation and disassembly text never
+	 * accumulate for the whole program. Field order matches the in-memory export.
+	 */
+	private void writeStreamingExport(File tempFile, Gson gson, Program program, long generatedAtEpoch,
+			List<Function> allFunctions, List<Map<String, Object>> sections,
+			List<Map<String, Object>> imports, List<Map<String, Object>> exports,
+			List<Map<String, Object>> strings, Map<String, String> stringsByAddress,
+			Map<String, String> importMap, List<Map<String, Object>> dataItems, ReferenceIndex refs,
+			int decompileWorkers, Map<String, String> fingerprints, ReusableDecompilations reusable,
+			FunctionPackWriter pack) throws Exception {
+		Map<String, Object> counts = new LinkedHashMap<>();
+		counts.put("functions", allFunctions.size());
+		counts.put("strings", strings.size());
+		counts.put("imports", imports.size());
+		counts.put("exports", exports.size());
+		counts.put("references", refs.referenceCount);
+		counts.put("data_items", dataItems.size());
+
+		try (JsonWriter json = new JsonWriter(new BufferedWriter(new FileWriter(tempFile)))) {
+			json.setIndent("  ");
+			json.setHtmlSafe(false);
+			json.beginObject();
+			json.name("schema_version").value(1);
+			json.name("generated_at_epoch").value(generatedAtEpoch);
+			json.name("source").value("ghidra_headless_export");
+			if (pack != null) {
+				json.name("function_pack").value(pack.packName());
+				json.name("function_index").value(pack.indexName());
+			}
+			writeField(json, gson, "program", buildProgramInfo(program, bestEffortEntryPoint(program, allFunctions)));
+			writeField(json, gson, "counts", counts);
+			writeField(json, gson, "sections", sections);
+			writeField(json, gson, "imports", imports);
+			writeField(json, gson, "exports", exports);
+			if (pack == null) {
+				writeField(json, gson, "strings", strings);
+				writeField(json, gson, "data_items", dataItems);
+			}
+			else {
+				pack.writeSection("strings", section -> gson.toJson(strings, List.class, section));
+				pack.writeSection("data_items", section -> gson.toJson(dataItems, List.class, section));
+			}
+
+			List<Map<String, Object>> rootFunctions = new ArrayList<>();
+			json.name("functions");
+			json.beginArray();
+			Map<String, Object> functionData = collectFunctions(program, allFunctions, stringsByAddress,
+				importMap, refs, decompileWorkers, fingerprints, reusable, item -> {
+					Map<String, Object> written = pack == null ? item : pack.write(item);
+					addRootFunction(rootFunctions, written);
+					gson.toJson(written, Map.class, json);
+				});
+			json.endArray();
+
+			writeField(json, gson, "call_graph", functionData.get("call_graph"));
+			JsonSection refsTo = section -> writeReferenceSection(section, gson,
+				sink -> writeRefsTo(program, importMap, sink));
+			JsonSection refsFrom = section -> writeReferenceSection(section, gson,
+				sink -> writeRefsFrom(program, importMap, sink));
+			if (pack == null) {
+				json.name("refs_to");
+				refsTo.write(json);
+				json.name("refs_from");
+				refsFrom.write(json);
+			}
+			else {
+				pack.writeSection("refs_to", refsTo);
+				pack.writeSection("refs_from", refsFrom);
+			}
+			writeField(json, gson, "root_functions", rootFunctions);
+			writeField(json, gson, "autoAnalysisWarnings", functionData.get("warnings"));
+			writeField(json, gson, "autoAnalysisFailures", functionData.get("failures"));
+			json.endObject();
+		}
+	}
+
+	/**
+	 * Moves a completely written export into place. The function pack goes first so the
+	 * published JSON never refers to offsets in an older pack.
+	 */
+	private void publishExport(File tempFile, File outputFile, FunctionPackWriter pack) throws Exception {
+		monitor.checkCancelled();
+		if (pack != null) {
+			pack.finish();
+		}
+		Files.move(tempFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		if (pack != null) {
+			pack.markPublished();
+		}
+	}
+
+	private void writeField(JsonWriter json, Gson gson, String name, Object value) throws IOException {
+		json.name(name);
+		gson.toJson(value, value.getClass(), json);
+	}
+
 	@Override
 	public void run() throws Exception {
 		if (currentProgram == null) {
@@ -473,6 +1459,14 @@ public class GhidraHeadlessExport extends GhidraScript {
 		}
 
 		File outputFile = new File(args[0]).getAbsoluteFile();
+		Map<String, String> options = parseScriptOptions(args);
+		boolean stream = optionEnabled(options, "stream");
+		String layout = safeString(options.getOrDefault("layout", "single")).toLowerCase();
+		if (!layout.equals("single") && !layout.equals("sharded")) {
+			throw new IllegalArgumentException("layout must be single or sharded, got: " + layout);
+		}
+		boolean sharded = layout.equals("sharded");
+		int decompileWorkers = optionInt(options, "decompile_workers", Runtime.getRuntime().availableProcessors());
 		File outputDir = outputFile.getParentFile();
 		if (outputDir != null && !outputDir.exists()) {
 			outputDir.mkdirs();
@@ -494,83 +1488,103 @@ public class GhidraHeadlessExport extends GhidraScript {
 			stringsByAddress.put(safeString(item.get("address")), safeString(item.get("value")));
 		}
 
-		Map<String, Object> globalRefs = collectGlobalRefs(program, importMap);
-		@SuppressWarnings("unchecked")
-		Map<String, List<Map<String, Object>>> refsTo =
-			(Map<String, List<Map<String, Object>>>) globalRefs.get("refs_to");
-		@SuppressWarnings("unchecked")
-		Map<String, List<Map<String, Object>>> refsFrom =
-			(Map<String, List<Map<String, Object>>>) globalRefs.get("refs_from");
-		@SuppressWarnings("unchecked")
-		List<Map<String, Object>> dataItems =
-			(List<Map<String, Object>>) globalRefs.get("data_items");
+		List<Map<String, Object>> dataItems = collectDataItems(program);
+		List<Function> allFunctions = listFunctions(program);
+		ReferenceIndex refs = indexReferences(program, allFunctions, stringsByAddress, importMap);
+		Map<String, String> fingerprints = finishFingerprints(refs);
+		String previousPath = safeString(options.get("previous"));
+		ReusableDecompilations reusable = previousPath.isEmpty()
+				? new ReusableDecompilations()
+				: loadReusableDecompilations(new File(previousPath).getAbsoluteFile(), fingerprints);
+		Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
 
-		Map<String, Object> functionData = collectFunctions(program, stringsByAddress, importMap, refsTo);
-		@SuppressWarnings("unchecked")
-		List<Map<String, Object>> functions = (List<Map<String, Object>>) functionData.get("functions");
-		@SuppressWarnings("unchecked")
-		List<Map<String, Object>> callGraph = (List<Map<String, Object>>) functionData.get("call_graph");
-		@SuppressWarnings("unchecked")
-		List<String> warnings = (List<String>) functionData.get("warnings");
-		@SuppressWarnings("unchecked")
-		List<String> failures = (List<String>) functionData.get("failures");
+		// Written under a temporary name and moved into place once complete, so a failed or
+		// cancelled run never leaves a truncated bundle behind
+		File tempFile = new File(outputFile.getPath() + ".tmp");
+		FunctionPackWriter pack = sharded ? new FunctionPackWriter(outputFile) : null;
+		try {
+			if (stream) {
+				writeStreamingExport(tempFile, gson, program, generatedAtEpoch, allFunctions, sections, imports,
+					exports, strings, stringsByAddress, importMap, dataItems, refs, decompileWorkers, fingerprints,
+					reusable, pack);
+				publishExport(tempFile, outputFile, pack);
+				println("Wrote Ghidra headless export (streamed) to " + outputFile.getAbsolutePath());
+				return;
+			}
 
-		int xrefCount = 0;
-		for (List<Map<String, Object>> items : refsFrom.values()) {
-			xrefCount += items.size();
-		}
+			List<Map<String, Object>> functions = new ArrayList<>();
+			Map<String, Object> functionData =
+				collectFunctions(program, allFunctions, stringsByAddress, importMap, refs, decompileWorkers,
+					fingerprints, reusable, item -> functions.add(pack == null ? item : pack.write(item)));
+			@SuppressWarnings("unchecked")
+			List<Map<String, Object>> callGraph = (List<Map<String, Object>>) functionData.get("call_graph");
+			@SuppressWarnings("unchecked")
+			List<String> warnings = (List<String>) functionData.get("warnings");
+			@SuppressWarnings("unchecked")
+			List<String> failures = (List<String>) functionData.get("failures");
 
-		Map<String, String> entry = bestEffortEntryPoint(program, functions);
-		List<Map<String, Object>> rootFunctions = determineRootFunctions(functions);
+			Map<String, String> entry = bestEffortEntryPoint(program, allFunctions);
+			List<Map<String, Object>> rootFunctions = determineRootFunctions(functions);
+			Map<String, Object> programInfo = buildProgramInfo(program, entry);
 
-		Map<String, Object> programInfo = new LinkedHashMap<>();
-		programInfo.put("name", safeString(program.getName()));
-		try {
-			programInfo.put("ghidraProjectPath", safeString(program.getDomainFile().getPathname()));
-		}
-		catch (Exception exc) {
-			programInfo.put("ghidraProjectPath", "");
-		}
-		String executablePath = safeString(program.getExecutablePath());
-		programInfo.put("executablePath", executablePath);
-		programInfo.put("executableMD5", safeString(program.getExecutableMD5()));
-		programInfo.put("executableSHA256", sha256ForPath(executablePath));
-		programInfo.put("language", safeString(program.getLanguageID().getIdAsString()));
-		programInfo.put("compiler", safeString(program.getCompilerSpec().getCompilerSpecID().getIdAsString()));
-		programInfo.put("endianness", program.getLanguage().isBigEndian() ? "big" : "little");
-		programInfo.put("imageBase", addrString(program.getImageBase()));
-		programInfo.put("entryPoint", safeString(entry.get("address")));
-
-		Map<String, Object> counts = new LinkedHashMap<>();
-		counts.put("functions", functions.size());
-		counts.put("strings", strings.size());
-		counts.put("imports", imports.size());
-		counts.put("exports", exports.size());
-		counts.put("references", xrefCount);
-		counts.put("data_items", dataItems.size());
+			Map<String, Object> counts = new LinkedHashMap<>();
+			counts.put("functions", functions.size());
+			counts.put("strings", strings.size());
+			counts.put("imports", imports.size());
+			counts.put("exports", exports.size());
+			counts.put("references", refs.referenceCount);
+			counts.put("data_items", dataItems.size());
 
-		Map<String, Object> payload = new LinkedHashMap<>();
-		payload.put("schema_version", 1);
-		payload.put("generated_at_epoch", generatedAtEpoch);
-		payload.put("source", "ghidra_headless_export");
-		payload.put("program", programInfo);
-		payload.put("counts", counts);
-		payload.put("sections", sections);
-		payload.put("imports", imports);
-		payload.put("exports", exports);
-		payload.put("strings", strings);
-		payload.put("data_items", dataItems);
-		payload.put("functions", functions);
-		payload.put("call_graph", callGraph);
-		payload.put("refs_to", refsTo);
-		payload.put("refs_from", refsFrom);
-		payload.put("root_functions", rootFunctions);
-		payload.put("autoAnalysisWarnings", warnings);
-		payload.put("autoAnalysisFailures", failures);
+			Map<String, Object> payload = new LinkedHashMap<>();
+			payload.put("schema_version", 1);
+			payload.put("generated_at_epoch", generatedAtEpoch);
+			payload.put("source", "ghidra_headless_export");
+			if (pack != null) {
+				payload.put("function_pack", pack.packName());
+				payload.put("function_index", pack.indexName());
+			}
+			payload.put("program", programInfo);
+			payload.put("counts", counts);
+			payload.put("sections", sections);
+			payload.put("imports", imports);
+			payload.put("exports", exports);
+			if (pack == null) {
+				payload.put("strings", strings);
+				payload.put("data_items", dataItems);
+			}
+			payload.put("functions", functions);
+			payload.put("call_graph", callGraph);
+			if (pack == null) {
+				Map<String, List<Map<String, Object>>> refsTo = new LinkedHashMap<>();
+				writeRefsTo(program, importMap, refsTo::put);
+				payload.put("refs_to", refsTo);
+				Map<String, List<Map<String, Object>>> refsFrom = new LinkedHashMap<>();
+				writeRefsFrom(program, importMap, refsFrom::put);
+				payload.put("refs_from", refsFrom);
+			}
+			else {
+				pack.writeSection("strings", section -> gson.toJson(strings, List.class, section));
+				pack.writeSection("data_items", section -> gson.toJson(dataItems, List.class, section));
+				pack.writeSection("refs_to", section -> writeReferenceSection(section, gson,
+					sink -> writeRefsTo(program, importMap, sink)));
+				pack.writeSection("refs_from", section -> writeReferenceSection(section, gson,
+					sink -> writeRefsFrom(program, importMap, sink)));
+			}
+			payload.put("root_functions", rootFunctions);
+			payload.put("autoAnalysisWarnings", warnings);
+			payload.put("autoAnalysisFailures", failures);
 
-		Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
-		try (FileWriter writer = new FileWriter(outputFile)) {
-			gson.toJson(payload, writer);
+			try (FileWriter writer = new FileWriter(tempFile)) {
+				gson.toJson(payload, writer);
+			}
+			publishExport(tempFile, outputFile, pack);
+		}
+		finally {
+			if (pack != null) {
+				pack.close();
+			}
+			reusable.close();
+			tempFile.delete();
 		}
 
 		println("Wrote Ghidra headless export to " + outputFile.getAbsolutePath());
@@ -19,6 +19,7 @@ from contextlib import contextmanager
 import hashlib
 import json
 import os
+import re
 import shutil
 import subprocess
 import sys
@@ -31,7 +32,16 @@ from .samples import get_corpus_config, model_visible_sample_metadata, sample_sl
 from .subprocess_utils import normalize_timeout_sec, run_command, shorten_text, tool_available
 
 
-REQUIRED_BUNDLE_FILES = ("bundle_manifest.json", "ghidra_analysis.json")
+# The export runs with layout=sharded; its function pack and index carry a generation
+# stamp in their names, so they are required as referenced by ghidra_analysis.json
+REQUIRED_BUNDLE_FILES = (
+    "bundle_manifest.json",
+    "ghidra_analysis.json",
+)
+FUNCTION_PACK_GLOB = "ghidra_analysis.functions.*"
+# The export writes function_pack and function_index before any large section
+FUNCTION_PACK_HEADER_BYTES = 4096
+FUNCTION_PACK_REFERENCE_RE = re.compile(r'"(function_pack|function_index)"\s*:\s*"([^"\\]+)"')
 OPTIONAL_BUNDLE_FILES = ("automation_payload.json", "file_identity.json")
 BUNDLE_INPUT_FINGERPRINT_VERSION = "bundle_inputs_v1"
 BUNDLE_PREPARER_VERSION = "bundle_preparer_v1"
@@ -413,6 +423,7 @@ def _run_headless_export(
     project_parent = ensure_dir(bundle_dir / "_ghidra_project")
     project_name = sample_path.stem + "_batch"
     output_json = bundle_dir / "ghidra_analysis.json"
+    previous_json = bundle_dir / "ghidra_analysis.previous.json"
     log_path = bundle_dir / "ghidra_headless.log"
     script_path = (REPO_ROOT / "Testing" / "harness" / "GhidraHeadlessExport.java").resolve()
     normalized_timeout = normalize_timeout_sec(timeout_sec)
@@ -428,7 +439,14 @@ def _run_headless_export(
         "-postScript",
         script_path.name,
         str(output_json),
+        "stream=true",
+        "layout=sharded",
     ]
+    # Hand the last export to the script so unchanged functions are not decompiled again
+    if output_json.exists():
+        output_json.replace(previous_json)
+    if previous_json.exists():
+        command.append("previous=%s" % previous_json)
     if normalized_timeout is not None:
         command[6:6] = ["-analysisTimeoutPerFile", str(max(30, normalized_timeout))]
     if not keep_project:
@@ -439,6 +457,13 @@ def _run_headless_export(
         launch_env["JAVA_HOME"] = ghidra_java_home
     command_timeout = normalized_timeout + 60 if normalized_timeout is not None else None
     result = run_command(command, timeout_sec=command_timeout, env=launch_env or None)
+    if previous_json.exists():
+        # Keep the last good bundle unless this run produced a complete replacement
+        if bool(result.get("ok")) and _is_readable_json(output_json):
+            previous_json.unlink()
+        else:
+            previous_json.replace(output_json)
+    _remove_unreferenced_function_packs(bundle_dir, output_json)
     combined_log = (result.get("stdout") or "") + ("\n" + result.get("stderr") if result.get("stderr") else "")
     log_path.write_text(combined_log, encoding="utf-8")
     result["log_path"] = str(log_path)
@@ -453,6 +478,40 @@ def _run_headless_export(
     return result
 
 
+def _referenced_function_pack_files(analysis_path: Path) -> List[str]:
+    try:
+        with analysis_path.open("r", encoding="utf-8", errors="replace") as handle:
+            header = handle.read(FUNCTION_PACK_HEADER_BYTES)
+    except OSError:
+        return []
+    return [name for _, name in FUNCTION_PACK_REFERENCE_RE.findall(header)]
+
+
+def _remove_unreferenced_function_packs(bundle_dir: Path, analysis_path: Path) -> None:
+    # Packs from older generations, or from a run whose JSON was not kept, are dead weight;
+    # only clean up once the surviving JSON is known to name its own pack files
+    referenced = set(_referenced_function_pack_files(analysis_path))
+    if not referenced:
+        return
+    for path in bundle_dir.glob(FUNCTION_PACK_GLOB):
+        if path.name in referenced or not path.is_file():
+            continue
+        try:
+            path.unlink()
+        except OSError:
+            pass
+
+
+def _is_readable_json(path: Path) -> bool:
+    if not path.exists():
+        return False
+    try:
+        read_json(path)
+    except Exception:
+        return False
+    return True
+
+
 def _resolve_java_home() -> str:
     configured = str(os.environ.get("GHIDRA_JAVA_HOME") or os.environ.get("JAVA_HOME") or "").strip()
     if configured:
@@ -817,6 +876,8 @@ def prepare_corpus_bundles(
 def inspect_bundle_dir(bundle_dir: Path, *, sample_path: Path | None = None, analyze_headless: Path | None = None) -> Dict[str, Any]:
     bundle_dir = bundle_dir.resolve()
     required = {name: (bundle_dir / name).is_file() for name in REQUIRED_BUNDLE_FILES}
+    for name in _referenced_function_pack_files(bundle_dir / "ghidra_analysis.json"):
+        required[name] = (bundle_dir / name).is_file()
     optional = {name: (bundle_dir / name).is_file() for name in OPTIONAL_BUNDLE_FILES}
     missing_required = [name for name, present in required.items() if not present]
     missing_optional = [name for name, present in optional.items() if not present]
@@ -6,7 +6,7 @@ from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
 from pathlib import Path
 from threading import Lock
 from threading import Event, Thread
-from typing import Any, Dict, List, Optional, Tuple
+from typing import Any, Dict, List, Optional, Set, Tuple
 from uuid import uuid4
 
 import gradio as gr
@@ -1366,6 +1366,25 @@ def _automation_prompt_from_payload(payload: Dict[str, Any]) -> str:
 
 def _run_automation_trigger(user_text: str, source: str, payload: Dict[str, Any], program_key: str) -> None:
     global _AUTOMATION_TRIGGER_PENDING
+    try:
+        _execute_automation_trigger(user_text, source, payload, program_key)
+    finally:
+        with _AUTOMATION_TRIGGER_LOCK:
+            _AUTOMATION_TRIGGER_PENDING = False
+
+
+def _run_automation_trigger_batch(items: List[Tuple[str, str, Dict[str, Any], str]]) -> None:
+    """Run the accepted items of a batched trigger one after another on a single worker."""
+    global _AUTOMATION_TRIGGER_PENDING
+    try:
+        for user_text, source, payload, program_key in items:
+            _execute_automation_trigger(user_text, source, payload, program_key)
+    finally:
+        with _AUTOMATION_TRIGGER_LOCK:
+            _AUTOMATION_TRIGGER_PENDING = False
+
+
+def _execute_automation_trigger(user_text: str, source: str, payload: Dict[str, Any], program_key: str) -> None:
     try:
         snapshot = _get_ui_snapshot()
         state = snapshot.get("state")
@@ -1416,9 +1435,6 @@ def _run_automation_trigger(user_text: str, source: str, payload: Dict[str, Any]
             status="failed",
             error=f"{type(e).__name__}: {e}",
         )
-    finally:
-        with _AUTOMATION_TRIGGER_LOCK:
-            _AUTOMATION_TRIGGER_PENDING = False
 
 
 class _AutomationTriggerHandler(BaseHTTPRequestHandler):
@@ -1486,8 +1502,12 @@ class _AutomationTriggerHandler(BaseHTTPRequestHandler):
             self._send_json(400, {"ok": False, "error": f"invalid JSON body: {type(e).__name__}: {e}"})
             return
 
+        if isinstance(payload, list):
+            self._handle_batch(payload)
+            return
+
         if not isinstance(payload, dict):
-            self._send_json(400, {"ok": False, "error": "JSON body must decode to an object"})
+            self._send_json(400, {"ok": False, "error": "JSON body must decode to an object or an array of objects"})
             return
 
         source = str(payload.get("source") or "external").strip() or "external"
@@ -1561,6 +1581,100 @@ class _AutomationTriggerHandler(BaseHTTPRequestHandler):
         )
 
 
+    def _handle_batch(self, items: List[Any]) -> None:
+        """
+        Batched triggers: a JSON array of trigger objects. The response carries one
+        result per item, in order, with status accepted, skipped, busy or rejected.
+        Accepted items run back to back on one worker; busy items should be resent.
+        """
+        if not items:
+            self._send_json(400, {"ok": False, "error": "batch must contain at least one trigger"})
+            return
+
+        results: List[Dict[str, Any]] = []
+        candidates: List[Tuple[int, str, str, Dict[str, Any]]] = []
+        for index, payload in enumerate(items):
+            if not isinstance(payload, dict):
+                results.append({"index": index, "accepted": False, "status": "rejected", "error": "item must be an object"})
+                continue
+            source = str(payload.get("source") or "external").strip() or "external"
+            user_text = _automation_prompt_from_payload(payload)
+            if not user_text:
+                results.append(
+                    {"index": index, "accepted": False, "status": "rejected", "error": "trigger prompt resolved to an empty request"}
+                )
+                continue
+            accept_trigger, rerun_reason, program_key = _should_accept_automation_trigger(payload)
+            if not accept_trigger:
+                _mark_automation_snapshot_event(
+                    payload,
+                    status="skipped",
+                    source=source,
+                    program_key=program_key,
+                    reason=rerun_reason,
+                    detail="Trigger skipped because no rerun condition was met.",
+                )
+                results.append(
+                    {
+                        "index": index,
+                        "accepted": False,
+                        "status": "skipped",
+                        "source": source,
+                        "reason": rerun_reason,
+                        "program_key": program_key,
+                    }
+                )
+                continue
+            payload["rerun_reason"] = rerun_reason
+            results.append({"index": index})
+            candidates.append((index, user_text, source, payload))
+
+        global _AUTOMATION_TRIGGER_PENDING
+        accepted: List[Tuple[str, str, Dict[str, Any], str]] = []
+        with _AUTOMATION_TRIGGER_LOCK:
+            busy = _AUTOMATION_TRIGGER_PENDING or _automation_run_busy()
+            seen_keys: Set[str] = set()
+            for index, user_text, source, payload in candidates:
+                program_key = _automation_program_key_from_payload(payload)
+                if busy or program_key in seen_keys:
+                    # Another workflow is active (or this program is already in the batch)
+                    results[index].update(
+                        {"accepted": False, "status": "busy", "program_key": program_key, "error": "workflow is already running"}
+                    )
+                    continue
+                seen_keys.add(program_key)
+                program_key = _register_automation_run_start(payload, str(payload.get("rerun_reason") or ""))
+                results[index].update(
+                    {
+                        "accepted": True,
+                        "status": "accepted",
+                        "source": source,
+                        "reason": str(payload.get("rerun_reason") or ""),
+                        "program_key": program_key,
+                    }
+                )
+                accepted.append((user_text, source, payload, program_key))
+            if accepted:
+                _AUTOMATION_TRIGGER_PENDING = True
+
+        if accepted:
+            Thread(
+                target=_run_automation_trigger_batch,
+                args=(accepted,),
+                daemon=True,
+                name="automation-trigger-batch",
+            ).start()
+        self._send_json(
+            202 if accepted else 200,
+            {
+                "ok": True,
+                "batch": True,
+                "accepted": len(accepted),
+                "results": results,
+            },
+        )
+
+
 def _start_automation_trigger_server() -> None:
     global _AUTOMATION_TRIGGER_SERVER
     if not AUTOMATION_TRIGGER_ENABLED: